@@ -9,4 +9,8 @@ public class AssignmentNode implements StatementNode {
         return  target + " = " + expression + "\n";
     }
 
+    @Override
+    public <R> R accept(StatementVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -8,4 +8,9 @@ public class BooleanLiteralNode implements ExpressionNode {
     public String toString() {
         return value?"true" : "false";
     }
+
+    @Override
+    public <R> R accept(ExpressionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
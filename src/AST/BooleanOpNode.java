@@ -1,12 +1,21 @@
 package AST;
 
+import Interpreter.nodes.OperatorNode;
+
 public class BooleanOpNode implements ExpressionNode {
     public ExpressionNode left;
     public ExpressionNode right;
     public enum BooleanOperations { and, or }
     public BooleanOperations op;
+    // Filled in by the interpreter's resolution pass - replaces itself to match the operand types it actually sees
+    public OperatorNode executable;
     @Override
     public String toString() {
         return left + ((op== BooleanOperations.and) ? " and " : " or ") + right;
     }
+
+    @Override
+    public <R> R accept(ExpressionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
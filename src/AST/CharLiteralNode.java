@@ -6,4 +6,9 @@ public class CharLiteralNode implements ExpressionNode {
     public String toString() {
         return "'" + value + "'";
     }
+
+    @Override
+    public <R> R accept(ExpressionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -32,7 +32,9 @@ public class ClassNode implements Node {
         }
         return sb.toString();
     }
-}
-
-
 
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+        return visitor.visit(this);
+    }
+}
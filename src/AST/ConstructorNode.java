@@ -12,4 +12,9 @@ public class ConstructorNode implements Node {
     public String toString() {
         return "Constructor: " + Node.variableDeclarationListToString(parameters) + "\n" + Node.variableDeclarationListToString(locals) + "\n" + Node.statementListToString(statements);
     }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
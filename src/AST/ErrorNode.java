@@ -0,0 +1,18 @@
+package AST;
+
+// Stands in for a statement that didn't parse, when the parser is recovering from errors (Parser.TranWithRecovery()).
+public class ErrorNode implements StatementNode {
+    public String message;
+    public int lineNumber;
+    public int characterPosition;
+
+    @Override
+    public String toString() {
+        return "error at line " + lineNumber + ": " + message;
+    }
+
+    @Override
+    public <R> R accept(StatementVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+}
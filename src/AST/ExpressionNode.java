@@ -1,4 +1,10 @@
 package AST;
 
 public interface ExpressionNode  extends Node {
+    <R> R accept(ExpressionVisitor<R> visitor);
+
+    @Override
+    default <R> R accept(Visitor<R> visitor) {
+        return accept((ExpressionVisitor<R>) visitor);
+    }
 }
@@ -0,0 +1,19 @@
+package AST;
+
+/**
+ * Something done to each kind of expression. ExpressionNode.accept() calls the visit() for the expression's own class.
+ * @param <R> what each visit returns (Void if nothing)
+ */
+public interface ExpressionVisitor<R> {
+    R visit(VariableReferenceNode node);
+    R visit(NumericLiteralNode node);
+    R visit(StringLiteralNode node);
+    R visit(CharLiteralNode node);
+    R visit(BooleanLiteralNode node);
+    R visit(MathOpNode node);
+    R visit(CompareNode node);
+    R visit(BooleanOpNode node);
+    R visit(NotOpNode node);
+    R visit(MethodCallExpressionNode node);
+    R visit(NewNode node);
+}
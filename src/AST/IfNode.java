@@ -1,16 +1,21 @@
 package AST;
 
-import javax.swing.plaf.nimbus.State;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 public class IfNode implements StatementNode {
     public ExpressionNode condition;
-    public List<StatementNode> statements;
-    public Optional<ElseNode> elseStatement;
+    public List<StatementNode> statements = new ArrayList<>();
+    public Optional<ElseNode> elseStatement = Optional.empty();
 
     @Override
     public String toString() {
         return "if (" + condition + ")\n" + statements + (elseStatement.isEmpty()?"" : elseStatement) + "\n";
     }
+
+    @Override
+    public <R> R accept(StatementVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -11,4 +11,9 @@ public class InterfaceNode implements Node {
     public String toString() {
         return "interface " + name + "\n" + methods;
     }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -5,7 +5,7 @@ import java.util.List;
 import java.util.Optional;
 
 public class LoopNode implements StatementNode {
-    public Optional<VariableReferenceNode> assignment;
+    public Optional<VariableReferenceNode> assignment = Optional.empty();
     public ExpressionNode expression;
     public List<StatementNode> statements = new ArrayList<>();
 
@@ -13,4 +13,9 @@ public class LoopNode implements StatementNode {
     public String toString() {
         return "loop " + (assignment.map(variableReferenceNode -> variableReferenceNode.name + " = ").orElse("")) + expression + "\n" + Node.statementListToString(statements);
     }
+
+    @Override
+    public <R> R accept(StatementVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
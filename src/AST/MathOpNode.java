@@ -1,10 +1,14 @@
 package AST;
 
+import Interpreter.nodes.OperatorNode;
+
 public class MathOpNode implements ExpressionNode {
     public ExpressionNode left;
     public ExpressionNode right;
     public enum MathOperations { add, subtract, multiply, divide, modulo }
     public MathOperations op;
+    // Filled in by the interpreter's resolution pass - replaces itself to match the operand types it actually sees
+    public OperatorNode executable;
 
     private String opToString() {
         switch (op) {
@@ -21,4 +25,9 @@ public class MathOpNode implements ExpressionNode {
     public String toString() {
         return left + opToString() + right;
     }
+
+    @Override
+    public <R> R accept(ExpressionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -11,4 +11,9 @@ public class MemberNode implements Node {
         return  declaration +
                 "\n" ;
     }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -7,12 +7,22 @@ import java.util.Optional;
 // This is used for cases where a method call is part of an expression.
 // This pre-supposes that the method has only one return value.
 public class MethodCallExpressionNode implements ExpressionNode {
-    public Optional<String> objectName;
+    public Optional<String> objectName = Optional.empty();
     public String methodName;
     public List<ExpressionNode> parameters = new ArrayList<>();
+    // Filled in by the interpreter's resolution pass - the statement form of this call, built once instead of per evaluation
+    public MethodCallStatementNode asStatement;
+    // Filled in by the TypeChecker when the call can only mean one method - that method, and the class it is in
+    public ClassNode checkedClass;
+    public MethodDeclarationNode checkedMethod;
     @Override
     public String toString() {
         return (objectName.map(s -> s + ".").orElse("")) +
                 methodName + " (" + Node.parameterListToString(parameters) + ")" ;
     }
+
+    @Override
+    public <R> R accept(ExpressionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
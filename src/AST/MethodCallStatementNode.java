@@ -1,7 +1,8 @@
 package AST;
 
+import Interpreter.InlineCache;
+
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 
@@ -9,17 +10,25 @@ import java.util.Optional;
 // This allows for multiple return values.
 public class MethodCallStatementNode implements StatementNode {
     public MethodCallStatementNode() {
-        returnValues = new LinkedList<>();
     }
 
     public MethodCallStatementNode(MethodCallExpressionNode mce) {
-        returnValues = new LinkedList<>();
         objectName = mce.objectName;
         methodName = mce.methodName;
         parameters = mce.parameters;
+        checkedClass = mce.checkedClass;
+        checkedMethod = mce.checkedMethod;
     }
 
-    public Optional<String> objectName;
+    public Optional<String> objectName = Optional.empty();
+    // Filled in by the interpreter's resolution pass when objectName is a local or member (not a class name)
+    public VariableReferenceNode objectReference;
+    // Filled in by the interpreter's resolution pass - which method this call went to, per class it was called on and
+    // kinds of values it was passed
+    public InlineCache inlineCache;
+    // Filled in by the TypeChecker when the call can only mean one method - that method, and the class it is in
+    public ClassNode checkedClass;
+    public MethodDeclarationNode checkedMethod;
     public String methodName;
     public List<VariableReferenceNode> returnValues = new ArrayList<>();
     public List<ExpressionNode> parameters = new ArrayList<>();
@@ -29,4 +38,9 @@ public class MethodCallStatementNode implements StatementNode {
                 objectName.map(s -> s + ".").orElse("") +
                 methodName + " (" + Node.parameterListToString(parameters) + ")" ;
     }
+
+    @Override
+    public <R> R accept(StatementVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -1,5 +1,7 @@
 package AST;
 
+import Interpreter.jit.JitMethod;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -12,6 +14,11 @@ public class MethodDeclarationNode implements Node {
     public List<VariableDeclarationNode> returns = new ArrayList<>();
     public List<VariableDeclarationNode> locals = new ArrayList<>();
     public List<StatementNode> statements = new ArrayList<>();
+    // Kept by the interpreter's Jit - how many times this method has been called, and its compiled code once it is
+    // hot (or that it can't be compiled, or its compiled code gave up)
+    public int jitCalls;
+    public JitMethod jitted;
+    public boolean jitFailed;
 
     @Override
     public String toString() {
@@ -23,4 +30,9 @@ public class MethodDeclarationNode implements Node {
                         locals.stream().map(Object::toString).collect(Collectors.joining("\n")) +
                         Node.statementListToString(statements) + "\n";
     }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
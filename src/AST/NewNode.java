@@ -6,9 +6,16 @@ import java.util.List;
 public class NewNode implements Node, ExpressionNode{
     public String className;
     public List<ExpressionNode> parameters = new ArrayList<>();
+    // Filled in by the TypeChecker - the constructor this "new" runs (null for a class with no constructors)
+    public ConstructorNode checkedConstructor;
 
     @Override
     public String toString() {
         return "new " + className + "(" + Node.parameterListToString(parameters) + ")";
     }
+
+    @Override
+    public <R> R accept(ExpressionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
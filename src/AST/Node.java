@@ -4,6 +4,8 @@ import java.util.List;
 
 public interface Node {
     public abstract String toString();
+    /** Call the visit() for this node's class */
+    <R> R accept(Visitor<R> visitor);
     static String statementListToString(List<StatementNode> stmts){
         StringBuilder sb = new StringBuilder();
         for (var s : stmts) {
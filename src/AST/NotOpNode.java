@@ -1,9 +1,18 @@
 package AST;
 
+import Interpreter.nodes.OperatorNode;
+
 public class NotOpNode implements ExpressionNode {
     public ExpressionNode left;
+    // Filled in by the interpreter's resolution pass - replaces itself to match the operand types it actually sees
+    public OperatorNode executable;
     @Override
     public String toString() {
         return "not " + left.toString();
     }
+
+    @Override
+    public <R> R accept(ExpressionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -1,10 +1,17 @@
 package AST;
 
 public class NumericLiteralNode implements ExpressionNode {
-    public float value;
+    public double value;
+    public boolean isInteger; // written without a decimal point (and fits in a long) - then integerValue is exact
+    public long integerValue;
 
     @Override
     public String toString() {
-        return value + " ";
+        return (isInteger ? String.valueOf(integerValue) : String.valueOf(value)) + " ";
+    }
+
+    @Override
+    public <R> R accept(ExpressionVisitor<R> visitor) {
+        return visitor.visit(this);
     }
 }
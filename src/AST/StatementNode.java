@@ -1,4 +1,10 @@
 package AST;
 
 public interface StatementNode extends Node {
+    <R> R accept(StatementVisitor<R> visitor);
+
+    @Override
+    default <R> R accept(Visitor<R> visitor) {
+        return accept((StatementVisitor<R>) visitor);
+    }
 }
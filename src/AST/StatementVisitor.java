@@ -0,0 +1,14 @@
+package AST;
+
+/**
+ * Something done to each kind of statement. StatementNode.accept() calls the visit() for the statement's own class,
+ * so a pass over statements is one virtual call per statement instead of a chain of instanceof tests.
+ * @param <R> what each visit returns (Void if nothing)
+ */
+public interface StatementVisitor<R> {
+    R visit(AssignmentNode node);
+    R visit(MethodCallStatementNode node);
+    R visit(IfNode node);
+    R visit(LoopNode node);
+    R visit(ErrorNode node);
+}
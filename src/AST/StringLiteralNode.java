@@ -7,4 +7,9 @@ public class StringLiteralNode implements ExpressionNode {
     public String toString() {
         return "\"" + value + "\"";
     }
+
+    @Override
+    public <R> R accept(ExpressionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -11,4 +11,9 @@ public class VariableDeclarationNode implements Node {
     public String toString() {
         return type + " " + name;
     }
+
+    @Override
+    public <R> R accept(Visitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
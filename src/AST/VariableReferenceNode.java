@@ -5,8 +5,19 @@ import java.util.Optional;
 public class VariableReferenceNode implements Node,ExpressionNode {
     public String name;
 
+    // Filled in by the interpreter's resolution pass, so that running code never has to look up a variable by name.
+    // For locals, slot is the index into the method's frame; for members, it is the index into ClassNode.members.
+    public enum VariableScope { unresolved, local, member }
+    public VariableScope scope = VariableScope.unresolved;
+    public int slot = -1;
+
     @Override
     public String toString() {
         return name;
     }
+
+    @Override
+    public <R> R accept(ExpressionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
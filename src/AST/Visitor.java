@@ -0,0 +1,14 @@
+package AST;
+
+/**
+ * Something done to every kind of Node - the declarations as well as the statements and expressions.
+ * @param <R> what each visit returns (Void if nothing)
+ */
+public interface Visitor<R> extends StatementVisitor<R>, ExpressionVisitor<R> {
+    R visit(ClassNode node);
+    R visit(InterfaceNode node);
+    R visit(MemberNode node);
+    R visit(ConstructorNode node);
+    R visit(MethodDeclarationNode node);
+    R visit(VariableDeclarationNode node);
+}
@@ -0,0 +1,616 @@
+package Interpreter;
+
+import AST.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * An optimization pass to run after parsing (after the ConstantFolder, before the Interpreter is made) that stops
+ * the same expression from being worked out over and over:
+ *
+ * Loop-invariant code motion - an expression in a loop (its condition or anywhere in its body) whose variables are
+ * never assigned in the loop is worked out once, into a new local, just before the loop.
+ * Common subexpressions - an expression that is worked out more than once in a block, with none of its variables
+ * assigned in between, is worked out once, into a new local, before the first statement that uses it.
+ *
+ * Only expressions that can't fail are moved (math on numbers, + with a string, comparisons of two values of the
+ * same type, and/or/not on booleans, over literals and number/string/boolean/character variables), so working one
+ * out earlier - or when the loop would have run no times - can't change what the program does. Method calls and
+ * "new" are never moved. A member variable can be changed by any method call, so an expression that uses one only
+ * moves past statements that call nothing.
+ *
+ * The new locals are named "hoisted$1", "hoisted$2" and so on, which no Tran name can be.
+ */
+public class CodeMotion {
+    private final TypeEnvironment types = new TypeEnvironment();
+    private final ArrayList<VariableDeclarationNode> temporaries = new ArrayList<>();
+
+    /**
+     * Optimize every method and constructor of every class in the program.
+     * @param top - the head of the AST
+     */
+    public void optimize(TranNode top) {
+        for (var c : top.Classes) {
+            types.startClass(c);
+            for (var m : c.methods) {
+                if (m instanceof BuiltInMethodDeclarationNode)
+                    continue;
+                startFrame(m.parameters, m.returns, m.locals);
+                m.statements = block(m.statements);
+                m.locals = withTemporaries(m.locals);
+            }
+            for (var k : c.constructors) {
+                startFrame(k.parameters, k.locals);
+                k.statements = block(k.statements);
+                k.locals = withTemporaries(k.locals);
+            }
+        }
+    }
+
+    @SafeVarargs
+    private void startFrame(List<VariableDeclarationNode>... declarations) {
+        types.startFrame();
+        temporaries.clear();
+        for (var list : declarations)
+            types.addLocals(list);
+    }
+
+    private List<VariableDeclarationNode> withTemporaries(List<VariableDeclarationNode> locals) {
+        if (temporaries.isEmpty())
+            return locals;
+        var all = new ArrayList<>(locals);
+        all.addAll(temporaries);
+        return all;
+    }
+
+    /**
+     * Optimize a block: the blocks inside it first, then hoist out of each loop in it, then share the common
+     * subexpressions among its own statements.
+     * @return a new list of the optimized statements
+     */
+    private List<StatementNode> block(List<StatementNode> statements) {
+        var result = new Block(statements.size());
+        for (var s : statements) {
+            s.accept(result);
+            result.statements.add(s);
+        }
+        shareCommonSubexpressions(result.statements);
+        return result.statements;
+    }
+
+    /**
+     * Optimizes the blocks inside each statement of a block, and collects the new statements of the block - each
+     * one, after whatever was hoisted out of it.
+     */
+    private class Block implements StatementVisitor<Void> {
+        final ArrayList<StatementNode> statements;
+
+        Block(int size) {
+            statements = new ArrayList<>(size);
+        }
+
+        @Override
+        public Void visit(AssignmentNode node) {
+            return null;
+        }
+
+        @Override
+        public Void visit(MethodCallStatementNode node) {
+            return null;
+        }
+
+        @Override
+        public Void visit(IfNode node) {
+            node.statements = block(node.statements);
+            node.elseStatement.ifPresent(e -> e.statements = block(e.statements));
+            return null;
+        }
+
+        @Override
+        public Void visit(LoopNode node) {
+            node.statements = block(node.statements);
+            statements.addAll(hoistInvariants(node));
+            return null;
+        }
+
+        @Override
+        public Void visit(ErrorNode node) {
+            return null;
+        }
+    }
+
+    //              Loop-invariant code motion
+
+    /**
+     * Replace every invariant expression in the loop with a new local.
+     * @return the assignments to those locals, to go just before the loop
+     */
+    private List<StatementNode> hoistInvariants(LoopNode l) {
+        var effects = new Effects();
+        effects.of(l);
+        var hoisted = new LinkedHashMap<String, VariableReferenceNode>();
+        var assignments = new ArrayList<StatementNode>();
+        new EachExpression(e -> {
+            if (!isOperator(e) || types.typeOf(e) == null)
+                return null;
+            var uses = new Uses(e);
+            if (uses.calls || !isUnchangedBy(uses, effects))
+                return null;
+            String key = e.accept(new Key());
+            var temporary = hoisted.get(key);
+            if (temporary == null) {
+                temporary = newTemporary(types.typeOf(e));
+                hoisted.put(key, temporary);
+                assignments.add(assign(temporary, e));
+            }
+            return reference(temporary);
+        }, true).of(l);
+        return assignments;
+    }
+
+    //              Common subexpressions
+
+    /** An expression that is worked out in more than one statement in a row, with nothing changing it in between */
+    private static class Run {
+        final String key;
+        final ExpressionNode expression;
+        final Uses uses;
+        final int first; // the statements that it is worked out in
+        int last;
+        int count;
+
+        Run(String key, ExpressionNode expression, Uses uses, int first) {
+            this.key = key;
+            this.expression = expression;
+            this.uses = uses;
+            this.first = first;
+            this.last = first;
+        }
+    }
+
+    /**
+     * Repeatedly find the biggest expression that is worked out twice or more in one run of statements, and work it
+     * out once, into a new local, before the run. Each time round changes the statements, so start again.
+     */
+    private void shareCommonSubexpressions(List<StatementNode> statements) {
+        while (true) {
+            Run best = null;
+            for (var run : findRuns(statements)) {
+                if (run.count >= 2 && (best == null || run.key.length() > best.key.length()))
+                    best = run;
+            }
+            if (best == null)
+                return;
+
+            var temporary = newTemporary(types.typeOf(best.expression));
+            var key = best.key;
+            var replace = new EachExpression(e -> isOperator(e) && types.typeOf(e) != null && key.equals(e.accept(new Key()))
+                    ? reference(temporary) : null, false);
+            for (int i = best.first; i <= best.last; i++)
+                replace.of(statements.get(i));
+            statements.add(best.first, assign(temporary, best.expression));
+        }
+    }
+
+    /**
+     * Every run of every expression that could be shared. Ifs and loops end every run: their statements are a block of
+     * their own, and a loop's condition is worked out more than once.
+     */
+    private List<Run> findRuns(List<StatementNode> statements) {
+        var runs = new ArrayList<Run>();
+        var open = new HashMap<String, Run>();
+        for (int i = 0; i < statements.size(); i++) {
+            var s = statements.get(i);
+            if (s instanceof IfNode || s instanceof LoopNode) {
+                open.clear();
+                continue;
+            }
+            var effects = new Effects();
+            effects.of(s);
+            int index = i;
+            new EachExpression(e -> {
+                if (isOperator(e) && types.typeOf(e) != null) {
+                    var uses = new Uses(e);
+                    // A call in this statement could change a member between two uses in it
+                    if (!uses.calls && !(effects.calls && uses.members)) {
+                        String key = e.accept(new Key());
+                        var run = open.get(key);
+                        if (run == null) {
+                            run = new Run(key, e, uses, index);
+                            open.put(key, run);
+                            runs.add(run);
+                        }
+                        run.last = index;
+                        run.count++;
+                    }
+                }
+                return null; // look inside it too
+            }, false).of(s);
+            open.values().removeIf(run -> !isUnchangedBy(run.uses, effects));
+        }
+        return runs;
+    }
+
+    //              Helpers
+
+    /**
+     * Can nothing in effects change the value of an expression with these uses?
+     */
+    private static boolean isUnchangedBy(Uses uses, Effects effects) {
+        if (uses.members && effects.calls)
+            return false;
+        for (var name : uses.variables) {
+            if (effects.assigned.contains(name))
+                return false;
+        }
+        return true;
+    }
+
+    private VariableReferenceNode newTemporary(String type) {
+        var declaration = new VariableDeclarationNode();
+        declaration.type = type;
+        declaration.name = "hoisted$" + (temporaries.size() + 1);
+        temporaries.add(declaration);
+        types.addLocal(declaration.name, type);
+        var reference = new VariableReferenceNode();
+        reference.name = declaration.name;
+        return reference;
+    }
+
+    /**
+     * A new reference to the same variable - every use of a variable has its own node (the Resolver fills it in).
+     */
+    private static VariableReferenceNode reference(VariableReferenceNode v) {
+        var reference = new VariableReferenceNode();
+        reference.name = v.name;
+        return reference;
+    }
+
+    private static AssignmentNode assign(VariableReferenceNode target, ExpressionNode expression) {
+        var assignment = new AssignmentNode();
+        assignment.target = reference(target);
+        assignment.expression = expression;
+        return assignment;
+    }
+
+    private static boolean isOperator(ExpressionNode e) {
+        return e instanceof MathOpNode || e instanceof CompareNode || e instanceof BooleanOpNode || e instanceof NotOpNode;
+    }
+
+    /**
+     * Two expressions with the same key always have the same value (as long as their variables do).
+     */
+    private static class Key implements ExpressionVisitor<String> {
+        @Override
+        public String visit(VariableReferenceNode node) {
+            return node.name;
+        }
+
+        @Override
+        public String visit(NumericLiteralNode node) {
+            return node.isInteger ? String.valueOf(node.integerValue) : String.valueOf(node.value) + "d";
+        }
+
+        @Override
+        public String visit(StringLiteralNode node) {
+            return '"' + node.value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+        }
+
+        @Override
+        public String visit(CharLiteralNode node) {
+            return "'" + node.value + "'";
+        }
+
+        @Override
+        public String visit(BooleanLiteralNode node) {
+            return String.valueOf(node.value);
+        }
+
+        @Override
+        public String visit(MathOpNode node) {
+            return "(" + node.op + " " + node.left.accept(this) + " " + node.right.accept(this) + ")";
+        }
+
+        @Override
+        public String visit(CompareNode node) {
+            return "(" + node.op + " " + node.left.accept(this) + " " + node.right.accept(this) + ")";
+        }
+
+        @Override
+        public String visit(BooleanOpNode node) {
+            return "(" + node.op + " " + node.left.accept(this) + " " + node.right.accept(this) + ")";
+        }
+
+        @Override
+        public String visit(NotOpNode node) {
+            return "(not " + node.left.accept(this) + ")";
+        }
+
+        @Override
+        public String visit(MethodCallExpressionNode node) {
+            throw new IllegalArgumentException("Calls have no key");
+        }
+
+        @Override
+        public String visit(NewNode node) {
+            throw new IllegalArgumentException("New has no key");
+        }
+    }
+
+    /**
+     * The variables an expression reads, and whether it calls anything.
+     */
+    private class Uses implements ExpressionVisitor<Void> {
+        final HashSet<String> variables = new HashSet<>();
+        boolean members; // does it read a member?
+        boolean calls;
+
+        Uses(ExpressionNode e) {
+            e.accept(this);
+        }
+
+        @Override
+        public Void visit(VariableReferenceNode node) {
+            variables.add(node.name);
+            if (!types.isLocal(node.name))
+                members = true;
+            return null;
+        }
+
+        @Override
+        public Void visit(NumericLiteralNode node) {
+            return null;
+        }
+
+        @Override
+        public Void visit(StringLiteralNode node) {
+            return null;
+        }
+
+        @Override
+        public Void visit(CharLiteralNode node) {
+            return null;
+        }
+
+        @Override
+        public Void visit(BooleanLiteralNode node) {
+            return null;
+        }
+
+        @Override
+        public Void visit(MathOpNode node) {
+            node.left.accept(this);
+            return node.right.accept(this);
+        }
+
+        @Override
+        public Void visit(CompareNode node) {
+            node.left.accept(this);
+            return node.right.accept(this);
+        }
+
+        @Override
+        public Void visit(BooleanOpNode node) {
+            node.left.accept(this);
+            return node.right.accept(this);
+        }
+
+        @Override
+        public Void visit(NotOpNode node) {
+            return node.left.accept(this);
+        }
+
+        @Override
+        public Void visit(MethodCallExpressionNode node) {
+            calls = true;
+            for (var p : node.parameters)
+                p.accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visit(NewNode node) {
+            calls = true;
+            for (var p : node.parameters)
+                p.accept(this);
+            return null;
+        }
+    }
+
+    /**
+     * What running some statements (and the blocks inside them) can change: the variables they assign, and whether
+     * they call anything (which could change any member).
+     */
+    private static class Effects implements StatementVisitor<Void> {
+        final HashSet<String> assigned = new HashSet<>();
+        boolean calls;
+
+        void of(StatementNode s) {
+            s.accept(this);
+            new EachExpression(e -> {
+                if (e instanceof MethodCallExpressionNode || e instanceof NewNode)
+                    calls = true;
+                return null;
+            }, true).of(s);
+        }
+
+        @Override
+        public Void visit(AssignmentNode node) {
+            assigned.add(node.target.name);
+            return null;
+        }
+
+        @Override
+        public Void visit(MethodCallStatementNode node) {
+            calls = true;
+            for (var r : node.returnValues)
+                assigned.add(r.name);
+            return null;
+        }
+
+        @Override
+        public Void visit(IfNode node) {
+            for (var s : node.statements)
+                s.accept(this);
+            node.elseStatement.ifPresent(e -> e.statements.forEach(s -> s.accept(this)));
+            return null;
+        }
+
+        @Override
+        public Void visit(LoopNode node) {
+            node.assignment.ifPresent(v -> assigned.add(v.name));
+            for (var s : node.statements)
+                s.accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visit(ErrorNode node) {
+            return null;
+        }
+    }
+
+    /**
+     * Offers every expression in a statement to replace, biggest first: if it gives back a node, that takes the
+     * expression's place; if it gives back null, the expressions inside are offered next.
+     */
+    private static class EachExpression implements StatementVisitor<Void>, ExpressionVisitor<ExpressionNode> {
+        private final UnaryOperator<ExpressionNode> replace;
+        private final boolean intoBlocks; // the statements in ifs and loops too?
+
+        EachExpression(UnaryOperator<ExpressionNode> replace, boolean intoBlocks) {
+            this.replace = replace;
+            this.intoBlocks = intoBlocks;
+        }
+
+        void of(StatementNode s) {
+            s.accept(this);
+        }
+
+        private ExpressionNode offer(ExpressionNode e) {
+            var replacement = replace.apply(e);
+            return replacement != null ? replacement : e.accept(this);
+        }
+
+        private List<ExpressionNode> offerAll(List<ExpressionNode> expressions) {
+            List<ExpressionNode> result = expressions;
+            for (int i = 0; i < expressions.size(); i++) {
+                var e = offer(expressions.get(i));
+                if (e != expressions.get(i)) {
+                    if (result == expressions)
+                        result = new ArrayList<>(expressions);
+                    result.set(i, e);
+                }
+            }
+            return result;
+        }
+
+        private void block(List<StatementNode> statements) {
+            if (intoBlocks) {
+                for (var s : statements)
+                    s.accept(this);
+            }
+        }
+
+        @Override
+        public Void visit(AssignmentNode node) {
+            node.expression = offer(node.expression);
+            return null;
+        }
+
+        @Override
+        public Void visit(MethodCallStatementNode node) {
+            node.parameters = offerAll(node.parameters);
+            return null;
+        }
+
+        @Override
+        public Void visit(IfNode node) {
+            node.condition = offer(node.condition);
+            block(node.statements);
+            node.elseStatement.ifPresent(e -> block(e.statements));
+            return null;
+        }
+
+        @Override
+        public Void visit(LoopNode node) {
+            node.expression = offer(node.expression);
+            block(node.statements);
+            return null;
+        }
+
+        @Override
+        public Void visit(ErrorNode node) {
+            return null;
+        }
+
+        @Override
+        public ExpressionNode visit(VariableReferenceNode node) {
+            return node;
+        }
+
+        @Override
+        public ExpressionNode visit(NumericLiteralNode node) {
+            return node;
+        }
+
+        @Override
+        public ExpressionNode visit(StringLiteralNode node) {
+            return node;
+        }
+
+        @Override
+        public ExpressionNode visit(CharLiteralNode node) {
+            return node;
+        }
+
+        @Override
+        public ExpressionNode visit(BooleanLiteralNode node) {
+            return node;
+        }
+
+        @Override
+        public ExpressionNode visit(MathOpNode node) {
+            node.left = offer(node.left);
+            node.right = offer(node.right);
+            return node;
+        }
+
+        @Override
+        public ExpressionNode visit(CompareNode node) {
+            node.left = offer(node.left);
+            node.right = offer(node.right);
+            return node;
+        }
+
+        @Override
+        public ExpressionNode visit(BooleanOpNode node) {
+            node.left = offer(node.left);
+            node.right = offer(node.right);
+            return node;
+        }
+
+        @Override
+        public ExpressionNode visit(NotOpNode node) {
+            node.left = offer(node.left);
+            return node;
+        }
+
+        @Override
+        public ExpressionNode visit(MethodCallExpressionNode node) {
+            node.parameters = offerAll(node.parameters);
+            return node;
+        }
+
+        @Override
+        public ExpressionNode visit(NewNode node) {
+            node.parameters = offerAll(node.parameters);
+            return node;
+        }
+    }
+}
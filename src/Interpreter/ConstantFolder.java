@@ -0,0 +1,307 @@
+package Interpreter;
+
+import AST.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * An optimization pass to run after parsing (and before the Interpreter is made): works out every operator whose
+ * operands are all literals and puts a literal in its place, so that it isn't worked out again every time it runs.
+ * The math is done by Operations, so a folded answer is always the one the program would have got. An operator that
+ * would fail at run time (1 + true) is left alone to fail there.
+ *
+ * Also simplifies:
+ * x * 1, 1 * x, x / 1 and x - 0 to x, when x is a number (and the 1 or 0 is an integer)
+ * not not x to x, when x is a boolean
+ * x + "a" + "b" to x + "ab" (once one side is a string, + is concatenation, which doesn't care how it is grouped)
+ *
+ * x + 0 is not simplified: when x is -0.0, x + 0 is 0.0.
+ */
+public class ConstantFolder implements StatementVisitor<Void>, ExpressionVisitor<ExpressionNode> {
+    private final TypeEnvironment types = new TypeEnvironment();
+
+    /**
+     * Fold every method and constructor of every class in the program.
+     * @param top - the head of the AST
+     */
+    public void fold(TranNode top) {
+        for (var c : top.Classes) {
+            types.startClass(c);
+            for (var m : c.methods) {
+                if (m instanceof BuiltInMethodDeclarationNode)
+                    continue;
+                types.startFrame();
+                addLocals(m.parameters);
+                addLocals(m.returns);
+                addLocals(m.locals);
+                foldStatements(m.statements);
+            }
+            for (var k : c.constructors) {
+                types.startFrame();
+                addLocals(k.parameters);
+                addLocals(k.locals);
+                foldStatements(k.statements);
+            }
+        }
+    }
+
+    private void addLocals(List<VariableDeclarationNode> declarations) {
+        for (var d : declarations) {
+            types.addLocal(d.name, d.type);
+            if (d.initializer.isPresent())
+                d.initializer = Optional.of(fold(d.initializer.get()));
+        }
+    }
+
+    private void foldStatements(List<StatementNode> statements) {
+        for (var s : statements)
+            s.accept(this);
+    }
+
+    /**
+     * @return the expression to use in place of e (maybe e itself)
+     */
+    private ExpressionNode fold(ExpressionNode e) {
+        return e.accept(this);
+    }
+
+    /**
+     * @return expressions, or a new list if any of them folded (the list might not be changeable - see AstCompactor)
+     */
+    private List<ExpressionNode> foldAll(List<ExpressionNode> expressions) {
+        List<ExpressionNode> folded = expressions;
+        for (int i = 0; i < expressions.size(); i++) {
+            var e = fold(expressions.get(i));
+            if (e != expressions.get(i)) {
+                if (folded == expressions)
+                    folded = new ArrayList<>(expressions);
+                folded.set(i, e);
+            }
+        }
+        return folded;
+    }
+
+    @Override
+    public Void visit(AssignmentNode a) {
+        a.expression = fold(a.expression);
+        return null;
+    }
+
+    @Override
+    public Void visit(MethodCallStatementNode mc) {
+        mc.parameters = foldAll(mc.parameters);
+        return null;
+    }
+
+    @Override
+    public Void visit(IfNode i) {
+        i.condition = fold(i.condition);
+        foldStatements(i.statements);
+        i.elseStatement.ifPresent(e -> foldStatements(e.statements));
+        return null;
+    }
+
+    @Override
+    public Void visit(LoopNode l) {
+        l.expression = fold(l.expression);
+        foldStatements(l.statements);
+        return null;
+    }
+
+    @Override
+    public Void visit(ErrorNode e) {
+        return null;
+    }
+
+    @Override
+    public ExpressionNode visit(VariableReferenceNode v) {
+        return v;
+    }
+
+    @Override
+    public ExpressionNode visit(NumericLiteralNode n) {
+        return n;
+    }
+
+    @Override
+    public ExpressionNode visit(StringLiteralNode s) {
+        return s;
+    }
+
+    @Override
+    public ExpressionNode visit(CharLiteralNode c) {
+        return c;
+    }
+
+    @Override
+    public ExpressionNode visit(BooleanLiteralNode b) {
+        return b;
+    }
+
+    @Override
+    public ExpressionNode visit(MathOpNode m) {
+        m.left = fold(m.left);
+        m.right = fold(m.right);
+        var left = value(m.left);
+        var right = value(m.right);
+        if (left != null && right != null) {
+            try {
+                return literal(Operations.math(m.op, left, right));
+            } catch (RuntimeException e) {
+                return m; // leave it to fail when it runs
+            }
+        }
+
+        switch (m.op) {
+            case multiply -> {
+                if (isNumber(m.left) && isOne(m.right))
+                    return m.left;
+                if (isOne(m.left) && isNumber(m.right))
+                    return m.right;
+            }
+            case divide -> {
+                if (isNumber(m.left) && isOne(m.right))
+                    return m.left;
+            }
+            case subtract -> {
+                if (isNumber(m.left) && isZero(m.right))
+                    return m.left;
+            }
+            case add -> {
+                // (x + "a") + "b" is x + "ab"
+                if (right instanceof StringIDT && m.left instanceof MathOpNode inner && inner.op == MathOpNode.MathOperations.add
+                        && value(inner.right) instanceof StringIDT) {
+                    inner.right = literal(Operations.math(MathOpNode.MathOperations.add, value(inner.right), right));
+                    return inner;
+                }
+            }
+            default -> { }
+        }
+        return m;
+    }
+
+    @Override
+    public ExpressionNode visit(CompareNode c) {
+        c.left = fold(c.left);
+        c.right = fold(c.right);
+        var left = value(c.left);
+        var right = value(c.right);
+        if (left != null && right != null) {
+            try {
+                var b = new BooleanLiteralNode();
+                b.value = Operations.compare(c.op, left, right);
+                return b;
+            } catch (RuntimeException e) {
+                return c;
+            }
+        }
+        return c;
+    }
+
+    @Override
+    public ExpressionNode visit(BooleanOpNode b) {
+        b.left = fold(b.left);
+        b.right = fold(b.right);
+        if (b.left instanceof BooleanLiteralNode l && b.right instanceof BooleanLiteralNode r) {
+            var folded = new BooleanLiteralNode();
+            folded.value = b.op == BooleanOpNode.BooleanOperations.and ? l.value & r.value : l.value | r.value;
+            return folded;
+        }
+        return b;
+    }
+
+    @Override
+    public ExpressionNode visit(NotOpNode n) {
+        n.left = fold(n.left);
+        if (n.left instanceof BooleanLiteralNode l) {
+            var folded = new BooleanLiteralNode();
+            folded.value = !l.value;
+            return folded;
+        }
+        if (n.left instanceof NotOpNode inner && isBoolean(inner.left))
+            return inner.left;
+        return n;
+    }
+
+    @Override
+    public ExpressionNode visit(MethodCallExpressionNode mce) {
+        mce.parameters = foldAll(mce.parameters);
+        return mce;
+    }
+
+    @Override
+    public ExpressionNode visit(NewNode nn) {
+        nn.parameters = foldAll(nn.parameters);
+        return nn;
+    }
+
+    /**
+     * The value of a literal, or null if e isn't one.
+     */
+    private static InterpreterDataType value(ExpressionNode e) {
+        if (e instanceof NumericLiteralNode n)
+            return n.isInteger ? new NumberIDT(n.integerValue) : new NumberIDT(n.value);
+        if (e instanceof StringLiteralNode s)
+            return new StringIDT(s.value);
+        if (e instanceof CharLiteralNode c)
+            return new CharIDT(c.value);
+        if (e instanceof BooleanLiteralNode b)
+            return new BooleanIDT(b.value);
+        return null;
+    }
+
+    /**
+     * The literal for a value that Operations worked out.
+     */
+    private static ExpressionNode literal(InterpreterDataType value) {
+        if (value instanceof NumberIDT n) {
+            var literal = new NumericLiteralNode();
+            literal.value = n.Value;
+            literal.isInteger = n.isInteger;
+            literal.integerValue = n.IntValue;
+            return literal;
+        }
+        if (value instanceof StringIDT s) {
+            var literal = new StringLiteralNode();
+            literal.value = s.Value;
+            return literal;
+        }
+        var literal = new BooleanLiteralNode();
+        literal.value = Operations.asBoolean(value).Value;
+        return literal;
+    }
+
+    // Only an integer 1 or 0 leaves x as it was - x * 1.0 turns an integer x into a double
+
+    private static boolean isOne(ExpressionNode e) {
+        return e instanceof NumericLiteralNode n && n.isInteger && n.integerValue == 1;
+    }
+
+    private static boolean isZero(ExpressionNode e) {
+        return e instanceof NumericLiteralNode n && n.isInteger && n.integerValue == 0;
+    }
+
+    /**
+     * Is e certain to be a number (or to fail) when it runs? Math other than + can only make a number.
+     */
+    private boolean isNumber(ExpressionNode e) {
+        if (e instanceof NumericLiteralNode)
+            return true;
+        if (e instanceof VariableReferenceNode v)
+            return "number".equals(types.variableType(v.name));
+        if (e instanceof MathOpNode m)
+            return m.op != MathOpNode.MathOperations.add || (isNumber(m.left) && isNumber(m.right));
+        return false;
+    }
+
+    /**
+     * Is e certain to be a boolean (or to fail) when it runs?
+     */
+    private boolean isBoolean(ExpressionNode e) {
+        if (e instanceof VariableReferenceNode v)
+            return "boolean".equals(types.variableType(v.name));
+        return e instanceof BooleanLiteralNode || e instanceof CompareNode || e instanceof BooleanOpNode || e instanceof NotOpNode;
+    }
+}
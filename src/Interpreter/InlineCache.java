@@ -0,0 +1,81 @@
+package Interpreter;
+
+import AST.ClassNode;
+import AST.MethodDeclarationNode;
+
+import java.util.List;
+
+/**
+ * Remembers, for one call site, which method each class it has been called on resolved to. Most call sites only
+ * ever see one class (monomorphic), some see a few (polymorphic); once a call site has seen more than `size`
+ * classes it is megamorphic and stops remembering, always going to the class's MethodTable instead.
+ *
+ * Between overloads the values decide, so an entry is for a class and the kinds of the values passed - the IDT class
+ * of a simple value, the class of an object (or of the object a reference refers to). Values of the same kinds always
+ * match the same method, so a remembered method needs no checks at all.
+ */
+public class InlineCache {
+    private static final int size = 4;
+    private static final Object nullReference = new Object(); // the kind of an empty reference
+
+    private final ClassNode[] classes = new ClassNode[size];
+    private final Object[][] kinds = new Object[size][];
+    private final MethodDeclarationNode[] methods = new MethodDeclarationNode[size];
+    private int count = 0;
+    private boolean megamorphic = false;
+
+    /**
+     * @return the method this call site resolved to last time it was called on this class with values of these kinds,
+     * or null (always null once the call site is megamorphic)
+     */
+    public MethodDeclarationNode lookup(ClassNode c, List<InterpreterDataType> parameters) {
+        if (megamorphic)
+            return null;
+        for (int i = 0; i < count; i++) {
+            if (classes[i] == c && sameKinds(kinds[i], parameters))
+                return methods[i];
+        }
+        return null;
+    }
+
+    /**
+     * Remember what a call that lookup() didn't know resolved to.
+     */
+    public void remember(ClassNode c, List<InterpreterDataType> parameters, MethodDeclarationNode m) {
+        if (count == size) {
+            megamorphic = true;
+            return;
+        }
+        var entry = new Object[parameters.size()];
+        for (int i = 0; i < entry.length; i++)
+            entry[i] = kind(parameters.get(i));
+        classes[count] = c;
+        kinds[count] = entry;
+        methods[count++] = m;
+    }
+
+    public boolean isMegamorphic() {
+        return megamorphic;
+    }
+
+    private static boolean sameKinds(Object[] entry, List<InterpreterDataType> parameters) {
+        if (entry.length != parameters.size())
+            return false;
+        for (int i = 0; i < entry.length; i++) {
+            if (entry[i] != kind(parameters.get(i)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * What decides whether a value fits a parameter type (see Interpreter.typeMatchToIDT()).
+     */
+    private static Object kind(InterpreterDataType value) {
+        if (value instanceof ObjectIDT o)
+            return o.astNode;
+        if (value instanceof ReferenceIDT r)
+            return r.refersTo.isPresent() ? r.refersTo.get().astNode : nullReference;
+        return value.getClass();
+    }
+}
@@ -0,0 +1,547 @@
+package Interpreter;
+
+import AST.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * An optimization pass to run after parsing (before the Interpreter is made): replaces a call to a small method with
+ * a copy of the method's statements, so that the call doesn't have to find the method, build a parameter list, make a
+ * frame and build a return list just to run a getter like getAverage().
+ *
+ * The callee's parameters, returns and locals become new locals of the caller, named "average$1" and so on (no Tran
+ * name has a $ in it). The arguments are assigned to the parameters first, and the returns are assigned to the call's
+ * return values last - the same copies that a call makes. A return or local that the callee might read before it
+ * assigns it is first set back to its starting value, because a call would have made it new.
+ *
+ * Only calls that are certain to mean one particular method are inlined:
+ * someMethod(...) in a method or constructor of an object - the class's only someMethod with that many parameters
+ * SomeClass.someMethod(...) - that class's only someMethod with that many parameters, and it is shared
+ * and the arguments are numbers, strings, booleans or characters whose types match the parameters.
+ * The callee must be small (maximumStatements, ifs included), call nothing (no method calls, no "new", no loops - a
+ * loop might call an iterator), and every member it uses must be one the caller sees under the same name (a shared
+ * callee can't use any). Calls inside expressions are left alone - they would have to be pulled out into statements.
+ */
+public class Inliner {
+    /** The most statements (counting the ones in ifs) a method can have and still be inlined */
+    public static final int maximumStatements = 8;
+
+    private final HashMap<String, ClassNode> classes = new HashMap<>();
+    private final HashMap<ClassNode, MethodTable> methodTables = new HashMap<>();
+
+    // The method or constructor being inlined into
+    private ClassNode caller;
+    private boolean hasObject;
+    private final TypeEnvironment types = new TypeEnvironment();
+    private final ArrayList<VariableDeclarationNode> added = new ArrayList<>();
+    private int inlined;
+
+    /**
+     * Inline calls in every method and constructor of every class in the program.
+     * @param top - the head of the AST
+     */
+    public void inline(TranNode top) {
+        for (var c : top.Classes) {
+            classes.putIfAbsent(c.name, c);
+            methodTables.put(c, new MethodTable(c));
+        }
+        for (var c : top.Classes) {
+            caller = c;
+            types.startClass(c);
+            for (var m : c.methods) {
+                if (m instanceof BuiltInMethodDeclarationNode)
+                    continue;
+                hasObject = !m.isShared;
+                startFrame(m.parameters, m.returns, m.locals);
+                m.statements = block(m.statements);
+                m.locals = withAdded(m.locals);
+            }
+            for (var k : c.constructors) {
+                hasObject = true;
+                startFrame(k.parameters, k.locals);
+                k.statements = block(k.statements);
+                k.locals = withAdded(k.locals);
+            }
+        }
+    }
+
+    @SafeVarargs
+    private void startFrame(List<VariableDeclarationNode>... declarations) {
+        types.startFrame();
+        added.clear();
+        inlined = 0;
+        for (var list : declarations)
+            types.addLocals(list);
+    }
+
+    private List<VariableDeclarationNode> withAdded(List<VariableDeclarationNode> locals) {
+        if (added.isEmpty())
+            return locals;
+        var all = new ArrayList<>(locals);
+        all.addAll(added);
+        return all;
+    }
+
+    /**
+     * @return a new list of the statements, with the calls that can be inlined replaced
+     */
+    private List<StatementNode> block(List<StatementNode> statements) {
+        var result = new Block(statements.size());
+        for (var s : statements)
+            s.accept(result);
+        return result.statements;
+    }
+
+    /**
+     * Collects the new statements of a block - each statement with the blocks inside it done, or the statements a
+     * call expands to.
+     */
+    private class Block implements StatementVisitor<Void> {
+        final ArrayList<StatementNode> statements;
+
+        Block(int size) {
+            statements = new ArrayList<>(size);
+        }
+
+        @Override
+        public Void visit(AssignmentNode node) {
+            statements.add(node);
+            return null;
+        }
+
+        @Override
+        public Void visit(MethodCallStatementNode node) {
+            var callee = inlinable(node);
+            if (callee != null)
+                statements.addAll(expand(node, callee));
+            else
+                statements.add(node);
+            return null;
+        }
+
+        @Override
+        public Void visit(IfNode node) {
+            node.statements = block(node.statements);
+            node.elseStatement.ifPresent(e -> e.statements = block(e.statements));
+            statements.add(node);
+            return null;
+        }
+
+        @Override
+        public Void visit(LoopNode node) {
+            node.statements = block(node.statements);
+            statements.add(node);
+            return null;
+        }
+
+        @Override
+        public Void visit(ErrorNode node) {
+            statements.add(node);
+            return null;
+        }
+    }
+
+    /**
+     * The method that mc is certain to call, if it can be inlined - null if not.
+     */
+    private MethodDeclarationNode inlinable(MethodCallStatementNode mc) {
+        ClassNode target;
+        if (mc.objectName.isEmpty()) {
+            if (!hasObject)
+                return null;
+            target = caller;
+        } else {
+            String name = mc.objectName.get();
+            if (types.isDeclared(name))
+                return null; // a call on an object
+            target = classes.get(name);
+            if (target == null)
+                return null;
+        }
+        var candidates = methodTables.get(target).candidates(mc.methodName, mc.parameters.size());
+        if (candidates.size() != 1)
+            return null;
+        var m = candidates.get(0);
+        if (m instanceof BuiltInMethodDeclarationNode || (mc.objectName.isPresent() && !m.isShared))
+            return null;
+        if (m.parameters.size() != mc.parameters.size() || mc.returnValues.size() > m.returns.size())
+            return null;
+        for (int i = 0; i < m.parameters.size(); i++) {
+            String type = m.parameters.get(i).type;
+            if (!isSimple(type) || !type.equals(types.typeOf(mc.parameters.get(i))))
+                return null;
+        }
+
+        var frame = new HashSet<String>();
+        for (var list : List.of(m.parameters, m.returns, m.locals)) {
+            for (var d : list)
+                frame.add(d.name);
+        }
+        var uses = new Uses();
+        if (!uses.ofLeaf(m.statements) || uses.statements > maximumStatements)
+            return null;
+        for (var name : uses.names) {
+            if (frame.contains(name))
+                continue;
+            // A member - the same one only if the call has an object (this one) and the caller doesn't hide it
+            if (mc.objectName.isPresent() || types.isLocal(name) || !types.isMember(name))
+                return null;
+        }
+        for (var list : List.of(m.returns, m.locals)) {
+            for (var d : list) {
+                if (!isSimple(d.type) && !isAssignedBeforeRead(d.name, m.statements))
+                    return null; // there is no literal to reset it with
+            }
+        }
+        return m;
+    }
+
+    /**
+     * The statements that do what the call mc to m does.
+     */
+    private List<StatementNode> expand(MethodCallStatementNode mc, MethodDeclarationNode m) {
+        inlined++;
+        var renames = new HashMap<String, String>();
+        for (var list : List.of(m.parameters, m.returns, m.locals)) {
+            for (var d : list) {
+                String name = d.name + "$" + inlined;
+                while (types.isDeclared(name))
+                    name = name + "$";
+                var declaration = new VariableDeclarationNode();
+                declaration.type = d.type;
+                declaration.name = name;
+                added.add(declaration);
+                types.addLocal(name, d.type);
+                renames.put(d.name, name);
+            }
+        }
+
+        var statements = new ArrayList<StatementNode>();
+        for (int i = 0; i < m.parameters.size(); i++)
+            statements.add(assign(renames.get(m.parameters.get(i).name), mc.parameters.get(i)));
+        for (var list : List.of(m.returns, m.locals)) {
+            for (var d : list) {
+                if (!isAssignedBeforeRead(d.name, m.statements))
+                    statements.add(assign(renames.get(d.name), startingValue(d.type)));
+            }
+        }
+        var copier = new Copier(renames);
+        for (var s : m.statements)
+            statements.add(s.accept(copier));
+        for (int i = 0; i < mc.returnValues.size(); i++) {
+            var returned = new VariableReferenceNode();
+            returned.name = renames.get(m.returns.get(i).name);
+            statements.add(assign(mc.returnValues.get(i).name, returned));
+        }
+        return statements;
+    }
+
+    private static AssignmentNode assign(String target, ExpressionNode expression) {
+        var assignment = new AssignmentNode();
+        assignment.target = new VariableReferenceNode();
+        assignment.target.name = target;
+        assignment.expression = expression;
+        return assignment;
+    }
+
+    private static boolean isSimple(String type) {
+        return type.equals("number") || type.equals("string") || type.equals("boolean") || type.equals("character");
+    }
+
+    /**
+     * The literal for a simple type's starting value - the same values as Interpreter.instantiate()
+     */
+    private static ExpressionNode startingValue(String type) {
+        switch (type) {
+            case "number" -> {
+                var zero = new NumericLiteralNode();
+                zero.isInteger = true;
+                return zero;
+            }
+            case "string" -> {
+                var empty = new StringLiteralNode();
+                empty.value = "";
+                return empty;
+            }
+            case "boolean" -> {
+                return new BooleanLiteralNode();
+            }
+            default -> {
+                var space = new CharLiteralNode();
+                space.value = ' ';
+                return space;
+            }
+        }
+    }
+
+    /**
+     * Is name certain to be assigned before anything reads it (or never read at all)? Only an assignment at the top
+     * level of the block counts - one in an if might not happen.
+     */
+    private static boolean isAssignedBeforeRead(String name, List<StatementNode> statements) {
+        for (var s : statements) {
+            var uses = new Uses();
+            if (s instanceof AssignmentNode a) {
+                a.expression.accept(uses);
+                if (uses.names.contains(name))
+                    return false;
+                if (a.target.name.equals(name))
+                    return true;
+            } else {
+                uses.ofLeaf(List.of(s));
+                if (uses.names.contains(name))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The variables that statements use (assigned or read), and how many statements there are - if they are only
+     * assignments and ifs that call nothing.
+     */
+    private static class Uses implements StatementVisitor<Boolean>, ExpressionVisitor<Boolean> {
+        final HashSet<String> names = new HashSet<>();
+        int statements;
+
+        /**
+         * @return false if there is a statement or expression that a leaf can't have
+         */
+        boolean ofLeaf(List<StatementNode> block) {
+            for (var s : block) {
+                statements++;
+                if (!s.accept(this))
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        public Boolean visit(AssignmentNode node) {
+            names.add(node.target.name);
+            return node.expression.accept(this);
+        }
+
+        @Override
+        public Boolean visit(IfNode node) {
+            if (!node.condition.accept(this) || !ofLeaf(node.statements))
+                return false;
+            return node.elseStatement.isEmpty() || ofLeaf(node.elseStatement.get().statements);
+        }
+
+        @Override
+        public Boolean visit(MethodCallStatementNode node) {
+            return false;
+        }
+
+        @Override
+        public Boolean visit(LoopNode node) {
+            return false;
+        }
+
+        @Override
+        public Boolean visit(ErrorNode node) {
+            return false;
+        }
+
+        @Override
+        public Boolean visit(VariableReferenceNode node) {
+            names.add(node.name);
+            return true;
+        }
+
+        @Override
+        public Boolean visit(NumericLiteralNode node) {
+            return true;
+        }
+
+        @Override
+        public Boolean visit(StringLiteralNode node) {
+            return true;
+        }
+
+        @Override
+        public Boolean visit(CharLiteralNode node) {
+            return true;
+        }
+
+        @Override
+        public Boolean visit(BooleanLiteralNode node) {
+            return true;
+        }
+
+        @Override
+        public Boolean visit(MathOpNode node) {
+            return node.left.accept(this) & node.right.accept(this);
+        }
+
+        @Override
+        public Boolean visit(CompareNode node) {
+            return node.left.accept(this) & node.right.accept(this);
+        }
+
+        @Override
+        public Boolean visit(BooleanOpNode node) {
+            return node.left.accept(this) & node.right.accept(this);
+        }
+
+        @Override
+        public Boolean visit(NotOpNode node) {
+            return node.left.accept(this);
+        }
+
+        @Override
+        public Boolean visit(MethodCallExpressionNode node) {
+            return false;
+        }
+
+        @Override
+        public Boolean visit(NewNode node) {
+            return false;
+        }
+    }
+
+    /**
+     * Copies a leaf method's statements (see Uses), renaming its variables. Every inlined call gets its own copy -
+     * the Resolver fills in each node for where it is.
+     */
+    private static class Copier implements StatementVisitor<StatementNode>, ExpressionVisitor<ExpressionNode> {
+        private final HashMap<String, String> renames;
+
+        Copier(HashMap<String, String> renames) {
+            this.renames = renames;
+        }
+
+        private List<StatementNode> copy(List<StatementNode> statements) {
+            var copies = new ArrayList<StatementNode>(statements.size());
+            for (var s : statements)
+                copies.add(s.accept(this));
+            return copies;
+        }
+
+        private VariableReferenceNode rename(VariableReferenceNode v) {
+            var copy = new VariableReferenceNode();
+            copy.name = renames.getOrDefault(v.name, v.name);
+            return copy;
+        }
+
+        @Override
+        public StatementNode visit(AssignmentNode node) {
+            var copy = new AssignmentNode();
+            copy.target = rename(node.target);
+            copy.expression = node.expression.accept(this);
+            return copy;
+        }
+
+        @Override
+        public StatementNode visit(IfNode node) {
+            var copy = new IfNode();
+            copy.condition = node.condition.accept(this);
+            copy.statements = copy(node.statements);
+            if (node.elseStatement.isPresent()) {
+                var elseCopy = new ElseNode();
+                elseCopy.statements = copy(node.elseStatement.get().statements);
+                copy.elseStatement = Optional.of(elseCopy);
+            }
+            return copy;
+        }
+
+        @Override
+        public StatementNode visit(MethodCallStatementNode node) {
+            throw new IllegalStateException("Only leaf methods are inlined");
+        }
+
+        @Override
+        public StatementNode visit(LoopNode node) {
+            throw new IllegalStateException("Only leaf methods are inlined");
+        }
+
+        @Override
+        public StatementNode visit(ErrorNode node) {
+            throw new IllegalStateException("Only leaf methods are inlined");
+        }
+
+        @Override
+        public ExpressionNode visit(VariableReferenceNode node) {
+            return rename(node);
+        }
+
+        @Override
+        public ExpressionNode visit(NumericLiteralNode node) {
+            var copy = new NumericLiteralNode();
+            copy.value = node.value;
+            copy.isInteger = node.isInteger;
+            copy.integerValue = node.integerValue;
+            return copy;
+        }
+
+        @Override
+        public ExpressionNode visit(StringLiteralNode node) {
+            var copy = new StringLiteralNode();
+            copy.value = node.value;
+            return copy;
+        }
+
+        @Override
+        public ExpressionNode visit(CharLiteralNode node) {
+            var copy = new CharLiteralNode();
+            copy.value = node.value;
+            return copy;
+        }
+
+        @Override
+        public ExpressionNode visit(BooleanLiteralNode node) {
+            var copy = new BooleanLiteralNode();
+            copy.value = node.value;
+            return copy;
+        }
+
+        @Override
+        public ExpressionNode visit(MathOpNode node) {
+            var copy = new MathOpNode();
+            copy.op = node.op;
+            copy.left = node.left.accept(this);
+            copy.right = node.right.accept(this);
+            return copy;
+        }
+
+        @Override
+        public ExpressionNode visit(CompareNode node) {
+            var copy = new CompareNode();
+            copy.op = node.op;
+            copy.left = node.left.accept(this);
+            copy.right = node.right.accept(this);
+            return copy;
+        }
+
+        @Override
+        public ExpressionNode visit(BooleanOpNode node) {
+            var copy = new BooleanOpNode();
+            copy.op = node.op;
+            copy.left = node.left.accept(this);
+            copy.right = node.right.accept(this);
+            return copy;
+        }
+
+        @Override
+        public ExpressionNode visit(NotOpNode node) {
+            var copy = new NotOpNode();
+            copy.left = node.left.accept(this);
+            return copy;
+        }
+
+        @Override
+        public ExpressionNode visit(MethodCallExpressionNode node) {
+            throw new IllegalStateException("Only leaf methods are inlined");
+        }
+
+        @Override
+        public ExpressionNode visit(NewNode node) {
+            throw new IllegalStateException("Only leaf methods are inlined");
+        }
+    }
+}
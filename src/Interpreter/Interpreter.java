@@ -1,21 +1,85 @@
 package Interpreter;
 
 import AST.*;
+import Interpreter.jit.Jit;
+import Interpreter.vm.CodeCache;
+import Interpreter.vm.Host;
+import Interpreter.vm.VM;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 
-public class Interpreter {
+public class Interpreter implements Host {
+    private final TranNode top;
+    private final Optional<CodeCache> codeCache;
+    private VM vm; // made by vm() the first time compiled code runs
+    private final Jit jit = new Jit(Jit.defaultHotThreshold);
+    private final HashMap<String, ClassNode> classesByName = new HashMap<>();
+    private final HashMap<ClassNode, MethodTable> methodTables = new HashMap<>();
+    private final HashMap<ClassNode, Shape> shapes = new HashMap<>();
 
     /** Constructor - get the interpreter ready to run. Set members from parameters and "prepare" the class.
      *
      * Store the tran node.
-     * Add any built-in methods to the AST
+     * Index the classes by name (and the built-in classes, which aren't added to the AST) and build each class's MethodTable and Shape
+     * Run the resolution pass, so that every variable reference knows its slot before we start running
      * @param top - the head of the AST
      */
     public Interpreter(TranNode top) {
+        this(top, Optional.empty());
+    }
+
+    /**
+     * Make an interpreter that compiles methods and constructors to bytecode and runs them on the VM instead of walking the AST.
+     * @param top - the head of the AST
+     * @param codeCache - where compiled code is kept; share it between interpreters for the same TranNode to only compile once
+     */
+    public Interpreter(TranNode top, CodeCache codeCache) {
+        this(top, Optional.of(codeCache));
+    }
+
+    private Interpreter(TranNode top, Optional<CodeCache> codeCache) {
+        this.top = top;
+        this.codeCache = codeCache;
+
+        for (var c : top.Classes)
+            addClass(c);
+        addClass(console());
+        new Resolver().resolve(top);
+    }
+
+    /**
+     * The VM that runs compiled code. It is made here rather than in the constructor, so the VM never sees a half-built
+     * interpreter.
+     */
+    private VM vm() {
+        if (vm == null)
+            vm = new VM(this);
+        return vm;
+    }
+
+    /**
+     * The built-in "console" class. It lives only in the interpreter's own index - the AST belongs to the caller, who
+     * might make more than one interpreter for it (or keep it, see AstCompactor).
+     */
+    private static ClassNode console() {
+        var console = new ClassNode();
+        console.name = "console";
+        var write = new ConsoleWrite();
+        write.name = "write";
+        write.isShared = true;
+        write.isVariadic = true;
+        console.methods.add(write);
+        return console;
+    }
+
+    private void addClass(ClassNode c) {
+        classesByName.putIfAbsent(c.name, c);
+        methodTables.put(c, new MethodTable(c));
+        shapes.put(c, new Shape(c));
     }
 
     /**
@@ -28,33 +92,41 @@ public class Interpreter {
      */
     public void start() {
         // Find the "start" method
-	
+        for (var c : top.Classes) {
+            for (var m : c.methods) {
+                if (m.isShared && !m.isPrivate && m.name.equals("start") && m.parameters.isEmpty()) {
+                    interpretMethodCall(Optional.empty(), m, List.of());
+                    return;
+                }
+            }
+        }
         throw new RuntimeException("No 'start' method found");
     }
 
     //              Running Methods
 
     /**
-     * Find the method (local to this class, shared (like Java's system.out.print), or a method on another class)
-     * Evaluate the parameters to have a list of values
-     * Use interpretMethodCall() to actually run the method.
-     *
-     * Call GetParameters() to get the parameter value list
-     * Find the method. This is tricky - there are several cases:
-     * someLocalMethod() - has NO object name. Look in "object"
-     * console.write() - the objectName is a CLASS and the method is shared
-     * bestStudent.getGPA() - the objectName is a local or a member
-     *
-     * Once you find the method, call InterpretMethodCall() on it. Return the list that it returns.
-     * Throw an exception if we can't find a match.
+     * The second half of findMethodForMethodCallAndRunIt(), for when the parameters are already evaluated (the VM evaluates them itself).
      * @param object - the object we are inside right now (might be empty)
      * @param locals - the current local variables
      * @param mc - the method call
+     * @param parameters - the parameter values for this method call
      * @return - the return values
      */
-    private List<InterpreterDataType> findMethodForMethodCallAndRunIt(Optional<ObjectIDT> object, HashMap<String, InterpreterDataType> locals, MethodCallStatementNode mc) {
-        List<InterpreterDataType> result = null;
-        return result;
+    @Override
+    public List<InterpreterDataType> callMethod(Optional<ObjectIDT> object, InterpreterDataType[] locals, MethodCallStatementNode mc, List<InterpreterDataType> parameters) {
+        if (mc.objectName.isEmpty()) {
+            if (object.isEmpty())
+                throw new RuntimeException("Unable to resolve method call " + mc);
+            return interpretMethodCall(object, getMethodFromObject(object.get(), mc, parameters), parameters);
+        }
+        if (mc.objectReference != null) {
+            var target = derefObject(findVariable(mc.objectReference, locals, object), mc);
+            return interpretMethodCall(Optional.of(target), getMethodFromObject(target, mc, parameters), parameters);
+        }
+        var classNode = getClassByName(mc.objectName.get())
+                .orElseThrow(() -> new RuntimeException("Unable to resolve method call " + mc));
+        return interpretMethodCall(Optional.empty(), findMethod(classNode, mc, parameters, true), parameters);
     }
 
     /**
@@ -63,51 +135,124 @@ public class Interpreter {
      * in start() and dealing with loops with iterator objects, for example.
      *
      * Check to see if "m" is a built-in. If so, call Execute() on it and return
-     * Make local variables, per "m"
+     * Make the frame for local variables, per "m" - parameters, then returns, then locals (see Resolver)
      * If the number of passed in values doesn't match m's "expectations", throw
-     * Add the parameters by name to locals.
-     * Call InterpretStatementBlock
-     * Build the return list - find the names from "m", then get the values for those names and add them to the list.
+     * Copy the parameters into their slots.
+     * Call InterpretStatementBlock (or run the compiled code on the VM, if we are compiling)
+     * Once a method is hot, the Jit may have turned it into JVM code - if so, run that instead (unless it gives up).
+     * Build the return list - the return values are the slots right after the parameters.
      * @param object - The object this method is being called on (might be empty for shared)
      * @param m - Which method is being called
      * @param values - The values to be passed in
      * @return the returned values from the method
      */
     private List<InterpreterDataType> interpretMethodCall(Optional<ObjectIDT> object, MethodDeclarationNode m, List<InterpreterDataType> values) {
+        if (m instanceof BuiltInMethodDeclarationNode builtIn)
+            return builtIn.Execute(values);
+        if (values.size() != m.parameters.size())
+            throw new RuntimeException("Method " + m.name + " expects " + m.parameters.size() + " parameters but was passed " + values.size());
+
+        var jitted = jit.called(m);
+        var compiled = codeCache.map(cache -> cache.get(m));
+        var locals = new InterpreterDataType[compiled.isPresent() ? compiled.get().registerCount : Resolver.frameSize(m)];
+        int slot = 0;
+        for (int i = 0; i < m.parameters.size(); i++) {
+            locals[slot] = instantiate(m.parameters.get(i).type);
+            locals[slot++].Assign(values.get(i));
+        }
+        for (var r : m.returns)
+            locals[slot++] = instantiate(r.type);
+        for (var l : m.locals)
+            locals[slot++] = instantiate(l.type);
+
+        if (jitted == null || !jit.run(m, jitted, locals)) {
+            if (compiled.isPresent())
+                vm().run(compiled.get(), object, locals);
+            else
+                interpretStatementBlock(object, m.statements, locals);
+        }
+
         var retVal = new LinkedList<InterpreterDataType>();
+        for (int i = 0; i < m.returns.size(); i++)
+            retVal.add(locals[m.parameters.size() + i]);
         return retVal;
     }
 
     //              Running Constructors
 
+    /**
+     * Make a new object for a "new" expression: find the class, instantiate its members and run the constructor.
+     * @param nn - the "new" expression
+     * @param parameters - the (already evaluated) parameter values
+     * @return the new object
+     */
+    @Override
+    public ObjectIDT construct(NewNode nn, List<InterpreterDataType> parameters) {
+        var classNode = getClassByName(nn.className)
+                .orElseThrow(() -> new RuntimeException("Unable to find class " + nn.className));
+        var shape = shapes.get(classNode);
+        var newOne = new ObjectIDT(classNode, shape);
+        for (int i = 0; i < shape.size(); i++)
+            newOne.fields[i] = instantiate(shape.types[i]);
+        findConstructorAndRunIt(nn, parameters, newOne);
+        return newOne;
+    }
+
     /**
      * This is a special case of the code for methods. Just different enough to make it worthwhile to split it out.
      *
-     * Call GetParameters() to populate a list of IDT's
-     * Call GetClassByName() to find the class for the constructor
-     * If we didn't find the class, throw an exception
-     * Find a constructor that is a good match - use DoesConstructorMatch()
+     * Find a constructor that is a good match - use DoesConstructorMatch() (unless the TypeChecker already found it)
      * Call InterpretConstructorCall() on the good match
-     * @param callerObj - the object that we are inside when we called the constructor
-     * @param locals - the current local variables (used to fill parameters)
-     * @param mc  - the method call for this construction
+     * A class with no constructors can only be made with no parameters.
+     * @param nn  - the "new" expression for this construction
+     * @param parameters - the parameter values
      * @param newOne - the object that we just created that we are calling the constructor for
      */
-    private void findConstructorAndRunIt(Optional<ObjectIDT> callerObj, HashMap<String, InterpreterDataType> locals, MethodCallStatementNode mc, ObjectIDT newOne) {
+    private void findConstructorAndRunIt(NewNode nn, List<InterpreterDataType> parameters, ObjectIDT newOne) {
+        if (newOne.astNode.constructors.isEmpty() && parameters.isEmpty())
+            return;
+        if (nn.checkedConstructor != null) {
+            interpretConstructorCall(newOne, nn.checkedConstructor, parameters);
+            return;
+        }
+        for (var c : newOne.astNode.constructors) {
+            if (doesConstructorMatch(c, nn, parameters)) {
+                interpretConstructorCall(newOne, c, parameters);
+                return;
+            }
+        }
+        throw new RuntimeException("Unable to find a constructor for " + nn);
     }
 
     /**
      * Similar to interpretMethodCall, but "just different enough" - for example, constructors don't return anything.
      *
-     * Creates local variables (as defined by the ConstructorNode), calls Instantiate() to do the creation
+     * Creates the frame (as defined by the ConstructorNode - parameters, then locals), calls Instantiate() to do the creation
      * Checks to ensure that the right number of parameters were passed in, if not throw.
-     * Adds the parameters (with the names from the ConstructorNode) to the locals.
+     * Copies the parameters into their slots.
      * Calls InterpretStatementBlock
      * @param object - the object that we allocated
      * @param c - which constructor is being called
      * @param values - the parameter values being passed to the constructor
      */
     private void interpretConstructorCall(ObjectIDT object, ConstructorNode c, List<InterpreterDataType> values) {
+        if (values.size() != c.parameters.size())
+            throw new RuntimeException("Constructor expects " + c.parameters.size() + " parameters but was passed " + values.size());
+
+        var compiled = codeCache.map(cache -> cache.get(c));
+        var locals = new InterpreterDataType[compiled.isPresent() ? compiled.get().registerCount : Resolver.frameSize(c)];
+        int slot = 0;
+        for (int i = 0; i < c.parameters.size(); i++) {
+            locals[slot] = instantiate(c.parameters.get(i).type);
+            locals[slot++].Assign(values.get(i));
+        }
+        for (var l : c.locals)
+            locals[slot++] = instantiate(l.type);
+
+        if (compiled.isPresent())
+            vm().run(compiled.get(), Optional.of(object), locals);
+        else
+            interpretStatementBlock(Optional.of(object), c.statements, locals);
     }
 
     //              Running Instructions
@@ -117,9 +262,9 @@ public class Interpreter {
      * Blocks, by definition, do ever statement, so iterating over the statements makes sense.
      *
      * For each statement in statements:
-     * check the type:
+     * check the type (each statement accept()s a Frame, which has a visit() for each type):
      *      For AssignmentNode, FindVariable() to get the target. Evaluate() the expression. Call Assign() on the target with the result of Evaluate()
-     *      For MethodCallStatementNode, call doMethodCall(). Loop over the returned values and copy the into our local variables
+     *      For MethodCallStatementNode, call findMethodForMethodCallAndRunIt(). Loop over the returned values and copy the into our local variables
      *      For LoopNode - there are 2 kinds.
      *          Setup:
      *          If this is a Loop over an iterator (an Object node whose class has "iterator" as an interface)
@@ -135,29 +280,235 @@ public class Interpreter {
      * @param statements - the statements to run
      * @param locals - the local variables
      */
-    private void interpretStatementBlock(Optional<ObjectIDT> object, List<StatementNode> statements, HashMap<String, InterpreterDataType> locals) {
+    private void interpretStatementBlock(Optional<ObjectIDT> object, List<StatementNode> statements, InterpreterDataType[] locals) {
+        new Frame(object, locals).interpretStatementBlock(statements);
     }
 
     /**
-     *  evaluate() processes everything that is an expression - math, variables, boolean expressions.
-     *  There is a good bit of recursion in here, since math and comparisons have left and right sides that need to be evaluated.
-     *
-     * See the How To Write an Interpreter document for examples
-     * For each possible ExpressionNode, do the work to resolve it:
-     * BooleanLiteralNode - create a new BooleanLiteralNode with the same value
-     *      - Same for all of the basic data types
-     * BooleanOpNode - Evaluate() left and right, then perform either and/or on the results.
-     * CompareNode - Evaluate() both sides. Do good comparison for each data type
-     * MathOpNode - Evaluate() both sides. If they are both numbers, do the math using the built-in operators. Also handle String + String as concatenation (like Java)
-     * MethodCallExpression - call doMethodCall() and return the first value
-     * VariableReferenceNode - call findVariable()
-     * @param locals the local variables
-     * @param object - the current object we are running
-     * @param expression - some expression to evaluate
-     * @return a value
+     * A method or constructor that is running: the object it belongs to and its local variables. Statements and
+     * expressions accept() the frame, so running or evaluating a node is one virtual call to the right visit().
      */
-    private InterpreterDataType evaluate(HashMap<String, InterpreterDataType> locals, Optional<ObjectIDT> object, ExpressionNode expression) {
-          throw new IllegalArgumentException();
+    private class Frame implements StatementVisitor<Void>, ExpressionVisitor<InterpreterDataType> {
+        private final Optional<ObjectIDT> object;
+        private final InterpreterDataType[] locals;
+
+        Frame(Optional<ObjectIDT> object, InterpreterDataType[] locals) {
+            this.object = object;
+            this.locals = locals;
+        }
+
+        void interpretStatementBlock(List<StatementNode> statements) {
+            for (var s : statements)
+                s.accept(this);
+        }
+
+        @Override
+        public Void visit(AssignmentNode a) {
+            var target = findVariable(a.target, locals, object);
+            target.Assign(evaluate(a.expression));
+            return null;
+        }
+
+        @Override
+        public Void visit(MethodCallStatementNode mc) {
+            var returned = findMethodForMethodCallAndRunIt(mc);
+            var it = returned.iterator();
+            for (var r : mc.returnValues)
+                findVariable(r, locals, object).Assign(it.next());
+            return null;
+        }
+
+        @Override
+        public Void visit(LoopNode l) {
+            interpretLoop(l);
+            return null;
+        }
+
+        @Override
+        public Void visit(IfNode i) {
+            if (evaluateCondition(i.condition))
+                interpretStatementBlock(i.statements);
+            else if (i.elseStatement.isPresent())
+                interpretStatementBlock(i.elseStatement.get().statements);
+            return null;
+        }
+
+        @Override
+        public Void visit(ErrorNode e) {
+            throw new RuntimeException("Unknown statement " + e);
+        }
+
+        /**
+         * The two kinds of loops from interpretStatementBlock() - a boolean loop and a loop over an iterator object.
+         * @param l - the loop
+         */
+        private void interpretLoop(LoopNode l) {
+            var assignTo = l.assignment.isPresent() ? findVariable(l.assignment.get(), locals, object) : null;
+            var first = evaluate(l.expression);
+            if (first instanceof BooleanIDT keepGoing) {
+                while (keepGoing.Value) {
+                    if (assignTo != null)
+                        assignTo.Assign(keepGoing);
+                    interpretStatementBlock(l.statements);
+                    keepGoing = Operations.asBoolean(evaluate(l.expression));
+                }
+                return;
+            }
+
+            var iterator = getIterator(first);
+            while (true) {
+                var next = getNext(iterator);
+                if (!Operations.asBoolean(next.get(0)).Value)
+                    return;
+                if (assignTo != null)
+                    assignTo.Assign(next.get(1));
+                interpretStatementBlock(l.statements);
+            }
+        }
+
+        /**
+         * Find the method (local to this class, shared (like Java's system.out.print), or a method on another class)
+         * Evaluate the parameters to have a list of values
+         * Use interpretMethodCall() to actually run the method.
+         *
+         * Call GetParameters() to get the parameter value list
+         * Find the method. This is tricky - there are several cases:
+         * someLocalMethod() - has NO object name. Look in "object"
+         * console.write() - the objectName is a CLASS and the method is shared
+         * bestStudent.getGPA() - the objectName is a local or a member
+         *
+         * Once you find the method, call InterpretMethodCall() on it. Return the list that it returns.
+         * Throw an exception if we can't find a match.
+         * @param mc - the method call
+         * @return - the return values
+         */
+        private List<InterpreterDataType> findMethodForMethodCallAndRunIt(MethodCallStatementNode mc) {
+            return callMethod(object, locals, mc, getParameters(mc));
+        }
+
+        /**
+         * Used when we call a method to get the list of values for the parameters.
+         *
+         * for each parameter in the method call, call Evaluate() on the parameter to get an IDT and add it to a list
+         * @param mc - a method call
+         * @return the list of method values
+         */
+        private List<InterpreterDataType> getParameters(MethodCallStatementNode mc) {
+            var values = new ArrayList<InterpreterDataType>(mc.parameters.size());
+            for (var p : mc.parameters)
+                values.add(evaluate(p));
+            return values;
+        }
+
+        /**
+         *  evaluate() processes everything that is an expression - math, variables, boolean expressions.
+         *  There is a good bit of recursion in here, since math and comparisons have left and right sides that need to be evaluated.
+         *
+         * See the How To Write an Interpreter document for examples
+         * For each possible ExpressionNode (the expression accept()s the frame, which has a visit() for each), do the work to resolve it:
+         * BooleanLiteralNode - create a new BooleanLiteralNode with the same value
+         *      - Same for all of the basic data types
+         * BooleanOpNode - Evaluate() left and right, then perform either and/or on the results.
+         * CompareNode - Evaluate() both sides. Do good comparison for each data type
+         * MathOpNode - Evaluate() both sides. If they are both numbers, do the math using the built-in operators. Also handle String + String as concatenation (like Java)
+         * (The operators hand their evaluated sides to their executable node, which specializes itself for the types it sees - see Interpreter.nodes)
+         * MethodCallExpression - call findMethodForMethodCallAndRunIt() and return the first value
+         * NewNode - evaluate the parameters and call construct()
+         * VariableReferenceNode - call findVariable()
+         * @param expression - some expression to evaluate
+         * @return a value
+         */
+        private InterpreterDataType evaluate(ExpressionNode expression) {
+            return expression.accept(this);
+        }
+
+        private boolean evaluateCondition(ExpressionNode condition) {
+            return Operations.asBoolean(evaluate(condition)).Value;
+        }
+
+        @Override
+        public InterpreterDataType visit(VariableReferenceNode v) {
+            return findVariable(v, locals, object);
+        }
+
+        @Override
+        public InterpreterDataType visit(NumericLiteralNode n) {
+            return n.isInteger ? new NumberIDT(n.integerValue) : new NumberIDT(n.value);
+        }
+
+        @Override
+        public InterpreterDataType visit(StringLiteralNode s) {
+            return new StringIDT(s.value);
+        }
+
+        @Override
+        public InterpreterDataType visit(CharLiteralNode c) {
+            return new CharIDT(c.value);
+        }
+
+        @Override
+        public InterpreterDataType visit(BooleanLiteralNode b) {
+            return new BooleanIDT(b.value);
+        }
+
+        @Override
+        public InterpreterDataType visit(MathOpNode m) {
+            return m.executable.execute(evaluate(m.left), evaluate(m.right));
+        }
+
+        @Override
+        public InterpreterDataType visit(CompareNode c) {
+            return c.executable.execute(evaluate(c.left), evaluate(c.right));
+        }
+
+        @Override
+        public InterpreterDataType visit(BooleanOpNode b) {
+            return b.executable.execute(evaluate(b.left), evaluate(b.right));
+        }
+
+        @Override
+        public InterpreterDataType visit(NotOpNode n) {
+            return n.executable.execute(evaluate(n.left), null);
+        }
+
+        @Override
+        public InterpreterDataType visit(MethodCallExpressionNode mce) {
+            var returned = findMethodForMethodCallAndRunIt(mce.asStatement);
+            if (returned.isEmpty())
+                throw new RuntimeException("Method call " + mce + " does not return a value");
+            return returned.get(0);
+        }
+
+        @Override
+        public InterpreterDataType visit(NewNode nn) {
+            var parameters = new ArrayList<InterpreterDataType>(nn.parameters.size());
+            for (var p : nn.parameters)
+                parameters.add(evaluate(p));
+            return construct(nn, parameters);
+        }
+    }
+
+    /**
+     * Get the iterator object that a loop is over - an object (or reference to one) whose class has "iterator" as an interface.
+     */
+    @Override
+    public ObjectIDT getIterator(InterpreterDataType value) {
+        var iterator = derefObject(value, "loop");
+        if (!iterator.astNode.interfaces.contains("iterator"))
+            throw new RuntimeException("Loop expression must be a boolean or an iterator: " + value);
+        return iterator;
+    }
+
+    /**
+     * Call "getNext()" on an iterator - it has 2 return values. The first is a boolean (was there another?), the second is a value
+     */
+    @Override
+    public List<InterpreterDataType> getNext(ObjectIDT iterator) {
+        for (var m : iterator.astNode.methods) {
+            if (m.name.equals("getNext") && m.parameters.isEmpty() && m.returns.size() == 2)
+                return interpretMethodCall(Optional.of(iterator), m, List.of());
+        }
+        throw new RuntimeException("Iterator " + iterator.astNode.name + " has no getNext() method");
     }
 
     //              Utility Methods
@@ -166,7 +517,8 @@ public class Interpreter {
      * Used when trying to find a match to a method call. Given a method declaration, does it match this methoc call?
      * We double check with the parameters, too, although in theory JUST checking the declaration to the call should be enough.
      *
-     * Match names, parameter counts (both declared count vs method call and declared count vs value list), return counts.
+     * Match names, parameter counts (both declared count vs method call and declared count vs value list), return counts
+     * (the call can't ask for more values than the method returns - a method call expression asks for none).
      * If all of those match, consider the types (use TypeMatchToIDT).
      * If everything is OK, return true, else return false.
      * Note - if m is a built-in and isVariadic is true, skip all of the parameter validation.
@@ -176,82 +528,152 @@ public class Interpreter {
      * @return does this method match the method call?
      */
     private boolean doesMatch(MethodDeclarationNode m, MethodCallStatementNode mc, List<InterpreterDataType> parameters) {
+        if (!m.name.equals(mc.methodName))
+            return false;
+        if (m instanceof BuiltInMethodDeclarationNode builtIn && builtIn.isVariadic)
+            return true;
+        if (m.parameters.size() != mc.parameters.size() || m.parameters.size() != parameters.size())
+            return false;
+        if (mc.returnValues.size() > m.returns.size())
+            return false;
+        for (int i = 0; i < parameters.size(); i++) {
+            if (!typeMatchToIDT(m.parameters.get(i).type, parameters.get(i)))
+                return false;
+        }
         return true;
     }
 
     /**
      * Very similar to DoesMatch() except simpler - there are no return values, the name will always match.
      * @param c - a particular constructor
-     * @param mc - the method call
+     * @param nn - the "new" expression
      * @param parameters - the parameter values
-     * @return does this constructor match the method call?
+     * @return does this constructor match the "new"?
      */
-    private boolean doesConstructorMatch(ConstructorNode c, MethodCallStatementNode mc, List<InterpreterDataType> parameters) {
+    private boolean doesConstructorMatch(ConstructorNode c, NewNode nn, List<InterpreterDataType> parameters) {
+        if (c.parameters.size() != nn.parameters.size() || c.parameters.size() != parameters.size())
+            return false;
+        for (int i = 0; i < parameters.size(); i++) {
+            if (!typeMatchToIDT(c.parameters.get(i).type, parameters.get(i)))
+                return false;
+        }
         return true;
     }
 
-    /**
-     * Used when we call a method to get the list of values for the parameters.
-     *
-     * for each parameter in the method call, call Evaluate() on the parameter to get an IDT and add it to a list
-     * @param object - the current object
-     * @param locals - the local variables
-     * @param mc - a method call
-     * @return the list of method values
-     */
-    private List<InterpreterDataType> getParameters(Optional<ObjectIDT> object, HashMap<String,InterpreterDataType> locals, MethodCallStatementNode mc) {
-        return null;
-    }
-
     /**
      * Used when we have an IDT and we want to see if it matches a type definition
      * Commonly, when someone is making a function call - do the parameter values match the method declaration?
      *
      * If the IDT is a simple type (boolean, number, etc) - does the string type match the name of that IDT ("boolean", etc)
      * If the IDT is an object, check to see if the name matches OR the class has an interface that matches
-     * If the IDT is a reference, check the inner (refered to) type
+     * If the IDT is a reference, check the inner (refered to) type - an empty reference matches any class or interface
      * @param type the name of a data type (parameter to a method)
      * @param idt the IDT someone is trying to pass to this method
      * @return is this OK?
      */
     private boolean typeMatchToIDT(String type, InterpreterDataType idt) {
+        if (idt instanceof NumberIDT)
+            return type.equals("number");
+        if (idt instanceof StringIDT)
+            return type.equals("string");
+        if (idt instanceof BooleanIDT)
+            return type.equals("boolean");
+        if (idt instanceof CharIDT)
+            return type.equals("character");
+        if (idt instanceof ObjectIDT o)
+            return o.astNode.name.equals(type) || o.astNode.interfaces.contains(type);
+        if (idt instanceof ReferenceIDT r) {
+            if (r.refersTo.isPresent())
+                return typeMatchToIDT(type, r.refersTo.get());
+            return !isSimpleType(type);
+        }
         throw new RuntimeException("Unable to resolve type " + type);
     }
 
     /**
      * Find a method in an object that is the right match for a method call (same name, parameters match, etc. Uses doesMatch() to do most of the work)
      *
-     * Given a method call, we want to loop over the methods for that class, looking for a method that matches (use DoesMatch) or throw
      * @param object - an object that we want to find a method on
      * @param mc - the method call
      * @param parameters - the parameter value list
      * @return a method or throws an exception
      */
     private MethodDeclarationNode getMethodFromObject(ObjectIDT object, MethodCallStatementNode mc, List<InterpreterDataType> parameters) {
+        return findMethod(object.astNode, mc, parameters, false);
+    }
+
+    /**
+     * Find the method a call means on a given class.
+     *
+     * If the TypeChecker worked out which method the call means on this class, that's the answer - no checks needed.
+     * Otherwise ask the call site's InlineCache - if this call site has already been resolved on this class with values
+     * of the same kinds, that's the answer. Otherwise only the methods in the class's MethodTable with the right name and
+     * parameter count are considered (use DoesMatch), and the winner is remembered for those kinds of values.
+     * @param c - the class to look in
+     * @param mc - the method call
+     * @param parameters - the parameter value list
+     * @param sharedOnly - only shared methods count (the call was made on the class name, not an object)
+     * @return a method or throws an exception
+     */
+    private MethodDeclarationNode findMethod(ClassNode c, MethodCallStatementNode mc, List<InterpreterDataType> parameters, boolean sharedOnly) {
+        if (mc.checkedMethod != null && mc.checkedClass == c)
+            return mc.checkedMethod;
+        var cached = mc.inlineCache.lookup(c, parameters);
+        if (cached != null)
+            return cached;
+        var candidates = methodTables.get(c).candidates(mc.methodName, parameters.size());
+        for (var m : candidates) {
+            if ((!sharedOnly || m.isShared) && doesMatch(m, mc, parameters)) {
+                mc.inlineCache.remember(c, parameters, m);
+                return m;
+            }
+        }
         throw new RuntimeException("Unable to resolve method call " + mc);
     }
 
     /**
-     * Find a class, given the name. Just loops over the TranNode's classes member, matching by name.
+     * Find a class, given the name. The classes are indexed by name when the interpreter is made.
      *
-     * Loop over each class in the top node, comparing names to find a match.
      * @param name Name of the class to find
      * @return either a class node or empty if that class doesn't exist
      */
     private Optional<ClassNode> getClassByName(String name) {
-        return Optional.empty();
+        return Optional.ofNullable(classesByName.get(name));
     }
 
     /**
-     * Given an execution environment (the current object, the current local variables), find a variable by name.
+     * Given an execution environment (the current object, the current local variables), find a variable.
+     * The resolution pass already worked out where the variable lives, so this is just an index.
      *
-     * @param name  - the variable that we are looking for
+     * @param ref  - the variable that we are looking for
      * @param locals - the current method's local variables
      * @param object - the current object (so we can find members)
      * @return the IDT that we are looking for or throw an exception
      */
-    private InterpreterDataType findVariable(String name, HashMap<String,InterpreterDataType> locals, Optional<ObjectIDT> object) {
-        throw new RuntimeException("Unable to find variable " + name);
+    private InterpreterDataType findVariable(VariableReferenceNode ref, InterpreterDataType[] locals, Optional<ObjectIDT> object) {
+        if (ref.scope == VariableReferenceNode.VariableScope.local)
+            return locals[ref.slot];
+        if (ref.scope == VariableReferenceNode.VariableScope.member && object.isPresent())
+            return object.get().fields[ref.slot];
+        throw new RuntimeException("Unable to find variable " + ref.name);
+    }
+
+    /**
+     * Get the object out of a value that should be one - either an object or a non-empty reference to one.
+     * @param idt - the value
+     * @param where - what we were doing, for the error message
+     * @return the object or throw an exception
+     */
+    private ObjectIDT derefObject(InterpreterDataType idt, Object where) {
+        if (idt instanceof ObjectIDT o)
+            return o;
+        if (idt instanceof ReferenceIDT r && r.refersTo.isPresent())
+            return r.refersTo.get();
+        throw new RuntimeException("Expected an object in " + where + " but found " + idt);
+    }
+
+    private static boolean isSimpleType(String type) {
+        return type.equals("number") || type.equals("string") || type.equals("boolean") || type.equals("character");
     }
 
     /**
@@ -261,6 +683,12 @@ public class Interpreter {
      * @return an IDT with default values (0 for number, "" for string, false for boolean, ' ' for character)
      */
     private InterpreterDataType instantiate(String type) {
-	    return null;
+        switch (type) {
+            case "number" -> { return new NumberIDT(0); }
+            case "string" -> { return new StringIDT(""); }
+            case "boolean" -> { return new BooleanIDT(false); }
+            case "character" -> { return new CharIDT(' '); }
+            default -> { return new ReferenceIDT(); }
+        }
     }
 }
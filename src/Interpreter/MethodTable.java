@@ -0,0 +1,43 @@
+package Interpreter;
+
+import AST.BuiltInMethodDeclarationNode;
+import AST.ClassNode;
+import AST.MethodDeclarationNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A class's methods, grouped by name and number of parameters, so finding the methods a call could mean is one lookup
+ * instead of a scan of ClassNode.methods. Within a group, the methods differ only in their parameter types
+ * (the interpreter picks between them with doesMatch()). Built once per class when the interpreter starts.
+ */
+public class MethodTable {
+    private final HashMap<String, List<MethodDeclarationNode>> methods = new HashMap<>();
+
+    public MethodTable(ClassNode c) {
+        for (var m : c.methods) {
+            var key = (m instanceof BuiltInMethodDeclarationNode b && b.isVariadic) ? variadicKey(m.name) : key(m.name, m.parameters.size());
+            methods.computeIfAbsent(key, k -> new ArrayList<>()).add(m);
+        }
+    }
+
+    /**
+     * @return the methods with this name that could take this many parameters (maybe none)
+     */
+    public List<MethodDeclarationNode> candidates(String name, int parameterCount) {
+        var found = methods.get(key(name, parameterCount));
+        if (found != null)
+            return found;
+        return methods.getOrDefault(variadicKey(name), List.of());
+    }
+
+    private static String key(String name, int parameterCount) {
+        return name + "/" + parameterCount;
+    }
+
+    private static String variadicKey(String name) {
+        return name + "/*";
+    }
+}
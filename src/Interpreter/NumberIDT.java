@@ -1,22 +1,47 @@
 package Interpreter;
 
+/**
+ * A Tran number. Integers are kept exactly, as a long (IntValue), for as long as the math on them stays exact;
+ * anything else is a double. Value always holds the number as a double, so code that doesn't care which it is can
+ * just read Value.
+ */
 public class NumberIDT implements InterpreterDataType {
-    public float Value;
+    public double Value;
+    public long IntValue;
+    public boolean isInteger;
 
-    public NumberIDT(float v) {
+    public NumberIDT(long v) {
+        set(v);
+    }
+
+    public NumberIDT(double v) {
+        set(v);
+    }
+
+    public final void set(long v) {
+        IntValue = v;
+        Value = v;
+        isInteger = true;
+    }
+
+    public final void set(double v) {
+        IntValue = 0;
         Value = v;
+        isInteger = false;
     }
 
     @Override
     public void Assign(InterpreterDataType in) {
         if (in instanceof NumberIDT inv) {
             Value = inv.Value;
+            IntValue = inv.IntValue;
+            isInteger = inv.isInteger;
         } else {
             throw new RuntimeException("Trying to assign to a number IDT from a " + in.getClass());
         }
     }
 
     public String toString() {
-        return String.valueOf(Value);
+        return isInteger ? String.valueOf(IntValue) : String.valueOf(Value);
     }
 }
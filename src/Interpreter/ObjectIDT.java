@@ -2,14 +2,28 @@ package Interpreter;
 
 import AST.ClassNode;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class ObjectIDT implements InterpreterDataType {
-    public final HashMap<String,InterpreterDataType> members = new HashMap<>();
+    public final InterpreterDataType[] fields;
     public final ClassNode astNode;
+    public final Shape shape;
 
-    public ObjectIDT(ClassNode astNode) {
+    public ObjectIDT(ClassNode astNode, Shape shape) {
         this.astNode = astNode;
+        this.shape = shape;
+        this.fields = new InterpreterDataType[shape.size()];
+    }
+
+    /**
+     * The member variables by name - a copy, for printing and debugging. The interpreter uses fields[] by slot.
+     */
+    public Map<String, InterpreterDataType> members() {
+        var out = new LinkedHashMap<String, InterpreterDataType>();
+        for (int i = 0; i < fields.length; i++)
+            out.put(shape.names[i], fields[i]);
+        return out;
     }
 
     @Override
@@ -20,7 +34,7 @@ public class ObjectIDT implements InterpreterDataType {
     @Override
     public String toString() {
         StringBuilder out = new StringBuilder();
-        for (var m : members.entrySet())
+        for (var m : members().entrySet())
             out.append(m.getKey()).append(" : ").append(m.getValue().toString()).append("\n");
         return out.toString();
     }
@@ -0,0 +1,122 @@
+package Interpreter;
+
+import AST.CompareNode;
+import AST.MathOpNode;
+
+/**
+ * The math, comparison and boolean rules of Tran, shared by every way we have of running code
+ * (the tree-walking interpreter and the bytecode VM) so that they can't disagree.
+ */
+public class Operations {
+
+    /**
+     * Numbers do math with the built-in operators. String + anything (either side) is concatenation, like Java.
+     */
+    public static InterpreterDataType math(MathOpNode.MathOperations op, InterpreterDataType left, InterpreterDataType right) {
+        if (left instanceof NumberIDT l && right instanceof NumberIDT r)
+            return numberMath(op, l, r);
+        if (op == MathOpNode.MathOperations.add && (left instanceof StringIDT || right instanceof StringIDT))
+            return new StringIDT(left.toString() + right.toString());
+        throw new RuntimeException("Unable to do math (" + op + ") on " + left + " and " + right);
+    }
+
+    /**
+     * Two integers give an integer if the answer is exactly an integer (no overflow, division that comes out even);
+     * otherwise the math is done on doubles.
+     */
+    public static NumberIDT numberMath(MathOpNode.MathOperations op, NumberIDT l, NumberIDT r) {
+        if (l.isInteger && r.isInteger && isExact(op, l.IntValue, r.IntValue))
+            return new NumberIDT(integerMath(op, l.IntValue, r.IntValue));
+        return new NumberIDT(doubleMath(op, l.Value, r.Value));
+    }
+
+    /**
+     * Is the answer to a op b an integer that fits in a long?
+     */
+    public static boolean isExact(MathOpNode.MathOperations op, long a, long b) {
+        switch (op) {
+            case add -> { return ((a ^ (a + b)) & (b ^ (a + b))) >= 0; }
+            case subtract -> { return ((a ^ b) & (a ^ (a - b))) >= 0; }
+            case multiply -> { return Math.multiplyHigh(a, b) == (a * b) >> 63; }
+            case divide -> { return b != 0 && a % b == 0 && !(a == Long.MIN_VALUE && b == -1); }
+            case modulo -> { return b != 0; }
+        }
+        throw new AssertionError("Unreachable");
+    }
+
+    /**
+     * Only call this when isExact() says so.
+     */
+    public static long integerMath(MathOpNode.MathOperations op, long a, long b) {
+        switch (op) {
+            case add -> { return a + b; }
+            case subtract -> { return a - b; }
+            case multiply -> { return a * b; }
+            case divide -> { return a / b; }
+            case modulo -> { return a % b; }
+        }
+        throw new AssertionError("Unreachable");
+    }
+
+    public static double doubleMath(MathOpNode.MathOperations op, double a, double b) {
+        switch (op) {
+            case add -> { return a + b; }
+            case subtract -> { return a - b; }
+            case multiply -> { return a * b; }
+            case divide -> { return a / b; }
+            case modulo -> { return a % b; }
+        }
+        throw new AssertionError("Unreachable");
+    }
+
+    /**
+     * For the jit: a / b when both are integers and it comes out even. Anything else throws ArithmeticException, which
+     * sends the call back to the interpreter.
+     */
+    public static long divideExact(long a, long b) {
+        if (!isExact(MathOpNode.MathOperations.divide, a, b))
+            throw new ArithmeticException("Not an integer: " + a + " / " + b);
+        return a / b;
+    }
+
+    /**
+     * Two integers compare exactly; otherwise compare as doubles.
+     */
+    public static int compareNumbers(NumberIDT l, NumberIDT r) {
+        if (l.isInteger && r.isInteger)
+            return Long.compare(l.IntValue, r.IntValue);
+        return Double.compare(l.Value, r.Value);
+    }
+
+    /**
+     * Numbers, strings and characters can be ordered; booleans can only be tested for (in)equality.
+     */
+    public static boolean compare(CompareNode.CompareOperations op, InterpreterDataType left, InterpreterDataType right) {
+        int result;
+        if (left instanceof NumberIDT l && right instanceof NumberIDT r)
+            result = compareNumbers(l, r);
+        else if (left instanceof StringIDT l && right instanceof StringIDT r)
+            result = l.Value.compareTo(r.Value);
+        else if (left instanceof CharIDT l && right instanceof CharIDT r)
+            result = Character.compare(l.Value, r.Value);
+        else if (left instanceof BooleanIDT l && right instanceof BooleanIDT r && (op == CompareNode.CompareOperations.eq || op == CompareNode.CompareOperations.ne))
+            result = Boolean.compare(l.Value, r.Value);
+        else
+            throw new RuntimeException("Unable to compare (" + op + ") " + left + " and " + right);
+        switch (op) {
+            case lt -> { return result < 0; }
+            case le -> { return result <= 0; }
+            case gt -> { return result > 0; }
+            case ge -> { return result >= 0; }
+            case eq -> { return result == 0; }
+            case ne -> { return result != 0; }
+        }
+        throw new AssertionError("Unreachable");
+    }
+
+    public static BooleanIDT asBoolean(InterpreterDataType idt) {
+        if (idt instanceof BooleanIDT b)
+            return b;
+        throw new RuntimeException("Expected a boolean but found " + idt);
+    }
+}
@@ -3,7 +3,7 @@ package Interpreter;
 import java.util.Optional;
 
 public class ReferenceIDT implements InterpreterDataType{
-    public Optional<ObjectIDT> refersTo;
+    public Optional<ObjectIDT> refersTo = Optional.empty();
     @Override
     public void Assign(InterpreterDataType in) {
         if (in instanceof ReferenceIDT inv) {
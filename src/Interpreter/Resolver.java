@@ -0,0 +1,213 @@
+package Interpreter;
+
+import AST.*;
+import Interpreter.nodes.BooleanNodes;
+import Interpreter.nodes.CompareNodes;
+import Interpreter.nodes.MathNodes;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The resolution pass. Runs once over the whole program before the interpreter starts and rewrites every
+ * VariableReferenceNode with where the variable lives (a slot in the method's frame or a slot in the object),
+ * so that the interpreter never has to look a variable up by name while running.
+ * It also gives every operator its (not yet specialized) executable node.
+ *
+ * Frame layout for a method: parameters, then returns, then locals.
+ * Frame layout for a constructor: parameters, then locals.
+ */
+public class Resolver implements StatementVisitor<Void>, ExpressionVisitor<Void> {
+    private final HashMap<String, Integer> localSlots = new HashMap<>();
+    private final HashMap<String, Integer> memberSlots = new HashMap<>();
+
+    /**
+     * Resolve every method and constructor of every class in the program.
+     * @param top - the head of the AST
+     */
+    public void resolve(TranNode top) {
+        for (var c : top.Classes) {
+            memberSlots.clear();
+            for (int i = 0; i < c.members.size(); i++)
+                memberSlots.put(c.members.get(i).declaration.name, i);
+            for (var m : c.methods) {
+                if (m instanceof BuiltInMethodDeclarationNode)
+                    continue;
+                localSlots.clear();
+                addLocals(m.parameters);
+                addLocals(m.returns);
+                addLocals(m.locals);
+                resolveStatements(m.statements);
+            }
+            for (var k : c.constructors) {
+                localSlots.clear();
+                addLocals(k.parameters);
+                addLocals(k.locals);
+                resolveStatements(k.statements);
+            }
+        }
+    }
+
+    /**
+     * How many slots a method needs in its frame.
+     */
+    public static int frameSize(MethodDeclarationNode m) {
+        return m.parameters.size() + m.returns.size() + m.locals.size();
+    }
+
+    /**
+     * How many slots a constructor needs in its frame.
+     */
+    public static int frameSize(ConstructorNode c) {
+        return c.parameters.size() + c.locals.size();
+    }
+
+    private void addLocals(List<VariableDeclarationNode> declarations) {
+        for (var d : declarations)
+            localSlots.put(d.name, localSlots.size());
+    }
+
+    private void resolveStatements(List<StatementNode> statements) {
+        for (var s : statements)
+            s.accept(this);
+    }
+
+    private void resolveExpression(ExpressionNode e) {
+        e.accept(this);
+    }
+
+    @Override
+    public Void visit(AssignmentNode a) {
+        resolveVariable(a.target);
+        resolveExpression(a.expression);
+        return null;
+    }
+
+    @Override
+    public Void visit(MethodCallStatementNode mc) {
+        resolveCall(mc);
+        for (var r : mc.returnValues)
+            resolveVariable(r);
+        return null;
+    }
+
+    @Override
+    public Void visit(LoopNode l) {
+        l.assignment.ifPresent(this::resolveVariable);
+        resolveExpression(l.expression);
+        resolveStatements(l.statements);
+        return null;
+    }
+
+    @Override
+    public Void visit(IfNode i) {
+        resolveExpression(i.condition);
+        resolveStatements(i.statements);
+        i.elseStatement.ifPresent(e -> resolveStatements(e.statements));
+        return null;
+    }
+
+    @Override
+    public Void visit(ErrorNode e) {
+        return null;
+    }
+
+    @Override
+    public Void visit(VariableReferenceNode v) {
+        resolveVariable(v);
+        return null;
+    }
+
+    @Override
+    public Void visit(NumericLiteralNode n) {
+        return null;
+    }
+
+    @Override
+    public Void visit(StringLiteralNode s) {
+        return null;
+    }
+
+    @Override
+    public Void visit(CharLiteralNode c) {
+        return null;
+    }
+
+    @Override
+    public Void visit(BooleanLiteralNode b) {
+        return null;
+    }
+
+    @Override
+    public Void visit(MathOpNode m) {
+        m.executable = MathNodes.create(m);
+        resolveExpression(m.left);
+        resolveExpression(m.right);
+        return null;
+    }
+
+    @Override
+    public Void visit(CompareNode c) {
+        c.executable = CompareNodes.create(c);
+        resolveExpression(c.left);
+        resolveExpression(c.right);
+        return null;
+    }
+
+    @Override
+    public Void visit(BooleanOpNode b) {
+        b.executable = BooleanNodes.create(b);
+        resolveExpression(b.left);
+        resolveExpression(b.right);
+        return null;
+    }
+
+    @Override
+    public Void visit(NotOpNode n) {
+        n.executable = BooleanNodes.create(n);
+        resolveExpression(n.left);
+        return null;
+    }
+
+    @Override
+    public Void visit(NewNode n) {
+        for (var p : n.parameters)
+            resolveExpression(p);
+        return null;
+    }
+
+    @Override
+    public Void visit(MethodCallExpressionNode mce) {
+        mce.asStatement = new MethodCallStatementNode(mce);
+        resolveCall(mce.asStatement);
+        return null;
+    }
+
+    private void resolveCall(MethodCallStatementNode mc) {
+        mc.inlineCache = new InlineCache();
+        for (var p : mc.parameters)
+            resolveExpression(p);
+        // An object name that isn't a local or a member is a class name (console.write()) - leave that for the interpreter
+        if (mc.objectName.isPresent() && (localSlots.containsKey(mc.objectName.get()) || memberSlots.containsKey(mc.objectName.get()))) {
+            mc.objectReference = new VariableReferenceNode();
+            mc.objectReference.name = mc.objectName.get();
+            resolveVariable(mc.objectReference);
+        }
+    }
+
+    private void resolveVariable(VariableReferenceNode v) {
+        Integer slot = localSlots.get(v.name);
+        if (slot != null) {
+            v.scope = VariableReferenceNode.VariableScope.local;
+            v.slot = slot;
+            return;
+        }
+        slot = memberSlots.get(v.name);
+        if (slot != null) {
+            v.scope = VariableReferenceNode.VariableScope.member;
+            v.slot = slot;
+            return;
+        }
+        throw new RuntimeException("Unable to find variable " + v.name);
+    }
+}
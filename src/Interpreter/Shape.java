@@ -0,0 +1,36 @@
+package Interpreter;
+
+import AST.ClassNode;
+
+import java.util.HashMap;
+
+/**
+ * The layout of a class's objects: member i (in ClassNode.members order - the same slot the Resolver gives member
+ * variable references) lives in ObjectIDT.fields[i]. Built once per class, shared by every object of that class.
+ */
+public class Shape {
+    public final String[] names;
+    public final String[] types;
+    private final HashMap<String, Integer> slots = new HashMap<>();
+
+    public Shape(ClassNode c) {
+        names = new String[c.members.size()];
+        types = new String[c.members.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = c.members.get(i).declaration.name;
+            types[i] = c.members.get(i).declaration.type;
+            slots.put(names[i], i);
+        }
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @return the slot of the member with this name, or -1 if there isn't one
+     */
+    public int slotOf(String name) {
+        return slots.getOrDefault(name, -1);
+    }
+}
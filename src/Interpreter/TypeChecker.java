@@ -0,0 +1,484 @@
+package Interpreter;
+
+import AST.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The static type checking pass. Runs over the whole program after parsing (before the Interpreter is made) and works
+ * out the type of every expression from the declarations - locals, parameters, returns, members, method and
+ * constructor signatures, and the interfaces each class implements - so that type errors are found before the
+ * program runs instead of when (and if) the bad line is reached.
+ *
+ * Checked:
+ * every declared type exists (number, string, boolean, character, a class or an interface)
+ * every class has the methods of the interfaces it implements
+ * every variable is declared (and a shared method uses no members)
+ * assignments, parameters and return values - the value's type must be the variable's, or a class that implements
+ * the variable's interface
+ * math (numbers, or + with a string), comparisons (the same type on both sides; booleans only == and !=), and/or/not
+ * if and loop conditions are booleans; a loop over anything else must be over an iterator
+ * every call and "new" has a method or constructor that its arguments fit
+ *
+ * A call that can only mean one method (a call on this object, on a class, or on a variable whose type is a class -
+ * Tran has no subclasses - where the class has one method with that name and parameter count) is annotated with that
+ * method, and a "new" (where the class has one constructor with that many parameters) with its constructor. The
+ * interpreter runs those directly, without doesMatch() and typeMatchToIDT(). It still checks that the object's class
+ * is the one the annotation is for, so a tree with type errors in it (or a call on an interface) just takes the slow
+ * way.
+ */
+public class TypeChecker implements StatementVisitor<Void>, ExpressionVisitor<String> {
+    private final HashMap<String, ClassNode> classes = new HashMap<>();
+    private final HashMap<String, InterfaceNode> interfaces = new HashMap<>();
+    private final ArrayList<String> errors = new ArrayList<>();
+
+    // The method or constructor being checked
+    private ClassNode currentClass;
+    private String where;
+    private boolean hasObject;
+    private final TypeEnvironment environment = new TypeEnvironment();
+
+    /**
+     * Check every class in the program, annotating the calls and "new"s that can only mean one method or constructor.
+     * @param top - the head of the AST
+     * @return every type error, in program order (empty if there were none)
+     */
+    public List<String> check(TranNode top) {
+        for (var c : top.Classes)
+            classes.putIfAbsent(c.name, c);
+        for (var i : top.Interfaces)
+            interfaces.putIfAbsent(i.name, i);
+
+        for (var i : top.Interfaces) {
+            where = i.name;
+            for (var header : i.methods) {
+                checkDeclarations(header.parameters);
+                checkDeclarations(header.returns);
+            }
+        }
+        for (var c : top.Classes) {
+            currentClass = c;
+            where = c.name;
+            environment.startClass(c);
+            for (var member : c.members)
+                checkDeclaration(member.declaration);
+            checkImplements(c);
+            for (var m : c.methods) {
+                if (m instanceof BuiltInMethodDeclarationNode)
+                    continue;
+                where = c.name + "." + m.name;
+                hasObject = !m.isShared;
+                startFrame(m.parameters, m.returns, m.locals);
+                checkStatements(m.statements);
+            }
+            for (var k : c.constructors) {
+                where = c.name + ".construct";
+                hasObject = true;
+                startFrame(k.parameters, k.locals);
+                checkStatements(k.statements);
+            }
+        }
+        return errors;
+    }
+
+    private void error(String message) {
+        errors.add("In " + where + ": " + message);
+    }
+
+    @SafeVarargs
+    private void startFrame(List<VariableDeclarationNode>... declarations) {
+        environment.startFrame();
+        for (var list : declarations) {
+            checkDeclarations(list);
+            environment.addLocals(list);
+        }
+    }
+
+    private void checkDeclarations(List<VariableDeclarationNode> declarations) {
+        for (var d : declarations)
+            checkDeclaration(d);
+    }
+
+    private void checkDeclaration(VariableDeclarationNode d) {
+        if (!isType(d.type))
+            error("Unknown type " + d.type + " for " + d.name);
+    }
+
+    private boolean isType(String type) {
+        return isSimple(type) || classes.containsKey(type) || interfaces.containsKey(type) || type.equals("iterator");
+    }
+
+    private static boolean isSimple(String type) {
+        return type.equals("number") || type.equals("string") || type.equals("boolean") || type.equals("character");
+    }
+
+    /**
+     * Every method of every (declared) interface the class implements has to be in the class, with the same types.
+     */
+    private void checkImplements(ClassNode c) {
+        for (var name : c.interfaces) {
+            var i = interfaces.get(name);
+            if (i == null) {
+                if (!name.equals("iterator"))
+                    error("Unknown interface " + name);
+                continue;
+            }
+            for (var header : i.methods) {
+                boolean found = false;
+                for (var m : c.methods) {
+                    if (m.name.equals(header.name) && sameTypes(m.parameters, header.parameters) && sameTypes(m.returns, header.returns))
+                        found = true;
+                }
+                if (!found)
+                    error("Class " + c.name + " doesn't have " + name + "'s method " + header);
+            }
+        }
+    }
+
+    private static boolean sameTypes(List<VariableDeclarationNode> a, List<VariableDeclarationNode> b) {
+        if (a.size() != b.size())
+            return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.get(i).type.equals(b.get(i).type))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Can a value of type from go in a variable of type to? A null type has already been reported, so it fits anything.
+     */
+    private boolean isAssignable(String from, String to) {
+        if (from == null || to == null || from.equals(to))
+            return true;
+        var c = classes.get(from);
+        return c != null && c.interfaces.contains(to);
+    }
+
+    private void checkAssignable(String from, VariableReferenceNode to) {
+        String type = variableType(to);
+        if (!isAssignable(from, type))
+            error("Can't assign a " + from + " to " + type + " " + to.name);
+    }
+
+    /**
+     * The declared type of a variable (see TypeEnvironment) - or null, reported.
+     */
+    private String variableType(VariableReferenceNode v) {
+        String type = environment.variableType(v.name);
+        if (type == null)
+            error("Unknown variable " + v.name);
+        else if (!hasObject && !environment.isLocal(v.name))
+            error("A shared method can't use the member " + v.name);
+        return type;
+    }
+
+    private void checkStatements(List<StatementNode> statements) {
+        for (var s : statements)
+            s.accept(this);
+    }
+
+    private String type(ExpressionNode e) {
+        return e.accept(this);
+    }
+
+    private void checkCondition(ExpressionNode condition) {
+        String type = type(condition);
+        if (type != null && !type.equals("boolean"))
+            error("Expected a boolean condition but found a " + type + ": " + condition);
+    }
+
+    //              Statements
+
+    @Override
+    public Void visit(AssignmentNode a) {
+        checkAssignable(type(a.expression), a.target);
+        return null;
+    }
+
+    @Override
+    public Void visit(MethodCallStatementNode mc) {
+        var call = checkCall(mc.objectName, mc.methodName, mc.parameters, mc.returnValues.size());
+        if (call != null) {
+            for (int i = 0; i < mc.returnValues.size(); i++)
+                checkAssignable(call.returns.get(i).type, mc.returnValues.get(i));
+            mc.checkedClass = call.checkedClass;
+            mc.checkedMethod = call.checkedMethod;
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(IfNode i) {
+        checkCondition(i.condition);
+        checkStatements(i.statements);
+        i.elseStatement.ifPresent(e -> checkStatements(e.statements));
+        return null;
+    }
+
+    @Override
+    public Void visit(LoopNode l) {
+        String type = type(l.expression);
+        if (type != null && type.equals("boolean")) {
+            l.assignment.ifPresent(v -> checkAssignable("boolean", v));
+        } else if (type != null) {
+            var next = getNext(type);
+            if (next.isEmpty())
+                error("Expected a boolean or an iterator to loop over but found a " + type + ": " + l.expression);
+            else if (l.assignment.isPresent())
+                checkAssignable(next.get().type, l.assignment.get());
+        }
+        checkStatements(l.statements);
+        return null;
+    }
+
+    @Override
+    public Void visit(ErrorNode e) {
+        return null; // already reported by the parser
+    }
+
+    /**
+     * What a loop over a value of this type puts in its variable: the second return of getNext() - a declaration with
+     * a null type if that can't be told (the iterator interface isn't declared). Empty if it isn't an iterator.
+     */
+    private Optional<VariableDeclarationNode> getNext(String type) {
+        var c = classes.get(type);
+        if (c != null) {
+            if (!c.interfaces.contains("iterator"))
+                return Optional.empty();
+            for (var m : c.methods) {
+                if (m.name.equals("getNext") && m.parameters.isEmpty() && m.returns.size() == 2)
+                    return Optional.of(m.returns.get(1));
+            }
+            return Optional.empty();
+        }
+        var i = interfaces.get(type);
+        if (i != null) {
+            for (var header : i.methods) {
+                if (header.name.equals("getNext") && header.parameters.isEmpty() && header.returns.size() == 2)
+                    return Optional.of(header.returns.get(1));
+            }
+        }
+        if (type.equals("iterator"))
+            return Optional.of(new VariableDeclarationNode());
+        return Optional.empty();
+    }
+
+    //              Expressions
+
+    @Override
+    public String visit(VariableReferenceNode v) {
+        return variableType(v);
+    }
+
+    @Override
+    public String visit(NumericLiteralNode n) {
+        return "number";
+    }
+
+    @Override
+    public String visit(StringLiteralNode s) {
+        return "string";
+    }
+
+    @Override
+    public String visit(CharLiteralNode c) {
+        return "character";
+    }
+
+    @Override
+    public String visit(BooleanLiteralNode b) {
+        return "boolean";
+    }
+
+    @Override
+    public String visit(MathOpNode m) {
+        String left = type(m.left);
+        String right = type(m.right);
+        if (left == null || right == null)
+            return null;
+        if (left.equals("number") && right.equals("number"))
+            return "number";
+        if (m.op == MathOpNode.MathOperations.add && (left.equals("string") || right.equals("string")))
+            return "string";
+        error("Can't " + m.op + " a " + left + " and a " + right + ": " + m);
+        return null;
+    }
+
+    @Override
+    public String visit(CompareNode c) {
+        String left = type(c.left);
+        String right = type(c.right);
+        if (left != null && right != null) {
+            boolean equality = c.op == CompareNode.CompareOperations.eq || c.op == CompareNode.CompareOperations.ne;
+            boolean comparable = left.equals("number") || left.equals("string") || left.equals("character")
+                    || (left.equals("boolean") && equality);
+            if (!left.equals(right) || !comparable)
+                error("Can't compare (" + c.op + ") a " + left + " and a " + right + ": " + c);
+        }
+        return "boolean";
+    }
+
+    @Override
+    public String visit(BooleanOpNode b) {
+        checkBoolean(b.left, b);
+        checkBoolean(b.right, b);
+        return "boolean";
+    }
+
+    @Override
+    public String visit(NotOpNode n) {
+        checkBoolean(n.left, n);
+        return "boolean";
+    }
+
+    private void checkBoolean(ExpressionNode operand, ExpressionNode operator) {
+        String type = type(operand);
+        if (type != null && !type.equals("boolean"))
+            error("Expected a boolean but found a " + type + ": " + operator);
+    }
+
+    @Override
+    public String visit(MethodCallExpressionNode mce) {
+        var call = checkCall(mce.objectName, mce.methodName, mce.parameters, 1);
+        if (call == null)
+            return null;
+        mce.checkedClass = call.checkedClass;
+        mce.checkedMethod = call.checkedMethod;
+        return call.returns.get(0).type;
+    }
+
+    @Override
+    public String visit(NewNode nn) {
+        var types = argumentTypes(nn.parameters);
+        var c = classes.get(nn.className);
+        if (c == null) {
+            error("Unknown class " + nn.className);
+            return null;
+        }
+        if (c.constructors.isEmpty()) {
+            if (!nn.parameters.isEmpty())
+                error("Class " + c.name + " has no constructors, so can't be made with parameters: " + nn);
+            return c.name;
+        }
+        int sameCount = 0;
+        for (var k : c.constructors) {
+            if (k.parameters.size() == types.size())
+                sameCount++;
+        }
+        for (var k : c.constructors) {
+            if (fits(types, k.parameters)) {
+                if (sameCount == 1)
+                    nn.checkedConstructor = k; // with more, the interpreter picks by the values' classes
+                return c.name;
+            }
+        }
+        error("No constructor of " + c.name + " fits " + nn);
+        return c.name;
+    }
+
+    //              Calls
+
+    /** The method a call means: its returns, and the annotation (if the call can only mean that one method) */
+    private record Call(List<VariableDeclarationNode> returns, ClassNode checkedClass, MethodDeclarationNode checkedMethod) { }
+
+    /**
+     * Find the method a call means, the same way the interpreter will: on this object, on the object in a variable,
+     * or a shared method on a class.
+     * @param returnCount - how many values the call uses
+     * @return the method's returns (at least returnCount of them) and the annotation - null if there is no such
+     * method (reported) or it can't be told (console, which takes anything)
+     */
+    private Call checkCall(Optional<String> objectName, String methodName, List<ExpressionNode> parameters, int returnCount) {
+        var types = argumentTypes(parameters);
+        var arguments = new ArrayList<String>();
+        for (var p : parameters)
+            arguments.add(p.toString());
+        String call = objectName.map(o -> o + ".").orElse("") + methodName + "(" + String.join(", ", arguments) + ")";
+
+        ClassNode c;
+        boolean sharedOnly = false;
+        if (objectName.isEmpty()) {
+            if (!hasObject) {
+                error("A shared method has no object to call " + call + " on");
+                return null;
+            }
+            c = currentClass;
+        } else if (environment.isDeclared(objectName.get())) {
+            var object = new VariableReferenceNode();
+            object.name = objectName.get();
+            String type = variableType(object);
+            if (type == null)
+                return null;
+            var i = interfaces.get(type);
+            if (i != null)
+                return checkInterfaceCall(i, methodName, types, returnCount, call);
+            c = classes.get(type);
+            if (c == null) {
+                error("Can't call a method on a " + type + ": " + call);
+                return null;
+            }
+        } else {
+            c = classes.get(objectName.get());
+            sharedOnly = true;
+            if (c == null) {
+                if (objectName.get().equals("console"))
+                    return null; // the interpreter's built-in console.write() takes anything
+                error("Unknown object or class " + objectName.get() + ": " + call);
+                return null;
+            }
+        }
+
+        var candidates = new ArrayList<MethodDeclarationNode>();
+        for (var m : c.methods) {
+            if (m.name.equals(methodName) && m.parameters.size() == types.size() && (!sharedOnly || m.isShared))
+                candidates.add(m);
+        }
+        for (var m : candidates) {
+            if (fits(types, m.parameters)) {
+                if (m.returns.size() < returnCount) {
+                    error(call + " uses " + returnCount + " values but " + m.name + " returns " + m.returns.size());
+                    return null;
+                }
+                // With more than one candidate, the interpreter picks by the values' classes - leave that to it
+                return candidates.size() == 1 ? new Call(m.returns, c, m) : new Call(m.returns, null, null);
+            }
+        }
+        error("No method of " + c.name + " fits " + call);
+        return null;
+    }
+
+    private Call checkInterfaceCall(InterfaceNode i, String methodName, List<String> types, int returnCount, String call) {
+        for (var header : i.methods) {
+            if (header.name.equals(methodName) && fits(types, header.parameters)) {
+                if (header.returns.size() < returnCount) {
+                    error(call + " uses " + returnCount + " values but " + header.name + " returns " + header.returns.size());
+                    return null;
+                }
+                return new Call(header.returns, null, null); // which class's method it is can only be told when it runs
+            }
+        }
+        error("No method of " + i.name + " fits " + call);
+        return null;
+    }
+
+    private List<String> argumentTypes(List<ExpressionNode> parameters) {
+        var types = new ArrayList<String>(parameters.size());
+        for (var p : parameters)
+            types.add(type(p));
+        return types;
+    }
+
+    private boolean fits(List<String> types, List<VariableDeclarationNode> parameters) {
+        if (types.size() != parameters.size())
+            return false;
+        for (int i = 0; i < types.size(); i++) {
+            if (!isAssignable(types.get(i), parameters.get(i).type))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,151 @@
+package Interpreter;
+
+import AST.*;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The declared types of the variables a pass over the AST can see from inside one method or constructor - the members
+ * of its class, then its parameters, returns and locals (and any locals the pass adds). A name is looked up in the
+ * locals first, then the members, the same way the Resolver finds variables. For the optimization and checking passes
+ * that run between parsing and the Interpreter.
+ */
+public class TypeEnvironment {
+    private final HashMap<String, String> localTypes = new HashMap<>();
+    private final HashMap<String, String> memberTypes = new HashMap<>();
+    private final SafeType safeType = new SafeType();
+
+    /**
+     * Start on a class: its members replace the last class's.
+     */
+    public void startClass(ClassNode c) {
+        memberTypes.clear();
+        for (var member : c.members)
+            memberTypes.put(member.declaration.name, member.declaration.type);
+    }
+
+    /**
+     * Start on a method or constructor of the current class - forget the last one's locals.
+     */
+    public void startFrame() {
+        localTypes.clear();
+    }
+
+    public void addLocals(List<VariableDeclarationNode> declarations) {
+        for (var d : declarations)
+            addLocal(d.name, d.type);
+    }
+
+    public void addLocal(String name, String type) {
+        localTypes.put(name, type);
+    }
+
+    public boolean isLocal(String name) {
+        return localTypes.containsKey(name);
+    }
+
+    public boolean isMember(String name) {
+        return memberTypes.containsKey(name);
+    }
+
+    /**
+     * @return is there a local or member with this name?
+     */
+    public boolean isDeclared(String name) {
+        return isLocal(name) || isMember(name);
+    }
+
+    /**
+     * @return the declared type of the variable - null if there is no such local or member
+     */
+    public String variableType(String name) {
+        String type = localTypes.get(name);
+        return type != null ? type : memberTypes.get(name);
+    }
+
+    /**
+     * The type of e, if working it out can't fail - null if it might (or if it calls anything). Only number, string,
+     * boolean and character values have a type here.
+     */
+    public String typeOf(ExpressionNode e) {
+        return e.accept(safeType);
+    }
+
+    private class SafeType implements ExpressionVisitor<String> {
+        @Override
+        public String visit(VariableReferenceNode node) {
+            String type = variableType(node.name);
+            if (type == null)
+                return null;
+            return switch (type) {
+                case "number", "string", "boolean", "character" -> type;
+                default -> null;
+            };
+        }
+
+        @Override
+        public String visit(NumericLiteralNode node) {
+            return "number";
+        }
+
+        @Override
+        public String visit(StringLiteralNode node) {
+            return "string";
+        }
+
+        @Override
+        public String visit(CharLiteralNode node) {
+            return "character";
+        }
+
+        @Override
+        public String visit(BooleanLiteralNode node) {
+            return "boolean";
+        }
+
+        @Override
+        public String visit(MathOpNode node) {
+            String left = node.left.accept(this);
+            String right = node.right.accept(this);
+            if (left == null || right == null)
+                return null;
+            if (left.equals("number") && right.equals("number"))
+                return "number";
+            if (node.op == MathOpNode.MathOperations.add && (left.equals("string") || right.equals("string")))
+                return "string";
+            return null;
+        }
+
+        @Override
+        public String visit(CompareNode node) {
+            String left = node.left.accept(this);
+            String right = node.right.accept(this);
+            if (left == null || !left.equals(right))
+                return null;
+            if (left.equals("boolean") && node.op != CompareNode.CompareOperations.eq && node.op != CompareNode.CompareOperations.ne)
+                return null;
+            return "boolean";
+        }
+
+        @Override
+        public String visit(BooleanOpNode node) {
+            return "boolean".equals(node.left.accept(this)) && "boolean".equals(node.right.accept(this)) ? "boolean" : null;
+        }
+
+        @Override
+        public String visit(NotOpNode node) {
+            return "boolean".equals(node.left.accept(this)) ? "boolean" : null;
+        }
+
+        @Override
+        public String visit(MethodCallExpressionNode node) {
+            return null;
+        }
+
+        @Override
+        public String visit(NewNode node) {
+            return null;
+        }
+    }
+}
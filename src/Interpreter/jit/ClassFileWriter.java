@@ -0,0 +1,151 @@
+package Interpreter.jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Just enough of the JVM class file format to write one class with a few methods.
+ * Writes version 49 class files, so that the JVM's verifier works out the stack map frames itself and we don't have to.
+ */
+class ClassFileWriter {
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    private final HashMap<String, Integer> poolIndexes = new HashMap<>();
+    private int poolCount = 1;
+    private final List<byte[]> methods = new ArrayList<>();
+
+    int utf8(String s) {
+        return entry("U" + s, out -> {
+            out.writeByte(1);
+            out.writeUTF(s);
+        });
+    }
+
+    int classRef(String internalName) {
+        int name = utf8(internalName);
+        return entry("C" + internalName, out -> {
+            out.writeByte(7);
+            out.writeShort(name);
+        });
+    }
+
+    int longConstant(long l) {
+        return entry("J" + l, 2, out -> {
+            out.writeByte(5);
+            out.writeLong(l);
+        });
+    }
+
+    int doubleConstant(double d) {
+        return entry("D" + Double.doubleToRawLongBits(d), 2, out -> {
+            out.writeByte(6);
+            out.writeDouble(d);
+        });
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(9, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef(10, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndType = entry("N" + name + ":" + descriptor, out -> {
+            out.writeByte(12);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+        return entry(tag + owner + "." + name + ":" + descriptor, out -> {
+            out.writeByte(tag);
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    void addMethod(int access, String name, String descriptor, byte[] code, int maxStack, int maxLocals) {
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int codeIndex = utf8("Code");
+        methods.add(bytesOf(out -> {
+            out.writeShort(access);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+            out.writeShort(1);
+            out.writeShort(codeIndex);
+            out.writeInt(12 + code.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(code.length);
+            out.write(code);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+        }));
+    }
+
+    byte[] toBytes(String thisClass, String superClass, String anInterface) {
+        int thisIndex = classRef(thisClass);
+        int superIndex = classRef(superClass);
+        int interfaceIndex = classRef(anInterface);
+        return bytesOf(out -> {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            out.writeShort(poolCount);
+            out.write(pool.toByteArray());
+            out.writeShort(0x0001 | 0x0010 | 0x0020); // public final super
+            out.writeShort(thisIndex);
+            out.writeShort(superIndex);
+            out.writeShort(1);
+            out.writeShort(interfaceIndex);
+            out.writeShort(0); // fields
+            out.writeShort(methods.size());
+            for (var m : methods)
+                out.write(m);
+            out.writeShort(0); // attributes
+        });
+    }
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private int entry(String key, Writer writer) {
+        return entry(key, 1, writer);
+    }
+
+    /**
+     * @param size - how many constant pool indexes the entry takes (longs and doubles take 2)
+     */
+    private int entry(String key, int size, Writer writer) {
+        Integer index = poolIndexes.get(key);
+        if (index != null)
+            return index;
+        try {
+            writer.write(poolOut);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        poolIndexes.put(key, poolCount);
+        poolCount += size;
+        return poolCount - size;
+    }
+
+    private static byte[] bytesOf(Writer writer) {
+        var bytes = new ByteArrayOutputStream();
+        try {
+            writer.write(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
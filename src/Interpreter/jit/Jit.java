@@ -0,0 +1,95 @@
+package Interpreter.jit;
+
+import AST.BuiltInMethodDeclarationNode;
+import AST.MethodDeclarationNode;
+import Interpreter.InterpreterDataType;
+
+import java.lang.invoke.MethodHandles;
+
+/**
+ * Counts how many times each method is called and, once a method has been called hotThreshold times, turns it into a
+ * JVM class (a JitMethod) so that HotSpot can compile it like any other Java code.
+ *
+ * The count and the compiled code are kept on the MethodDeclarationNode, so counting a call is a field increment.
+ * Methods that can't be compiled (the MethodGenerator can't handle them, or the JVM won't load the result) are
+ * marked, so we only try once; the interpreter keeps running those.
+ * So are methods whose compiled code gives up (see run()).
+ */
+public class Jit {
+    public static final int defaultHotThreshold = 1000;
+
+    private final int hotThreshold;
+
+    public Jit(int hotThreshold) {
+        this.hotThreshold = hotThreshold;
+    }
+
+    /**
+     * Count a call to m.
+     * @return the compiled method if m is (now) compiled, null if the interpreter should run it
+     */
+    public JitMethod called(MethodDeclarationNode m) {
+        if (m.jitted != null || m.jitFailed)
+            return m.jitted;
+        if (++m.jitCalls >= hotThreshold) {
+            try {
+                m.jitted = compile(m);
+            } catch (RuntimeException | LinkageError e) {
+                // Not just what the MethodGenerator refuses - code the JVM won't load or link stays interpreted too
+                m.jitFailed = true;
+            }
+        }
+        return m.jitted;
+    }
+
+    /**
+     * Run the compiled code for m on a frame.
+     * The compiled code gives up if a parameter isn't an integer, or if the math stops being exact integers (overflow,
+     * uneven division), and anything else that goes wrong in it is treated the same way - it only writes the frame when
+     * it finishes, so the caller can just run m the normal way instead.
+     * A method that gives up once goes back to the interpreter for good.
+     * @return did the compiled code run? If not, the frame is untouched
+     */
+    public boolean run(MethodDeclarationNode m, JitMethod compiled, InterpreterDataType[] locals) {
+        try {
+            if (compiled.run(locals))
+                return true;
+        } catch (RuntimeException | LinkageError e) {
+            // fall through - the frame hasn't been written, so the interpreter can run m as if nothing happened
+        }
+        m.jitted = null;
+        m.jitFailed = true;
+        return false;
+    }
+
+    /**
+     * Compile a method right away, whether it is hot or not. The Resolver must have already run.
+     * @param m - the method
+     * @return the compiled method
+     * @throws UnsupportedOperationException if the method uses something the jit can't handle
+     * @throws RuntimeException if the JVM won't load the generated code
+     */
+    public static JitMethod compile(MethodDeclarationNode m) {
+        if (m instanceof BuiltInMethodDeclarationNode)
+            throw new UnsupportedOperationException("Can't jit a built-in");
+        var classFile = new ClassFileWriter();
+        new MethodGenerator(classFile, m).generate();
+
+        var code = new java.io.ByteArrayOutputStream();
+        int objectInit = classFile.methodRef("java/lang/Object", "<init>", "()V");
+        code.write(0x2a); // aload_0
+        code.write(0xb7); // invokespecial
+        code.write(objectInit >> 8);
+        code.write(objectInit);
+        code.write(0xb1); // return
+        classFile.addMethod(0x0001, "<init>", "()V", code.toByteArray(), 1, 1);
+
+        byte[] bytes = classFile.toBytes("Interpreter/jit/Tran$" + m.name, "java/lang/Object", "Interpreter/jit/JitMethod");
+        try {
+            var lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return (JitMethod) lookup.findConstructor(lookup.lookupClass(), java.lang.invoke.MethodType.methodType(void.class)).invoke();
+        } catch (Throwable e) {
+            throw new RuntimeException("Unable to load jit code for " + m.name, e);
+        }
+    }
+}
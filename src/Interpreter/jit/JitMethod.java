@@ -0,0 +1,15 @@
+package Interpreter.jit;
+
+import Interpreter.InterpreterDataType;
+
+/**
+ * A Tran method that the Jit turned into a JVM class. It runs on the same frame the interpreter would have used
+ * (parameters, returns, locals - see Resolver) and leaves its results in the return slots.
+ */
+public interface JitMethod {
+    /**
+     * @return false (having changed nothing) if the parameters aren't what the code was compiled for
+     * @throws ArithmeticException (having changed nothing) if the math stops being exact integers
+     */
+    boolean run(InterpreterDataType[] locals);
+}
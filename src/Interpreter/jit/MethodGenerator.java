@@ -0,0 +1,477 @@
+package Interpreter.jit;
+
+import AST.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates the JVM code for the run() method of a JitMethod from a Tran method.
+ *
+ * Only "numeric" methods are handled: every parameter, return and local is a number or a boolean, and the statements
+ * are assignments, ifs and boolean loops over math, comparisons and boolean operators. Anything else (members, method
+ * calls, strings, objects...) throws UnsupportedOperationException and the interpreter keeps running the method itself.
+ *
+ * Number variables are integers (JVM longs). The generated code checks that every number in the frame is an integer
+ * (returning false if not), copies the frame into JVM locals (number -> long, boolean -> int), runs entirely on those,
+ * and copies the return values back into the frame at the end. Integer math uses Math.addExact() and friends, so
+ * anything that would stop being an exact integer throws ArithmeticException before the frame is touched.
+ * Expressions may mix in non-integer literals (done as doubles), but only integers can be stored in variables.
+ */
+class MethodGenerator implements StatementVisitor<Void>, ExpressionVisitor<String> {
+    private static final String numberIDT = "Interpreter/NumberIDT";
+    private static final String booleanIDT = "Interpreter/BooleanIDT";
+    private static final int firstLocal = 2; // 0 is "this", 1 is the frame
+
+    private final ClassFileWriter classFile;
+    private final MethodDeclarationNode method;
+    private final List<String> slotTypes = new ArrayList<>();
+    private final List<Integer> localIndexes = new ArrayList<>(); // JVM local for each slot - a long takes two
+    private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+    private final List<Integer> labels = new ArrayList<>();
+    private final List<int[]> fixups = new ArrayList<>(); // {position of the branch opcode, label}
+    private int stack = 0;
+    private int maxStack = 0;
+    private int maxLocals = firstLocal;
+    private final TypeOf typeOf = new TypeOf(); // typeOf() without generating anything
+
+    MethodGenerator(ClassFileWriter classFile, MethodDeclarationNode method) {
+        this.classFile = classFile;
+        this.method = method;
+        for (var d : method.parameters)
+            slotTypes.add(d.type);
+        for (var d : method.returns)
+            slotTypes.add(d.type);
+        for (var d : method.locals)
+            slotTypes.add(d.type);
+        for (var t : slotTypes) {
+            if (!t.equals("number") && !t.equals("boolean"))
+                throw new UnsupportedOperationException("Can't jit a " + t + " variable");
+            localIndexes.add(maxLocals);
+            maxLocals += t.equals("number") ? 2 : 1;
+        }
+        if (maxLocals > 255)
+            throw new UnsupportedOperationException("Too many variables to jit");
+    }
+
+    void generate() {
+        int giveUp = newLabel();
+        for (int slot = 0; slot < slotTypes.size(); slot++) {
+            loadFrameSlot(slot);
+            if (isNumber(slot)) {
+                fieldAccess(0xb4, numberIDT, "isInteger", "Z"); // getfield
+                branch(0x99, giveUp, -1); // ifeq
+                loadFrameSlot(slot);
+                fieldAccess(0xb4, numberIDT, "IntValue", "J");
+                localAccess(0x37, slot, -2); // lstore
+            } else {
+                fieldAccess(0xb4, booleanIDT, "Value", "Z");
+                localAccess(0x36, slot, -1); // istore
+            }
+        }
+
+        statements(method.statements);
+
+        int firstReturn = method.parameters.size();
+        for (int slot = firstReturn; slot < firstReturn + method.returns.size(); slot++) {
+            loadFrameSlot(slot);
+            if (isNumber(slot)) {
+                localAccess(0x16, slot, 2); // lload
+                indexed(0xb6, classFile.methodRef(numberIDT, "set", "(J)V"), -3); // invokevirtual
+            } else {
+                localAccess(0x15, slot, 1); // iload
+                fieldAccess(0xb5, booleanIDT, "Value", "Z"); // putfield
+            }
+        }
+        op(0x04, 1); // iconst_1
+        op(0xac, -1); // ireturn
+        mark(giveUp);
+        op(0x03, 1); // iconst_0
+        op(0xac, -1); // ireturn
+
+        byte[] bytes = code.toByteArray();
+        if (bytes.length > 32767)
+            throw new UnsupportedOperationException("Method too big to jit");
+        for (var f : fixups) {
+            int offset = labels.get(f[1]) - f[0];
+            bytes[f[0] + 1] = (byte) (offset >> 8);
+            bytes[f[0] + 2] = (byte) offset;
+        }
+        classFile.addMethod(0x0001, "run", "([LInterpreter/InterpreterDataType;)Z", bytes, maxStack, maxLocals);
+    }
+
+    //              Statements
+
+    private void statements(List<StatementNode> statements) {
+        for (var s : statements)
+            s.accept(this);
+    }
+
+    @Override
+    public Void visit(AssignmentNode a) {
+        var type = expression(a.expression);
+        store(a.target, type);
+        return null;
+    }
+
+    @Override
+    public Void visit(IfNode i) {
+        requireBoolean(expression(i.condition));
+        int elseLabel = newLabel();
+        branch(0x99, elseLabel, -1); // ifeq
+        statements(i.statements);
+        if (i.elseStatement.isPresent()) {
+            int endLabel = newLabel();
+            branch(0xa7, endLabel, 0); // goto
+            mark(elseLabel);
+            statements(i.elseStatement.get().statements);
+            mark(endLabel);
+        } else {
+            mark(elseLabel);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(LoopNode l) {
+        int topLabel = newLabel();
+        int endLabel = newLabel();
+        mark(topLabel);
+        requireBoolean(expression(l.expression));
+        branch(0x99, endLabel, -1); // ifeq
+        if (l.assignment.isPresent()) {
+            op(0x04, 1); // iconst_1
+            store(l.assignment.get(), "boolean");
+        }
+        statements(l.statements);
+        branch(0xa7, topLabel, 0); // goto
+        mark(endLabel);
+        return null;
+    }
+
+    @Override
+    public Void visit(MethodCallStatementNode mc) {
+        throw new UnsupportedOperationException("Can't jit " + mc);
+    }
+
+    @Override
+    public Void visit(ErrorNode e) {
+        throw new UnsupportedOperationException("Can't jit " + e);
+    }
+
+    private void store(VariableReferenceNode target, String type) {
+        int slot = localSlot(target);
+        if (isNumber(slot) ? !type.equals("integer") : !type.equals("boolean"))
+            throw new UnsupportedOperationException("Can't jit assigning a " + type + " to " + target.name);
+        if (isNumber(slot))
+            localAccess(0x37, slot, -2); // lstore
+        else
+            localAccess(0x36, slot, -1); // istore
+    }
+
+    //              Expressions
+
+    /**
+     * Push the value of the expression on the stack.
+     * @return the type of the value - "integer" (a long), "double" or "boolean" (an int)
+     */
+    private String expression(ExpressionNode e) {
+        return e.accept(this);
+    }
+
+    @Override
+    public String visit(VariableReferenceNode v) {
+        int slot = localSlot(v);
+        if (isNumber(slot)) {
+            localAccess(0x16, slot, 2); // lload
+            return "integer";
+        }
+        localAccess(0x15, slot, 1); // iload
+        return "boolean";
+    }
+
+    @Override
+    public String visit(NumericLiteralNode n) {
+        if (n.isInteger) {
+            if (n.integerValue == 0 || n.integerValue == 1)
+                op(0x09 + (int) n.integerValue, 2); // lconst_0 / lconst_1
+            else
+                indexed(0x14, classFile.longConstant(n.integerValue), 2); // ldc2_w
+            return "integer";
+        }
+        indexed(0x14, classFile.doubleConstant(n.value), 2); // ldc2_w
+        return "double";
+    }
+
+    @Override
+    public String visit(BooleanLiteralNode b) {
+        op(b.value ? 0x04 : 0x03, 1); // iconst_1 / iconst_0
+        return "boolean";
+    }
+
+    @Override
+    public String visit(MathOpNode m) {
+        if (typeOf(m).equals("integer")) {
+            expression(m.left);
+            expression(m.right);
+            switch (m.op) {
+                case add -> indexed(0xb8, classFile.methodRef("java/lang/Math", "addExact", "(JJ)J"), -2); // invokestatic
+                case subtract -> indexed(0xb8, classFile.methodRef("java/lang/Math", "subtractExact", "(JJ)J"), -2);
+                case multiply -> indexed(0xb8, classFile.methodRef("java/lang/Math", "multiplyExact", "(JJ)J"), -2);
+                case divide -> indexed(0xb8, classFile.methodRef("Interpreter/Operations", "divideExact", "(JJ)J"), -2);
+                case modulo -> op(0x71, -2); // lrem
+            }
+            return "integer";
+        }
+        asDouble(m.left);
+        asDouble(m.right);
+        switch (m.op) {
+            case add -> op(0x63, -2);
+            case subtract -> op(0x67, -2);
+            case multiply -> op(0x6b, -2);
+            case divide -> op(0x6f, -2);
+            case modulo -> op(0x73, -2);
+        }
+        return "double";
+    }
+
+    @Override
+    public String visit(CompareNode c) {
+        compare(c);
+        return "boolean";
+    }
+
+    @Override
+    public String visit(BooleanOpNode b) {
+        requireBoolean(expression(b.left));
+        requireBoolean(expression(b.right));
+        op(b.op == BooleanOpNode.BooleanOperations.and ? 0x7e : 0x80, -1); // iand / ior
+        return "boolean";
+    }
+
+    @Override
+    public String visit(NotOpNode n) {
+        requireBoolean(expression(n.left));
+        op(0x04, 1); // iconst_1
+        op(0x82, -1); // ixor
+        return "boolean";
+    }
+
+    @Override
+    public String visit(StringLiteralNode s) {
+        throw new UnsupportedOperationException("Can't jit " + s);
+    }
+
+    @Override
+    public String visit(CharLiteralNode c) {
+        throw new UnsupportedOperationException("Can't jit " + c);
+    }
+
+    @Override
+    public String visit(MethodCallExpressionNode mce) {
+        throw new UnsupportedOperationException("Can't jit " + mce);
+    }
+
+    @Override
+    public String visit(NewNode nn) {
+        throw new UnsupportedOperationException("Can't jit " + nn);
+    }
+
+    /**
+     * The type expression() will return, without generating anything - needed before generating the left side of an
+     * operator, since an integer on the left has to become a double if the right side is one.
+     */
+    private String typeOf(ExpressionNode e) {
+        return e.accept(typeOf);
+    }
+
+    private class TypeOf implements ExpressionVisitor<String> {
+        @Override
+        public String visit(VariableReferenceNode v) {
+            return isNumber(localSlot(v)) ? "integer" : "boolean";
+        }
+
+        @Override
+        public String visit(NumericLiteralNode n) {
+            return n.isInteger ? "integer" : "double";
+        }
+
+        @Override
+        public String visit(MathOpNode m) {
+            var left = typeOf(m.left);
+            var right = typeOf(m.right);
+            requireNumber(left);
+            requireNumber(right);
+            return left.equals("integer") && right.equals("integer") ? "integer" : "double";
+        }
+
+        @Override
+        public String visit(BooleanLiteralNode b) {
+            return "boolean";
+        }
+
+        @Override
+        public String visit(CompareNode c) {
+            return "boolean";
+        }
+
+        @Override
+        public String visit(BooleanOpNode b) {
+            return "boolean";
+        }
+
+        @Override
+        public String visit(NotOpNode n) {
+            return "boolean";
+        }
+
+        @Override
+        public String visit(StringLiteralNode s) {
+            throw new UnsupportedOperationException("Can't jit " + s);
+        }
+
+        @Override
+        public String visit(CharLiteralNode c) {
+            throw new UnsupportedOperationException("Can't jit " + c);
+        }
+
+        @Override
+        public String visit(MethodCallExpressionNode mce) {
+            throw new UnsupportedOperationException("Can't jit " + mce);
+        }
+
+        @Override
+        public String visit(NewNode nn) {
+            throw new UnsupportedOperationException("Can't jit " + nn);
+        }
+    }
+
+    private void asDouble(ExpressionNode e) {
+        var type = expression(e);
+        requireNumber(type);
+        if (type.equals("integer"))
+            op(0x8a, 0); // l2d
+    }
+
+    /**
+     * Numbers compare like Operations.compareNumbers() - integers with Long.compare(), otherwise as doubles with
+     * Double.compare() - then test the result against 0. Booleans can only be compared for (in)equality.
+     */
+    private void compare(CompareNode c) {
+        var left = typeOf(c.left);
+        var right = typeOf(c.right);
+        int branchOp;
+        if (!left.equals("boolean") && !right.equals("boolean")) {
+            if (left.equals("integer") && right.equals("integer")) {
+                expression(c.left);
+                expression(c.right);
+                indexed(0xb8, classFile.methodRef("java/lang/Long", "compare", "(JJ)I"), -3); // invokestatic
+            } else {
+                asDouble(c.left);
+                asDouble(c.right);
+                indexed(0xb8, classFile.methodRef("java/lang/Double", "compare", "(DD)I"), -3);
+            }
+            switch (c.op) {
+                case lt -> branchOp = 0x9b; // iflt
+                case le -> branchOp = 0x9e; // ifle
+                case gt -> branchOp = 0x9d; // ifgt
+                case ge -> branchOp = 0x9c; // ifge
+                case eq -> branchOp = 0x99; // ifeq
+                default -> branchOp = 0x9a; // ifne
+            }
+        } else if (!left.equals(right)) {
+            throw new UnsupportedOperationException("Can't jit comparing a " + left + " with a " + right);
+        } else if (c.op == CompareNode.CompareOperations.eq || c.op == CompareNode.CompareOperations.ne) {
+            expression(c.left);
+            expression(c.right);
+            branchOp = c.op == CompareNode.CompareOperations.eq ? 0x9f : 0xa0; // if_icmpeq / if_icmpne
+            stack--;
+        } else {
+            throw new UnsupportedOperationException("Can't jit ordering booleans");
+        }
+        int trueLabel = newLabel();
+        int endLabel = newLabel();
+        branch(branchOp, trueLabel, -1);
+        op(0x03, 1); // iconst_0
+        branch(0xa7, endLabel, 0); // goto
+        stack--; // the two paths each push one value
+        mark(trueLabel);
+        op(0x04, 1); // iconst_1
+        mark(endLabel);
+    }
+
+    private int localSlot(VariableReferenceNode v) {
+        if (v.scope != VariableReferenceNode.VariableScope.local)
+            throw new UnsupportedOperationException("Can't jit member " + v.name);
+        return v.slot;
+    }
+
+    private boolean isNumber(int slot) {
+        return slotTypes.get(slot).equals("number");
+    }
+
+    private static void requireNumber(String type) {
+        if (type.equals("boolean"))
+            throw new UnsupportedOperationException("Can't jit math on a " + type);
+    }
+
+    private static void requireBoolean(String type) {
+        if (!type.equals("boolean"))
+            throw new UnsupportedOperationException("Can't jit a " + type + " as a condition");
+    }
+
+    //              Emitting
+
+    private void loadFrameSlot(int slot) {
+        op(0x2b, 1); // aload_1
+        if (slot <= 127) {
+            op(0x10, 1); // bipush
+            code.write(slot);
+        } else {
+            op(0x11, 1); // sipush
+            code.write(slot >> 8);
+            code.write(slot);
+        }
+        op(0x32, -1); // aaload
+        indexed(0xc0, classFile.classRef(isNumber(slot) ? numberIDT : booleanIDT), 0); // checkcast
+    }
+
+    private void fieldAccess(int opcode, String owner, String name, String descriptor) {
+        int size = descriptor.equals("J") || descriptor.equals("D") ? 2 : 1;
+        indexed(opcode, classFile.fieldRef(owner, name, descriptor), opcode == 0xb4 ? size - 1 : -1 - size);
+    }
+
+    private void localAccess(int opcode, int slot, int stackChange) {
+        op(opcode, stackChange);
+        code.write(localIndexes.get(slot));
+    }
+
+    private void indexed(int opcode, int index, int stackChange) {
+        op(opcode, stackChange);
+        code.write(index >> 8);
+        code.write(index);
+    }
+
+    private int newLabel() {
+        labels.add(-1);
+        return labels.size() - 1;
+    }
+
+    private void mark(int label) {
+        labels.set(label, code.size());
+    }
+
+    private void branch(int opcode, int label, int stackChange) {
+        fixups.add(new int[]{code.size(), label});
+        op(opcode, stackChange);
+        code.write(0);
+        code.write(0);
+    }
+
+    private void op(int opcode, int stackChange) {
+        code.write(opcode);
+        stack += stackChange;
+        maxStack = Math.max(maxStack, stack);
+    }
+}
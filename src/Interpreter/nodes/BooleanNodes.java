@@ -0,0 +1,55 @@
+package Interpreter.nodes;
+
+import AST.BooleanOpNode;
+import AST.NotOpNode;
+import Interpreter.BooleanIDT;
+import Interpreter.InterpreterDataType;
+import Interpreter.Operations;
+
+/**
+ * "and", "or" and "not" only ever work on booleans, so there is nothing to learn - they start out specialized,
+ * one node per operator, and anything that isn't a boolean is an error.
+ */
+public class BooleanNodes {
+
+    public static OperatorNode create(BooleanOpNode owner) {
+        return owner.op == BooleanOpNode.BooleanOperations.and ? new And(owner) : new Or(owner);
+    }
+
+    public static OperatorNode create(NotOpNode owner) {
+        return new Not(owner);
+    }
+
+    public static final class And extends OperatorNode {
+        private And(BooleanOpNode owner) {
+            super(owner);
+        }
+
+        @Override
+        public InterpreterDataType execute(InterpreterDataType left, InterpreterDataType right) {
+            return new BooleanIDT(Operations.asBoolean(left).Value & Operations.asBoolean(right).Value);
+        }
+    }
+
+    public static final class Or extends OperatorNode {
+        private Or(BooleanOpNode owner) {
+            super(owner);
+        }
+
+        @Override
+        public InterpreterDataType execute(InterpreterDataType left, InterpreterDataType right) {
+            return new BooleanIDT(Operations.asBoolean(left).Value | Operations.asBoolean(right).Value);
+        }
+    }
+
+    public static final class Not extends OperatorNode {
+        private Not(NotOpNode owner) {
+            super(owner);
+        }
+
+        @Override
+        public InterpreterDataType execute(InterpreterDataType left, InterpreterDataType right) {
+            return new BooleanIDT(!Operations.asBoolean(left).Value);
+        }
+    }
+}
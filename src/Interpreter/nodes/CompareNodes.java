@@ -0,0 +1,104 @@
+package Interpreter.nodes;
+
+import AST.CompareNode;
+import AST.ExpressionNode;
+import Interpreter.*;
+
+/**
+ * The states of a CompareNode: uninitialized, then number, string or character comparison, then generic.
+ */
+public class CompareNodes {
+
+    public static OperatorNode create(CompareNode owner) {
+        return new Uninitialized(owner);
+    }
+
+    private static boolean test(CompareNode.CompareOperations op, int result) {
+        switch (op) {
+            case lt -> { return result < 0; }
+            case le -> { return result <= 0; }
+            case gt -> { return result > 0; }
+            case ge -> { return result >= 0; }
+            case eq -> { return result == 0; }
+            case ne -> { return result != 0; }
+        }
+        throw new AssertionError("Unreachable");
+    }
+
+    public static final class Uninitialized extends OperatorNode {
+        private Uninitialized(CompareNode owner) {
+            super(owner);
+        }
+
+        @Override
+        public InterpreterDataType execute(InterpreterDataType left, InterpreterDataType right) {
+            var op = ((CompareNode) owner).op;
+            if (left instanceof NumberIDT && right instanceof NumberIDT)
+                return replaceAndExecute(new Numbers(owner, op), left, right);
+            if (left instanceof StringIDT && right instanceof StringIDT)
+                return replaceAndExecute(new Strings(owner, op), left, right);
+            if (left instanceof CharIDT && right instanceof CharIDT)
+                return replaceAndExecute(new Characters(owner, op), left, right);
+            return replaceAndExecute(new Generic(owner), left, right);
+        }
+    }
+
+    public static final class Numbers extends OperatorNode {
+        private final CompareNode.CompareOperations op;
+
+        private Numbers(ExpressionNode owner, CompareNode.CompareOperations op) {
+            super(owner);
+            this.op = op;
+        }
+
+        @Override
+        public InterpreterDataType execute(InterpreterDataType left, InterpreterDataType right) {
+            if (left instanceof NumberIDT l && right instanceof NumberIDT r)
+                return new BooleanIDT(test(op, Operations.compareNumbers(l, r)));
+            return replaceAndExecute(new Generic(owner), left, right);
+        }
+    }
+
+    public static final class Strings extends OperatorNode {
+        private final CompareNode.CompareOperations op;
+
+        private Strings(ExpressionNode owner, CompareNode.CompareOperations op) {
+            super(owner);
+            this.op = op;
+        }
+
+        @Override
+        public InterpreterDataType execute(InterpreterDataType left, InterpreterDataType right) {
+            if (left instanceof StringIDT l && right instanceof StringIDT r)
+                return new BooleanIDT(test(op, l.Value.compareTo(r.Value)));
+            return replaceAndExecute(new Generic(owner), left, right);
+        }
+    }
+
+    public static final class Characters extends OperatorNode {
+        private final CompareNode.CompareOperations op;
+
+        private Characters(ExpressionNode owner, CompareNode.CompareOperations op) {
+            super(owner);
+            this.op = op;
+        }
+
+        @Override
+        public InterpreterDataType execute(InterpreterDataType left, InterpreterDataType right) {
+            if (left instanceof CharIDT l && right instanceof CharIDT r)
+                return new BooleanIDT(test(op, Character.compare(l.Value, r.Value)));
+            return replaceAndExecute(new Generic(owner), left, right);
+        }
+    }
+
+    public static final class Generic extends OperatorNode {
+        private Generic(ExpressionNode owner) {
+            super(owner);
+        }
+
+        @Override
+        public InterpreterDataType execute(InterpreterDataType left, InterpreterDataType right) {
+            return new BooleanIDT(Operations.compare(((CompareNode) owner).op, left, right));
+        }
+    }
+}
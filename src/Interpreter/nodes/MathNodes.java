@@ -0,0 +1,74 @@
+package Interpreter.nodes;
+
+import AST.ExpressionNode;
+import AST.MathOpNode;
+import Interpreter.InterpreterDataType;
+import Interpreter.NumberIDT;
+import Interpreter.Operations;
+import Interpreter.StringIDT;
+
+/**
+ * The states of a MathOpNode: uninitialized, then number math or string concatenation, then generic.
+ */
+public class MathNodes {
+
+    public static OperatorNode create(MathOpNode owner) {
+        return new Uninitialized(owner);
+    }
+
+    public static final class Uninitialized extends OperatorNode {
+        private Uninitialized(MathOpNode owner) {
+            super(owner);
+        }
+
+        @Override
+        public InterpreterDataType execute(InterpreterDataType left, InterpreterDataType right) {
+            var op = ((MathOpNode) owner).op;
+            if (left instanceof NumberIDT && right instanceof NumberIDT)
+                return replaceAndExecute(new Numbers(owner, op), left, right);
+            if (op == MathOpNode.MathOperations.add && (left instanceof StringIDT || right instanceof StringIDT))
+                return replaceAndExecute(new Concatenate(owner), left, right);
+            return replaceAndExecute(new Generic(owner), left, right);
+        }
+    }
+
+    public static final class Numbers extends OperatorNode {
+        private final MathOpNode.MathOperations op;
+
+        private Numbers(ExpressionNode owner, MathOpNode.MathOperations op) {
+            super(owner);
+            this.op = op;
+        }
+
+        @Override
+        public InterpreterDataType execute(InterpreterDataType left, InterpreterDataType right) {
+            if (left instanceof NumberIDT l && right instanceof NumberIDT r)
+                return Operations.numberMath(op, l, r);
+            return replaceAndExecute(new Generic(owner), left, right);
+        }
+    }
+
+    public static final class Concatenate extends OperatorNode {
+        private Concatenate(ExpressionNode owner) {
+            super(owner);
+        }
+
+        @Override
+        public InterpreterDataType execute(InterpreterDataType left, InterpreterDataType right) {
+            if (left instanceof StringIDT || right instanceof StringIDT)
+                return new StringIDT(left.toString() + right.toString());
+            return replaceAndExecute(new Generic(owner), left, right);
+        }
+    }
+
+    public static final class Generic extends OperatorNode {
+        private Generic(ExpressionNode owner) {
+            super(owner);
+        }
+
+        @Override
+        public InterpreterDataType execute(InterpreterDataType left, InterpreterDataType right) {
+            return Operations.math(((MathOpNode) owner).op, left, right);
+        }
+    }
+}
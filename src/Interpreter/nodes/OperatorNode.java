@@ -0,0 +1,41 @@
+package Interpreter.nodes;
+
+import AST.*;
+import Interpreter.InterpreterDataType;
+
+/**
+ * The executable form of an operator (MathOpNode, CompareNode, BooleanOpNode, NotOpNode). Each operator in the AST
+ * starts out with an uninitialized one (see Resolver); the first time it runs, it looks at the operand types it
+ * actually got and replaces itself with a node specialized for them. If a specialized node ever sees other types,
+ * it replaces itself with the generic node, which handles anything (and never changes again).
+ */
+public abstract class OperatorNode {
+    protected final ExpressionNode owner;
+
+    protected OperatorNode(ExpressionNode owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Run the operator on its (already evaluated) operands.
+     * @param left - the left operand (the only one for "not")
+     * @param right - the right operand (null for "not")
+     * @return the result
+     */
+    public abstract InterpreterDataType execute(InterpreterDataType left, InterpreterDataType right);
+
+    /**
+     * Put another node in this node's place in the AST, then run it.
+     */
+    protected InterpreterDataType replaceAndExecute(OperatorNode with, InterpreterDataType left, InterpreterDataType right) {
+        if (owner instanceof MathOpNode m)
+            m.executable = with;
+        else if (owner instanceof CompareNode c)
+            c.executable = with;
+        else if (owner instanceof BooleanOpNode b)
+            b.executable = with;
+        else if (owner instanceof NotOpNode n)
+            n.executable = with;
+        return with.execute(left, right);
+    }
+}
@@ -0,0 +1,23 @@
+package Interpreter.vm;
+
+import AST.ConstructorNode;
+import AST.MethodDeclarationNode;
+import AST.Node;
+
+import java.util.HashMap;
+
+/**
+ * Compiled code for methods and constructors, compiled the first time they are run.
+ * A cache can be handed to more than one Interpreter running the same TranNode, so that later runs skip compiling.
+ */
+public class CodeCache {
+    private final HashMap<Node, CompiledCode> compiled = new HashMap<>();
+
+    public CompiledCode get(MethodDeclarationNode m) {
+        return compiled.computeIfAbsent(m, n -> Compiler.compile(m));
+    }
+
+    public CompiledCode get(ConstructorNode c) {
+        return compiled.computeIfAbsent(c, n -> Compiler.compile(c));
+    }
+}
@@ -0,0 +1,32 @@
+package Interpreter.vm;
+
+/**
+ * The output of the Compiler for one method or constructor - ready to be run by the VM.
+ */
+public class CompiledCode {
+    public final int[] code;
+    public final Object[] constants;
+    public final int frameSize;
+    public final int registerCount;
+    public final int[] frameKinds; // for each frame slot, Opcodes.NUMBER/BOOLEAN/CHARACTER if it is kept unboxed, else REFERENCE
+
+    public CompiledCode(int[] code, Object[] constants, int frameSize, int registerCount, int[] frameKinds) {
+        this.code = code;
+        this.constants = constants;
+        this.frameSize = frameSize;
+        this.registerCount = registerCount;
+        this.frameKinds = frameKinds;
+    }
+
+    @Override
+    public String toString() {
+        var sb = new StringBuilder();
+        for (int pc = 0; pc < code.length; pc += Opcodes.length(code, pc)) {
+            sb.append(pc).append(": ").append(Opcodes.names[code[pc]]);
+            for (int i = 1; i < Opcodes.length(code, pc); i++)
+                sb.append(" ").append(code[pc + i]);
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+}
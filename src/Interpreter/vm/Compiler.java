@@ -0,0 +1,402 @@
+package Interpreter.vm;
+
+import AST.*;
+import Interpreter.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Turns the statements of one method or constructor into CompiledCode. Expects the Resolver to have already run,
+ * since variables are compiled straight into their frame slots (locals) or object slots (members).
+ *
+ * Each expression is compiled into a register: a local variable is already in its register, anything else gets
+ * a temporary. Temporaries are handed out like a stack - each statement gives back what it used when it is done.
+ *
+ * Variables declared number, boolean or character are kept unboxed, and so is anything computed only from them, so the
+ * arithmetic and comparisons in a loop over them don't allocate. Everything else (members, strings, objects, call
+ * results) stays boxed; values are boxed or unboxed where the two meet.
+ */
+public class Compiler implements StatementVisitor<Void>, ExpressionVisitor<Integer> {
+    private int[] code = new int[64];
+    private int size = 0;
+    private final List<Object> constants = new ArrayList<>();
+    private final int frameSize;
+    private final List<Integer> kinds = new ArrayList<>(); // the kind of value in each register (see Opcodes)
+    private int nextRegister;
+    private int maxRegister;
+
+    private Compiler(List<List<VariableDeclarationNode>> frame) {
+        for (var declarations : frame) {
+            for (var d : declarations)
+                kinds.add(kindOf(d.type));
+        }
+        this.frameSize = kinds.size();
+        this.nextRegister = frameSize;
+        this.maxRegister = frameSize;
+    }
+
+    public static CompiledCode compile(MethodDeclarationNode m) {
+        var c = new Compiler(List.of(m.parameters, m.returns, m.locals));
+        c.compileStatements(m.statements);
+        return c.finish();
+    }
+
+    public static CompiledCode compile(ConstructorNode k) {
+        var c = new Compiler(List.of(k.parameters, k.locals));
+        c.compileStatements(k.statements);
+        return c.finish();
+    }
+
+    private CompiledCode finish() {
+        int[] frameKinds = new int[frameSize];
+        for (int i = 0; i < frameSize; i++)
+            frameKinds[i] = kinds.get(i);
+        return new CompiledCode(Arrays.copyOf(code, size), constants.toArray(), frameSize, maxRegister, frameKinds);
+    }
+
+    //              Statements
+
+    private void compileStatements(List<StatementNode> statements) {
+        for (var s : statements) {
+            int mark = nextRegister;
+            s.accept(this);
+            nextRegister = mark;
+        }
+    }
+
+    @Override
+    public Void visit(AssignmentNode a) {
+        store(a.target, compileExpression(a.expression));
+        return null;
+    }
+
+    @Override
+    public Void visit(MethodCallStatementNode mc) {
+        int ret = compileCall(mc, mc.returnValues.size());
+        for (int i = 0; i < mc.returnValues.size(); i++)
+            store(mc.returnValues.get(i), ret + i);
+        return null;
+    }
+
+    @Override
+    public Void visit(IfNode i) {
+        jumpIfFalse(compileExpression(i.condition));
+        int toElse = size - 1;
+        compileStatements(i.statements);
+        if (i.elseStatement.isPresent()) {
+            emit(Opcodes.JMP, 0);
+            int toEnd = size - 1;
+            code[toElse] = size;
+            compileStatements(i.elseStatement.get().statements);
+            code[toEnd] = size;
+        } else {
+            code[toElse] = size;
+        }
+        return null;
+    }
+
+    /**
+     * A loop is either over a boolean (re-evaluated every time around) or over an iterator (evaluated once,
+     * then getNext() every time around). We can't tell which until we run it, so LOOP_NEXT decides the first
+     * time and remembers in the iterator register.
+     * The exception is an expression we know is an unboxed boolean - that loop is compiled as a plain while loop.
+     */
+    @Override
+    public Void visit(LoopNode l) {
+        int top = size;
+        int constantCount = constants.size();
+        int mark = nextRegister;
+        int condition = compileExpression(l.expression);
+        if (kinds.get(condition) == Opcodes.BOOLEAN) {
+            emit(Opcodes.JMP_FALSE_P, condition, 0);
+            int toEnd = size - 1;
+            if (l.assignment.isPresent())
+                store(l.assignment.get(), condition);
+            nextRegister = mark;
+            compileStatements(l.statements);
+            emit(Opcodes.JMP, top);
+            code[toEnd] = size;
+            return null;
+        }
+        // Not known to be a boolean - throw that away and do it the general way
+        size = top;
+        constants.subList(constantCount, constants.size()).clear();
+        nextRegister = mark;
+
+        int iterator = temp(Opcodes.REFERENCE);
+        int flag = temp(Opcodes.REFERENCE);
+        int value = temp(Opcodes.REFERENCE);
+        emit(Opcodes.LOOP_RESET, iterator);
+        top = size;
+        emit(Opcodes.JMP_IF_ITER, iterator, 0);
+        int toTest = size - 1;
+        int expression = compileExpression(l.expression);
+        code[toTest] = size;
+        emit(Opcodes.LOOP_NEXT, flag, value, iterator, boxed(expression));
+        emit(Opcodes.JMP_FALSE, flag, 0);
+        int toEnd = size - 1;
+        if (l.assignment.isPresent())
+            store(l.assignment.get(), value);
+        compileStatements(l.statements);
+        emit(Opcodes.JMP, top);
+        code[toEnd] = size;
+        return null;
+    }
+
+    @Override
+    public Void visit(ErrorNode e) {
+        throw new RuntimeException("Unable to compile statement " + e);
+    }
+
+    /**
+     * A JMP_FALSE whose target is filled in later (it is the last int emitted).
+     */
+    private void jumpIfFalse(int condition) {
+        if (kinds.get(condition) == Opcodes.BOOLEAN)
+            emit(Opcodes.JMP_FALSE_P, condition, 0);
+        else
+            emit(Opcodes.JMP_FALSE, condition, 0);
+    }
+
+    /**
+     * Assign the value in a register to a variable. Mismatched types are left for the VM to find (by boxing and unboxing),
+     * exactly as Assign() would at run time - the code might never get there.
+     */
+    private void store(VariableReferenceNode target, int register) {
+        int kind = kinds.get(register);
+        if (target.scope == VariableReferenceNode.VariableScope.local) {
+            int targetKind = kinds.get(target.slot);
+            if (targetKind == Opcodes.REFERENCE)
+                emit(Opcodes.MOVE, target.slot, boxed(register));
+            else if (targetKind == kind)
+                emit(Opcodes.PMOVE, target.slot, register);
+            else
+                emit(Opcodes.UNBOX, target.slot, boxed(register), targetKind);
+        } else if (target.scope == VariableReferenceNode.VariableScope.member) {
+            if (kind == Opcodes.REFERENCE) {
+                emit(Opcodes.SET_MEMBER, target.slot, register);
+            } else {
+                int member = temp(Opcodes.REFERENCE);
+                emit(Opcodes.GET_MEMBER, member, target.slot);
+                emit(Opcodes.PSTORE, member, register, kind);
+            }
+        } else {
+            throw new RuntimeException("Unable to find variable " + target.name);
+        }
+    }
+
+    //              Expressions
+
+    /**
+     * @return the register that will hold the value of the expression
+     */
+    private int compileExpression(ExpressionNode e) {
+        return e.accept(this);
+    }
+
+    @Override
+    public Integer visit(VariableReferenceNode v) {
+        if (v.scope == VariableReferenceNode.VariableScope.local)
+            return v.slot;
+        if (v.scope == VariableReferenceNode.VariableScope.member) {
+            int dest = temp(Opcodes.REFERENCE);
+            emit(Opcodes.GET_MEMBER, dest, v.slot);
+            return dest;
+        }
+        throw new RuntimeException("Unable to find variable " + v.name);
+    }
+
+    @Override
+    public Integer visit(NumericLiteralNode n) {
+        return primitiveConstant(n.isInteger ? (Object) n.integerValue : (Object) n.value, Opcodes.NUMBER);
+    }
+
+    @Override
+    public Integer visit(StringLiteralNode s) {
+        return constant(new StringIDT(s.value));
+    }
+
+    @Override
+    public Integer visit(CharLiteralNode c) {
+        return primitiveConstant((double) c.value, Opcodes.CHARACTER);
+    }
+
+    @Override
+    public Integer visit(BooleanLiteralNode b) {
+        return primitiveConstant(b.value ? 1.0 : 0.0, Opcodes.BOOLEAN);
+    }
+
+    @Override
+    public Integer visit(BooleanOpNode b) {
+        boolean and = b.op == BooleanOpNode.BooleanOperations.and;
+        int l = compileExpression(b.left);
+        int r = compileExpression(b.right);
+        if (kinds.get(l) == Opcodes.BOOLEAN && kinds.get(r) == Opcodes.BOOLEAN)
+            return operation(and ? Opcodes.AND_P : Opcodes.OR_P, Opcodes.BOOLEAN, l, r);
+        return operation(and ? Opcodes.AND : Opcodes.OR, Opcodes.REFERENCE, boxed(l), boxed(r));
+    }
+
+    @Override
+    public Integer visit(NotOpNode n) {
+        int src = compileExpression(n.left);
+        if (kinds.get(src) == Opcodes.BOOLEAN) {
+            int dest = temp(Opcodes.BOOLEAN);
+            emit(Opcodes.NOT_P, dest, src);
+            return dest;
+        }
+        int dest = temp(Opcodes.REFERENCE);
+        emit(Opcodes.NOT, dest, boxed(src));
+        return dest;
+    }
+
+    @Override
+    public Integer visit(MethodCallExpressionNode mce) {
+        return compileCall(mce.asStatement, 1);
+    }
+
+    @Override
+    public Integer visit(NewNode nn) {
+        int[] args = compileArguments(nn.parameters);
+        int dest = temp(Opcodes.REFERENCE);
+        emit(Opcodes.NEW, dest, addConstant(nn), args.length);
+        emit(args);
+        return dest;
+    }
+
+    /**
+     * @return the first of the retCount registers that will hold the return values
+     */
+    private int compileCall(MethodCallStatementNode mc, int retCount) {
+        int[] args = compileArguments(mc.parameters);
+        int ret = nextRegister;
+        for (int i = 0; i < retCount; i++)
+            temp(Opcodes.REFERENCE);
+        emit(Opcodes.CALL, addConstant(mc), ret, retCount, args.length);
+        emit(args);
+        return ret;
+    }
+
+    private int[] compileArguments(List<ExpressionNode> parameters) {
+        int[] args = new int[parameters.size()];
+        for (int i = 0; i < args.length; i++)
+            args[i] = boxed(compileExpression(parameters.get(i)));
+        return args;
+    }
+
+    /**
+     * Two unboxed numbers use the ..._P instruction; anything else (string concatenation, or a value we can't see the
+     * type of) is boxed and left to Operations.math().
+     */
+    @Override
+    public Integer visit(MathOpNode m) {
+        int l = compileExpression(m.left);
+        int r = compileExpression(m.right);
+        int opcode = mathOpcode(m.op);
+        if (kinds.get(l) == Opcodes.NUMBER && kinds.get(r) == Opcodes.NUMBER)
+            return operation(opcode + (Opcodes.ADD_P - Opcodes.ADD), Opcodes.NUMBER, l, r);
+        return operation(opcode, Opcodes.REFERENCE, boxed(l), boxed(r));
+    }
+
+    /**
+     * Numbers and characters of the same kind compare unboxed; so do booleans, for (in)equality only.
+     */
+    @Override
+    public Integer visit(CompareNode c) {
+        int l = compileExpression(c.left);
+        int r = compileExpression(c.right);
+        int opcode = compareOpcode(c.op);
+        int kind = kinds.get(l);
+        boolean equality = c.op == CompareNode.CompareOperations.eq || c.op == CompareNode.CompareOperations.ne;
+        if (kind != Opcodes.REFERENCE && kind == kinds.get(r) && (kind != Opcodes.BOOLEAN || equality))
+            return operation(opcode + (Opcodes.LT_P - Opcodes.LT), Opcodes.BOOLEAN, l, r);
+        return operation(opcode, Opcodes.REFERENCE, boxed(l), boxed(r));
+    }
+
+    private int operation(int opcode, int kind, int l, int r) {
+        int dest = temp(kind);
+        emit(opcode, dest, l, r);
+        return dest;
+    }
+
+    private int constant(InterpreterDataType value) {
+        int dest = temp(Opcodes.REFERENCE);
+        emit(Opcodes.CONST, dest, addConstant(value));
+        return dest;
+    }
+
+    private int primitiveConstant(Object value, int kind) {
+        int dest = temp(kind);
+        emit(Opcodes.PCONST, dest, addConstant(value));
+        return dest;
+    }
+
+    /**
+     * @return a register holding the value of this register as an IDT - the register itself if it is already boxed
+     */
+    private int boxed(int register) {
+        int kind = kinds.get(register);
+        if (kind == Opcodes.REFERENCE)
+            return register;
+        int dest = temp(Opcodes.REFERENCE);
+        emit(Opcodes.BOX, dest, register, kind);
+        return dest;
+    }
+
+    private static int kindOf(String type) {
+        switch (type) {
+            case "number" -> { return Opcodes.NUMBER; }
+            case "boolean" -> { return Opcodes.BOOLEAN; }
+            case "character" -> { return Opcodes.CHARACTER; }
+            default -> { return Opcodes.REFERENCE; }
+        }
+    }
+
+    private static int mathOpcode(MathOpNode.MathOperations op) {
+        switch (op) {
+            case add -> { return Opcodes.ADD; }
+            case subtract -> { return Opcodes.SUB; }
+            case multiply -> { return Opcodes.MUL; }
+            case divide -> { return Opcodes.DIV; }
+            case modulo -> { return Opcodes.MOD; }
+        }
+        throw new AssertionError("Unreachable");
+    }
+
+    private static int compareOpcode(CompareNode.CompareOperations op) {
+        switch (op) {
+            case lt -> { return Opcodes.LT; }
+            case le -> { return Opcodes.LE; }
+            case gt -> { return Opcodes.GT; }
+            case ge -> { return Opcodes.GE; }
+            case eq -> { return Opcodes.EQ; }
+            case ne -> { return Opcodes.NE; }
+        }
+        throw new AssertionError("Unreachable");
+    }
+
+    //              Utility Methods
+
+    private int temp(int kind) {
+        int r = nextRegister++;
+        if (r < kinds.size())
+            kinds.set(r, kind);
+        else
+            kinds.add(kind);
+        maxRegister = Math.max(maxRegister, nextRegister);
+        return r;
+    }
+
+    private int addConstant(Object value) {
+        constants.add(value);
+        return constants.size() - 1;
+    }
+
+    private void emit(int... words) {
+        if (size + words.length > code.length)
+            code = Arrays.copyOf(code, Math.max(code.length * 2, size + words.length));
+        System.arraycopy(words, 0, code, size, words.length);
+        size += words.length;
+    }
+}
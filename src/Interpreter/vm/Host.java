@@ -0,0 +1,39 @@
+package Interpreter.vm;
+
+import AST.MethodCallStatementNode;
+import AST.NewNode;
+import Interpreter.InterpreterDataType;
+import Interpreter.ObjectIDT;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * What the VM needs from the interpreter - the things that are about finding methods and classes rather than running code.
+ */
+public interface Host {
+    /**
+     * Find the method for a method call and run it.
+     * @param object - the object we are inside right now (might be empty)
+     * @param locals - the registers of the caller (the variables are in the frame slots)
+     * @param mc - the method call
+     * @param parameters - the already evaluated parameters
+     * @return the return values
+     */
+    List<InterpreterDataType> callMethod(Optional<ObjectIDT> object, InterpreterDataType[] locals, MethodCallStatementNode mc, List<InterpreterDataType> parameters);
+
+    /**
+     * Make a new object and run the matching constructor on it.
+     */
+    ObjectIDT construct(NewNode nn, List<InterpreterDataType> parameters);
+
+    /**
+     * Get the iterator object out of a loop expression value, or throw if it isn't one.
+     */
+    ObjectIDT getIterator(InterpreterDataType value);
+
+    /**
+     * Call getNext() on an iterator - the first value is a boolean (was there another?), the second is the value.
+     */
+    List<InterpreterDataType> getNext(ObjectIDT iterator);
+}
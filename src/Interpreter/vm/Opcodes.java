@@ -0,0 +1,91 @@
+package Interpreter.vm;
+
+/**
+ * The instruction set of the VM. Every instruction is an opcode followed by its operands, all ints, in CompiledCode.code.
+ * Operands named r... are register numbers, k... are indexes into the constant pool, and target is an index into code.
+ *
+ * Registers 0 to frameSize-1 are the variables of the method (same slots as the Resolver gave them); the rest are temporaries.
+ *
+ * Each register is either boxed (an InterpreterDataType) or unboxed (a number - integer or double -, a boolean or a
+ * character, see UnboxedRegisters), decided by the Compiler, which knows the declared types. The ..._P instructions work on unboxed
+ * registers and never allocate; BOX/UNBOX/PSTORE cross between the two, at calls, members and anything not typed.
+ */
+public final class Opcodes {
+    public static final int CONST = 0;         // rDest k                  - rDest = constants[k]
+    public static final int MOVE = 1;          // rVar rSrc                - rVar.Assign(rSrc)
+    public static final int GET_MEMBER = 2;    // rDest slot               - rDest = this.member[slot]
+    public static final int SET_MEMBER = 3;    // slot rSrc                - this.member[slot].Assign(rSrc)
+    public static final int ADD = 4;           // rDest rLeft rRight
+    public static final int SUB = 5;           // rDest rLeft rRight
+    public static final int MUL = 6;           // rDest rLeft rRight
+    public static final int DIV = 7;           // rDest rLeft rRight
+    public static final int MOD = 8;           // rDest rLeft rRight
+    public static final int LT = 9;            // rDest rLeft rRight
+    public static final int LE = 10;           // rDest rLeft rRight
+    public static final int GT = 11;           // rDest rLeft rRight
+    public static final int GE = 12;           // rDest rLeft rRight
+    public static final int EQ = 13;           // rDest rLeft rRight
+    public static final int NE = 14;           // rDest rLeft rRight
+    public static final int AND = 15;          // rDest rLeft rRight
+    public static final int OR = 16;           // rDest rLeft rRight
+    public static final int NOT = 17;          // rDest rSrc
+    public static final int JMP = 18;          // target
+    public static final int JMP_FALSE = 19;    // rCond target
+    public static final int CALL = 20;         // k rRet retCount argCount rArg...   - constants[k] is the MethodCallStatementNode
+    public static final int NEW = 21;          // rDest k argCount rArg...            - constants[k] is the NewNode
+    public static final int LOOP_RESET = 22;   // rIter                    - rIter = null (boolean mode until proven otherwise)
+    public static final int JMP_IF_ITER = 23;  // rIter target             - jump if this loop is over an iterator
+    public static final int LOOP_NEXT = 24;    // rFlag rValue rIter rExpr - see VM
+    public static final int PCONST = 25;       // rDest k                  - rDest = constants[k] (a Long or a Double)
+    public static final int PMOVE = 26;        // rVar rSrc
+    public static final int BOX = 27;          // rDest rSrc kind          - rDest = a new IDT of that kind
+    public static final int UNBOX = 28;        // rDest rSrc kind          - throws if rSrc isn't that kind
+    public static final int PSTORE = 29;       // rVar rSrc kind           - rVar (boxed) takes rSrc's value, in place
+    public static final int ADD_P = 30;        // rDest rLeft rRight       - numbers
+    public static final int SUB_P = 31;        // rDest rLeft rRight
+    public static final int MUL_P = 32;        // rDest rLeft rRight
+    public static final int DIV_P = 33;        // rDest rLeft rRight
+    public static final int MOD_P = 34;        // rDest rLeft rRight
+    public static final int LT_P = 35;         // rDest rLeft rRight       - numbers or characters
+    public static final int LE_P = 36;         // rDest rLeft rRight
+    public static final int GT_P = 37;         // rDest rLeft rRight
+    public static final int GE_P = 38;         // rDest rLeft rRight
+    public static final int EQ_P = 39;         // rDest rLeft rRight       - numbers, characters or booleans
+    public static final int NE_P = 40;         // rDest rLeft rRight
+    public static final int AND_P = 41;        // rDest rLeft rRight
+    public static final int OR_P = 42;         // rDest rLeft rRight
+    public static final int NOT_P = 43;        // rDest rSrc
+    public static final int JMP_FALSE_P = 44;  // rCond target
+
+    // The kinds of unboxed value (the kind operand of BOX, UNBOX and PSTORE). Boxed registers are REFERENCE.
+    public static final int NUMBER = 0;
+    public static final int BOOLEAN = 1;
+    public static final int CHARACTER = 2;
+    public static final int REFERENCE = -1;
+
+    static final String[] names = {
+            "CONST", "MOVE", "GET_MEMBER", "SET_MEMBER", "ADD", "SUB", "MUL", "DIV", "MOD",
+            "LT", "LE", "GT", "GE", "EQ", "NE", "AND", "OR", "NOT",
+            "JMP", "JMP_FALSE", "CALL", "NEW", "LOOP_RESET", "JMP_IF_ITER", "LOOP_NEXT",
+            "PCONST", "PMOVE", "BOX", "UNBOX", "PSTORE", "ADD_P", "SUB_P", "MUL_P", "DIV_P", "MOD_P",
+            "LT_P", "LE_P", "GT_P", "GE_P", "EQ_P", "NE_P", "AND_P", "OR_P", "NOT_P", "JMP_FALSE_P"
+    };
+
+    /**
+     * How many ints the instruction at pc takes up, including the opcode.
+     */
+    static int length(int[] code, int pc) {
+        switch (code[pc]) {
+            case LOOP_RESET, JMP -> { return 2; }
+            case CONST, MOVE, GET_MEMBER, SET_MEMBER, NOT, JMP_FALSE, JMP_IF_ITER,
+                 PCONST, PMOVE, NOT_P, JMP_FALSE_P -> { return 3; }
+            case LOOP_NEXT -> { return 5; }
+            case CALL -> { return 5 + code[pc + 4]; }
+            case NEW -> { return 4 + code[pc + 3]; }
+            default -> { return 4; }
+        }
+    }
+
+    private Opcodes() {
+    }
+}
@@ -0,0 +1,122 @@
+package Interpreter.vm;
+
+import AST.MathOpNode;
+import Interpreter.*;
+
+/**
+ * The unboxed half of the VM's registers (see Opcodes). A number register is either an integer (isInteger, exact in
+ * integers[]) or a double; values[] always holds it as a double, the same way NumberIDT.Value does. Booleans (0 or 1)
+ * and characters (their code) are only in values[].
+ * Every write sets isInteger, since temporaries are reused for values of different kinds.
+ */
+final class UnboxedRegisters {
+    private final double[] values;
+    private final long[] integers;
+    private final boolean[] isInteger;
+
+    UnboxedRegisters(int count) {
+        values = new double[count];
+        integers = new long[count];
+        isInteger = new boolean[count];
+    }
+
+    void setInteger(int r, long value) {
+        integers[r] = value;
+        values[r] = value;
+        isInteger[r] = true;
+    }
+
+    void setDouble(int r, double value) {
+        values[r] = value;
+        isInteger[r] = false;
+    }
+
+    void setBoolean(int r, boolean value) {
+        setDouble(r, value ? 1 : 0);
+    }
+
+    boolean isTrue(int r) {
+        return values[r] != 0;
+    }
+
+    /**
+     * PCONST - the constant is a Long for an integer and a Double for anything else.
+     */
+    void setConstant(int r, Object constant) {
+        if (constant instanceof Long l)
+            setInteger(r, l);
+        else
+            setDouble(r, (Double) constant);
+    }
+
+    void move(int dest, int src) {
+        values[dest] = values[src];
+        integers[dest] = integers[src];
+        isInteger[dest] = isInteger[src];
+    }
+
+    /**
+     * Same rules as Operations.numberMath().
+     */
+    void math(MathOpNode.MathOperations op, int dest, int l, int r) {
+        if (isInteger[l] && isInteger[r] && Operations.isExact(op, integers[l], integers[r]))
+            setInteger(dest, Operations.integerMath(op, integers[l], integers[r]));
+        else
+            setDouble(dest, Operations.doubleMath(op, values[l], values[r]));
+    }
+
+    /**
+     * Same rules as Operations.compareNumbers(). Characters and booleans are never integers, so they compare as doubles.
+     */
+    int compare(int l, int r) {
+        if (isInteger[l] && isInteger[r])
+            return Long.compare(integers[l], integers[r]);
+        return Double.compare(values[l], values[r]);
+    }
+
+    InterpreterDataType box(int r, int kind) {
+        switch (kind) {
+            case Opcodes.NUMBER -> { return isInteger[r] ? new NumberIDT(integers[r]) : new NumberIDT(values[r]); }
+            case Opcodes.BOOLEAN -> { return new BooleanIDT(values[r] != 0); }
+            case Opcodes.CHARACTER -> { return new CharIDT((char) values[r]); }
+        }
+        throw new RuntimeException("Bad kind " + kind);
+    }
+
+    /**
+     * Throws (the same error Assign() gives) if the IDT isn't of that kind.
+     */
+    void unbox(int r, InterpreterDataType idt, int kind) {
+        if (kind == Opcodes.NUMBER && idt instanceof NumberIDT n) {
+            if (n.isInteger)
+                setInteger(r, n.IntValue);
+            else
+                setDouble(r, n.Value);
+        } else if (kind == Opcodes.BOOLEAN && idt instanceof BooleanIDT b) {
+            setBoolean(r, b.Value);
+        } else if (kind == Opcodes.CHARACTER && idt instanceof CharIDT c) {
+            setDouble(r, c.Value);
+        } else {
+            box(r, kind).Assign(idt);
+            throw new AssertionError("Unreachable");
+        }
+    }
+
+    /**
+     * Put the value into an existing IDT, without making a new one.
+     */
+    void store(InterpreterDataType target, int r, int kind) {
+        if (kind == Opcodes.NUMBER && target instanceof NumberIDT n) {
+            if (isInteger[r])
+                n.set(integers[r]);
+            else
+                n.set(values[r]);
+        } else if (kind == Opcodes.BOOLEAN && target instanceof BooleanIDT b) {
+            b.Value = values[r] != 0;
+        } else if (kind == Opcodes.CHARACTER && target instanceof CharIDT c) {
+            c.Value = (char) values[r];
+        } else {
+            target.Assign(box(r, kind));
+        }
+    }
+}
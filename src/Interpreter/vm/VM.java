@@ -0,0 +1,234 @@
+package Interpreter.vm;
+
+import AST.CompareNode;
+import AST.MathOpNode;
+import AST.MethodCallStatementNode;
+import AST.NewNode;
+import Interpreter.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Runs CompiledCode. The registers are made (and the frame slots filled in) by the caller, exactly like the
+ * tree-walking interpreter makes its locals - the VM only adds the temporaries after them.
+ *
+ * Unboxed registers live in UnboxedRegisters, alongside the boxed ones (see Opcodes). The frame slots the Compiler chose to keep unboxed are
+ * unboxed on the way in and written back into the caller's IDTs on the way out, so the caller never sees the difference.
+ */
+public class VM {
+    private final Host host;
+
+    public VM(Host host) {
+        this.host = host;
+    }
+
+    /**
+     * Run the code until it falls off the end.
+     * @param compiled - the method or constructor to run
+     * @param object - the object this code belongs to (empty for shared methods)
+     * @param registers - registerCount long, with the frame slots already filled in
+     */
+    public void run(CompiledCode compiled, Optional<ObjectIDT> object, InterpreterDataType[] registers) {
+        final int[] code = compiled.code;
+        final Object[] constants = compiled.constants;
+        final ObjectIDT self = object.orElse(null);
+        final UnboxedRegisters unboxed = new UnboxedRegisters(compiled.registerCount);
+        final int[] frameKinds = compiled.frameKinds;
+        for (int slot = 0; slot < frameKinds.length; slot++) {
+            if (frameKinds[slot] != Opcodes.REFERENCE)
+                unboxed.unbox(slot, registers[slot], frameKinds[slot]);
+        }
+        int pc = 0;
+        while (pc < code.length) {
+            switch (code[pc]) {
+                case Opcodes.CONST -> {
+                    registers[code[pc + 1]] = (InterpreterDataType) constants[code[pc + 2]];
+                    pc += 3;
+                }
+                case Opcodes.MOVE -> {
+                    registers[code[pc + 1]].Assign(registers[code[pc + 2]]);
+                    pc += 3;
+                }
+                case Opcodes.GET_MEMBER -> {
+                    registers[code[pc + 1]] = member(self, code[pc + 2]);
+                    pc += 3;
+                }
+                case Opcodes.SET_MEMBER -> {
+                    member(self, code[pc + 1]).Assign(registers[code[pc + 2]]);
+                    pc += 3;
+                }
+                case Opcodes.ADD -> pc = math(MathOpNode.MathOperations.add, code, pc, registers);
+                case Opcodes.SUB -> pc = math(MathOpNode.MathOperations.subtract, code, pc, registers);
+                case Opcodes.MUL -> pc = math(MathOpNode.MathOperations.multiply, code, pc, registers);
+                case Opcodes.DIV -> pc = math(MathOpNode.MathOperations.divide, code, pc, registers);
+                case Opcodes.MOD -> pc = math(MathOpNode.MathOperations.modulo, code, pc, registers);
+                case Opcodes.LT -> pc = compare(CompareNode.CompareOperations.lt, code, pc, registers);
+                case Opcodes.LE -> pc = compare(CompareNode.CompareOperations.le, code, pc, registers);
+                case Opcodes.GT -> pc = compare(CompareNode.CompareOperations.gt, code, pc, registers);
+                case Opcodes.GE -> pc = compare(CompareNode.CompareOperations.ge, code, pc, registers);
+                case Opcodes.EQ -> pc = compare(CompareNode.CompareOperations.eq, code, pc, registers);
+                case Opcodes.NE -> pc = compare(CompareNode.CompareOperations.ne, code, pc, registers);
+                case Opcodes.AND -> {
+                    boolean left = Operations.asBoolean(registers[code[pc + 2]]).Value;
+                    boolean right = Operations.asBoolean(registers[code[pc + 3]]).Value;
+                    registers[code[pc + 1]] = new BooleanIDT(left && right);
+                    pc += 4;
+                }
+                case Opcodes.OR -> {
+                    boolean left = Operations.asBoolean(registers[code[pc + 2]]).Value;
+                    boolean right = Operations.asBoolean(registers[code[pc + 3]]).Value;
+                    registers[code[pc + 1]] = new BooleanIDT(left || right);
+                    pc += 4;
+                }
+                case Opcodes.NOT -> {
+                    registers[code[pc + 1]] = new BooleanIDT(!Operations.asBoolean(registers[code[pc + 2]]).Value);
+                    pc += 3;
+                }
+                case Opcodes.JMP -> pc = code[pc + 1];
+                case Opcodes.JMP_FALSE -> {
+                    if (Operations.asBoolean(registers[code[pc + 1]]).Value)
+                        pc += 3;
+                    else
+                        pc = code[pc + 2];
+                }
+                case Opcodes.CALL -> {
+                    var mc = (MethodCallStatementNode) constants[code[pc + 1]];
+                    int ret = code[pc + 2];
+                    int retCount = code[pc + 3];
+                    var returned = host.callMethod(object, registers, mc, arguments(code, pc + 5, code[pc + 4], registers));
+                    if (returned.size() < retCount)
+                        throw new RuntimeException("Method call " + mc + " does not return enough values");
+                    for (int i = 0; i < retCount; i++)
+                        registers[ret + i] = returned.get(i);
+                    pc += 5 + code[pc + 4];
+                }
+                case Opcodes.NEW -> {
+                    var nn = (NewNode) constants[code[pc + 2]];
+                    registers[code[pc + 1]] = host.construct(nn, arguments(code, pc + 4, code[pc + 3], registers));
+                    pc += 4 + code[pc + 3];
+                }
+                case Opcodes.LOOP_RESET -> {
+                    registers[code[pc + 1]] = null;
+                    pc += 2;
+                }
+                case Opcodes.JMP_IF_ITER -> {
+                    if (registers[code[pc + 1]] != null)
+                        pc = code[pc + 2];
+                    else
+                        pc += 3;
+                }
+                case Opcodes.LOOP_NEXT -> {
+                    loopNext(code, pc, registers);
+                    pc += 5;
+                }
+                case Opcodes.PCONST -> {
+                    unboxed.setConstant(code[pc + 1], constants[code[pc + 2]]);
+                    pc += 3;
+                }
+                case Opcodes.PMOVE -> {
+                    unboxed.move(code[pc + 1], code[pc + 2]);
+                    pc += 3;
+                }
+                case Opcodes.BOX -> {
+                    registers[code[pc + 1]] = unboxed.box(code[pc + 2], code[pc + 3]);
+                    pc += 4;
+                }
+                case Opcodes.UNBOX -> {
+                    unboxed.unbox(code[pc + 1], registers[code[pc + 2]], code[pc + 3]);
+                    pc += 4;
+                }
+                case Opcodes.PSTORE -> {
+                    unboxed.store(registers[code[pc + 1]], code[pc + 2], code[pc + 3]);
+                    pc += 4;
+                }
+                case Opcodes.ADD_P -> pc = unboxedMath(MathOpNode.MathOperations.add, code, pc, unboxed);
+                case Opcodes.SUB_P -> pc = unboxedMath(MathOpNode.MathOperations.subtract, code, pc, unboxed);
+                case Opcodes.MUL_P -> pc = unboxedMath(MathOpNode.MathOperations.multiply, code, pc, unboxed);
+                case Opcodes.DIV_P -> pc = unboxedMath(MathOpNode.MathOperations.divide, code, pc, unboxed);
+                case Opcodes.MOD_P -> pc = unboxedMath(MathOpNode.MathOperations.modulo, code, pc, unboxed);
+                case Opcodes.LT_P -> pc = booleanResult(code, pc, unboxed, unboxed.compare(code[pc + 2], code[pc + 3]) < 0);
+                case Opcodes.LE_P -> pc = booleanResult(code, pc, unboxed, unboxed.compare(code[pc + 2], code[pc + 3]) <= 0);
+                case Opcodes.GT_P -> pc = booleanResult(code, pc, unboxed, unboxed.compare(code[pc + 2], code[pc + 3]) > 0);
+                case Opcodes.GE_P -> pc = booleanResult(code, pc, unboxed, unboxed.compare(code[pc + 2], code[pc + 3]) >= 0);
+                case Opcodes.EQ_P -> pc = booleanResult(code, pc, unboxed, unboxed.compare(code[pc + 2], code[pc + 3]) == 0);
+                case Opcodes.NE_P -> pc = booleanResult(code, pc, unboxed, unboxed.compare(code[pc + 2], code[pc + 3]) != 0);
+                case Opcodes.AND_P -> pc = booleanResult(code, pc, unboxed, unboxed.isTrue(code[pc + 2]) && unboxed.isTrue(code[pc + 3]));
+                case Opcodes.OR_P -> pc = booleanResult(code, pc, unboxed, unboxed.isTrue(code[pc + 2]) || unboxed.isTrue(code[pc + 3]));
+                case Opcodes.NOT_P -> {
+                    unboxed.setBoolean(code[pc + 1], !unboxed.isTrue(code[pc + 2]));
+                    pc += 3;
+                }
+                case Opcodes.JMP_FALSE_P -> {
+                    if (unboxed.isTrue(code[pc + 1]))
+                        pc += 3;
+                    else
+                        pc = code[pc + 2];
+                }
+                default -> throw new RuntimeException("Bad opcode " + code[pc] + " at " + pc);
+            }
+        }
+
+        for (int slot = 0; slot < frameKinds.length; slot++) {
+            if (frameKinds[slot] != Opcodes.REFERENCE)
+                unboxed.store(registers[slot], slot, frameKinds[slot]);
+        }
+    }
+
+    private static int unboxedMath(MathOpNode.MathOperations op, int[] code, int pc, UnboxedRegisters unboxed) {
+        unboxed.math(op, code[pc + 1], code[pc + 2], code[pc + 3]);
+        return pc + 4;
+    }
+
+    private static int booleanResult(int[] code, int pc, UnboxedRegisters unboxed, boolean result) {
+        unboxed.setBoolean(code[pc + 1], result);
+        return pc + 4;
+    }
+
+    private static int math(MathOpNode.MathOperations op, int[] code, int pc, InterpreterDataType[] registers) {
+        registers[code[pc + 1]] = Operations.math(op, registers[code[pc + 2]], registers[code[pc + 3]]);
+        return pc + 4;
+    }
+
+    private static int compare(CompareNode.CompareOperations op, int[] code, int pc, InterpreterDataType[] registers) {
+        registers[code[pc + 1]] = new BooleanIDT(Operations.compare(op, registers[code[pc + 2]], registers[code[pc + 3]]));
+        return pc + 4;
+    }
+
+    /**
+     * LOOP_NEXT rFlag rValue rIter rExpr
+     * If we already have an iterator, call getNext() on it. If not, the expression is either a boolean (it is both the
+     * flag and the value) or the first time we've seen an iterator (remember it, then call getNext()).
+     */
+    private void loopNext(int[] code, int pc, InterpreterDataType[] registers) {
+        int flag = code[pc + 1];
+        int value = code[pc + 2];
+        int iterator = code[pc + 3];
+        if (registers[iterator] == null) {
+            var expression = registers[code[pc + 4]];
+            if (expression instanceof BooleanIDT) {
+                registers[flag] = expression;
+                registers[value] = expression;
+                return;
+            }
+            registers[iterator] = host.getIterator(expression);
+        }
+        var next = host.getNext((ObjectIDT) registers[iterator]);
+        registers[flag] = next.get(0);
+        registers[value] = next.get(1);
+    }
+
+    private static List<InterpreterDataType> arguments(int[] code, int start, int count, InterpreterDataType[] registers) {
+        var args = new ArrayList<InterpreterDataType>(count);
+        for (int i = 0; i < count; i++)
+            args.add(registers[code[start + i]]);
+        return args;
+    }
+
+    private static InterpreterDataType member(ObjectIDT self, int slot) {
+        if (self == null)
+            throw new RuntimeException("Unable to find member #" + slot + " - there is no object here");
+        return self.fields[slot];
+    }
+}
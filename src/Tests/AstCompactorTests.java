@@ -0,0 +1,69 @@
+package Tests;
+
+import AST.*;
+import Interpreter.Interpreter;
+import Tran.AstCompactor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static Tests.TestPrograms.parse;
+
+public class AstCompactorTests {
+    private static final String program = """
+            interface Counter
+                count() : number n
+            class Tally implements Counter
+                number total
+                construct(number start)
+                    total = start
+                count() : number n
+                    n = total
+                shared start()
+                    number i
+                    Tally t
+                    boolean going
+                    t = new Tally(3)
+                    i = 0
+                    loop going
+                        if going
+                            total = (total + i) * 2
+                        i = i - 1
+            """;
+
+    @Test
+    public void sameTreeFrozen() throws Exception {
+        var parsed = parse(program);
+        String before = parsed.toString();
+        var compacted = new AstCompactor().compact(parsed);
+        Assertions.assertSame(parsed, compacted);
+        Assertions.assertEquals(before, compacted.toString());
+
+        var tally = compacted.Classes.get(0);
+        var start = tally.methods.get(1);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> tally.methods.add(new MethodDeclarationNode()));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> start.locals.clear());
+        var loop = (LoopNode) start.statements.get(2);
+        var ifNode = (IfNode) loop.statements.get(0);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> ifNode.statements.remove(0));
+
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> compacted.Classes.add(new ClassNode()));
+
+        // The interpreter keeps its built-ins to itself, so it can resolve and run the frozen tree - more than once
+        new Interpreter(compacted).start();
+        new Interpreter(compacted).start();
+    }
+
+    @Test
+    public void namesAreShared() throws Exception {
+        var compactor = new AstCompactor();
+        var first = compactor.compact(parse(program));
+        var second = compactor.compact(parse(program));
+        Assertions.assertSame(first.Classes.get(0).name, second.Classes.get(0).name);
+        var firstStart = first.Classes.get(0).methods.get(1);
+        var secondStart = second.Classes.get(0).methods.get(1);
+        Assertions.assertSame(firstStart.locals.get(1).type, secondStart.locals.get(1).type);
+        Assertions.assertSame(first.Classes.get(0).name, firstStart.locals.get(1).type);
+        var target = ((AssignmentNode) secondStart.statements.get(0)).target;
+        Assertions.assertSame(firstStart.locals.get(1).name, target.name);
+    }
+}
@@ -0,0 +1,176 @@
+package Tests;
+
+import AST.*;
+import Interpreter.ConsoleWrite;
+import Interpreter.Interpreter;
+import Tran.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+
+public class AstSnapshotTests {
+    private static final String program = """
+            interface Shape
+                area() : number a
+            class Square implements Shape
+                number side
+                string label
+                construct(number s)
+                    side = s
+                area() : number a
+                    a = side * side
+                private describe(string prefix) : string text, boolean big
+                    text = prefix + label
+                    big = side
+                shared start()
+                    number i
+                    character c
+                    i = 9007199254740993
+                    i = 2.5 / 3
+                    c = 'é'
+                    loop i
+                        i = i - 1
+                    if i
+                        label = "naïve"
+                    label = new Square(i)
+            """;
+
+    @Test
+    public void roundTrip() throws Exception {
+        var parsed = new TranNode();
+        new Parser(parsed, new Lexer(program).Lex()).Tran();
+        var bytes = AstSnapshot.write(parsed);
+        var read = AstSnapshot.read(ByteBuffer.wrap(bytes));
+        Assertions.assertEquals(parsed.toString(), read.toString());
+
+        var start = read.Classes.get(0).methods.get(2);
+        Assertions.assertTrue(start.isShared);
+        Assertions.assertTrue(read.Classes.get(0).methods.get(1).isPrivate);
+        Assertions.assertEquals(2, start.locals.size());
+        var exact = (NumericLiteralNode) ((AssignmentNode) start.statements.get(0)).expression;
+        Assertions.assertTrue(exact.isInteger);
+        Assertions.assertEquals(9007199254740993L, exact.integerValue);
+        var fraction = (NumericLiteralNode) ((MathOpNode) ((AssignmentNode) start.statements.get(1)).expression).left;
+        Assertions.assertEquals(2.5, fraction.value);
+
+        // The interpreter doesn't add its built-ins to the tree, so it can still be saved afterwards
+        new Interpreter(parsed);
+        Assertions.assertArrayEquals(bytes, AstSnapshot.write(parsed));
+        var builtIn = new ClassNode();
+        builtIn.name = "console";
+        builtIn.methods.add(new ConsoleWrite());
+        parsed.Classes.add(builtIn);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AstSnapshot.write(parsed));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AstSnapshot.read(ByteBuffer.wrap(new byte[]{'T', 'R', 'A', 'N'})));
+    }
+
+    @Test
+    public void cacheSkipsTheParser() throws Exception {
+        var directory = Files.createTempDirectory("tran-cache");
+        try {
+            var cache = new ParseCache(directory);
+            var first = cache.parse(program);
+            try (var files = Files.list(directory)) {
+                Assertions.assertEquals(1, files.count());
+            }
+            var second = cache.parse(program);
+            Assertions.assertNotSame(first, second);
+            Assertions.assertEquals(first.toString(), second.toString());
+
+            // Prove the second parse came from the snapshot: swap in a different tree and get that one back
+            var other = new TranNode();
+            new Parser(other, new Lexer("class Other\n    number n\n").Lex()).Tran();
+            try (var files = Files.list(directory)) {
+                Files.write(files.findFirst().get(), AstSnapshot.write(other));
+            }
+            Assertions.assertEquals("Other", cache.parse(program).Classes.get(0).name);
+
+            // A damaged snapshot is just parsed again
+            try (var files = Files.list(directory)) {
+                Files.write(files.findFirst().get(), new byte[]{1, 2, 3});
+            }
+            Assertions.assertEquals(first.toString(), cache.parse(program).toString());
+            Assertions.assertEquals(first.toString(), cache.parse(program).toString());
+        } finally {
+            try (var files = Files.walk(directory)) {
+                for (var f : files.sorted(Comparator.reverseOrder()).toList())
+                    Files.delete(f);
+            }
+        }
+    }
+
+    @Test
+    public void damagedSnapshots() throws Exception {
+        // A string count of 0xFFFFFFFF
+        byte[] hugeCount = {'T', 'R', 'A', 'N', 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F};
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AstSnapshot.read(ByteBuffer.wrap(hugeCount)));
+
+        // Every byte of a good snapshot changed, and every prefix of it, either still reads or is reported as damaged
+        var parsed = new TranNode();
+        new Parser(parsed, new Lexer(program).Lex()).Tran();
+        var bytes = AstSnapshot.write(parsed);
+        for (int i = 5; i < bytes.length; i++) {
+            for (int value : new int[]{0, 1, 5, 6, 0x7F, 0x80, 0xFF}) {
+                var damaged = bytes.clone();
+                damaged[i] = (byte) value;
+                try {
+                    AstSnapshot.read(ByteBuffer.wrap(damaged));
+                } catch (IllegalArgumentException e) {
+                    // reported
+                }
+            }
+            var cut = Arrays.copyOf(bytes, i);
+            Assertions.assertThrows(IllegalArgumentException.class, () -> AstSnapshot.read(ByteBuffer.wrap(cut)));
+        }
+
+        // The cache parses the source again
+        var directory = Files.createTempDirectory("tran-cache");
+        try {
+            var cache = new ParseCache(directory);
+            var first = cache.parse(program);
+            try (var files = Files.list(directory)) {
+                Files.write(files.findFirst().get(), hugeCount);
+            }
+            Assertions.assertEquals(first.toString(), cache.parse(program).toString());
+        } finally {
+            try (var files = Files.walk(directory)) {
+                for (var f : files.sorted(Comparator.reverseOrder()).toList())
+                    Files.delete(f);
+            }
+        }
+    }
+
+    @Test
+    public void deepNesting() throws Exception {
+        int depth = 20000;
+        var text = new StringBuilder("class Deep\n    shared start()\n        number x\n        x = ");
+        text.append("(".repeat(depth)).append("1");
+        for (int i = 0; i < depth; i++)
+            text.append(i % 2 == 0 ? " + 1)" : " * 2)");
+        var directory = Files.createTempDirectory("tran-cache");
+        try {
+            var cache = new ParseCache(directory);
+            cache.parse(text.toString());
+            try (var files = Files.list(directory)) {
+                Assertions.assertEquals(1, files.count());
+            }
+            var cached = cache.parse(text.toString());
+            var node = ((AssignmentNode) cached.Classes.get(0).methods.get(0).statements.get(0)).expression;
+            int seen = 0;
+            while (node instanceof MathOpNode math) {
+                node = math.left;
+                seen++;
+            }
+            Assertions.assertEquals(depth, seen);
+        } finally {
+            try (var files = Files.walk(directory)) {
+                for (var f : files.sorted(Comparator.reverseOrder()).toList())
+                    Files.delete(f);
+            }
+        }
+    }
+}
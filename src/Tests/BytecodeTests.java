@@ -0,0 +1,114 @@
+package Tests;
+
+import AST.CharLiteralNode;
+import AST.NewNode;
+import AST.NumericLiteralNode;
+import AST.TranNode;
+import Interpreter.CharIDT;
+import Interpreter.Interpreter;
+import Interpreter.NumberIDT;
+import Interpreter.vm.CodeCache;
+import Interpreter.vm.Opcodes;
+import Tran.Lexer;
+import Tran.Parser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class BytecodeTests {
+    private static final String program = """
+            class Counter
+                number total
+                
+                construct()
+                    total = 1
+                    
+                shared start()
+                    number x
+                    number y
+                    Counter c
+                    x = 6
+                    y = x * 2 + 1
+                    c = new Counter()
+                    if y > x
+                        x = y
+            """;
+
+    @Test
+    public void compileArithmetic() throws Exception {
+        var tran = parse(program);
+        var cache = new CodeCache();
+        new Interpreter(tran, cache);
+        var start = cache.get(tran.Classes.get(0).methods.get(0));
+        Assertions.assertEquals(3, start.frameSize);
+        Assertions.assertEquals("""
+                0: PCONST 3 0
+                3: PMOVE 0 3
+                6: PCONST 3 1
+                9: MUL_P 4 0 3
+                13: PCONST 5 2
+                16: ADD_P 6 4 5
+                20: PMOVE 1 6
+                23: NEW 3 3 0
+                27: MOVE 2 3
+                30: GT_P 3 1 0
+                34: JMP_FALSE_P 3 40
+                37: PMOVE 0 1
+                """, start.toString());
+    }
+
+    @Test
+    public void compileMembers() throws Exception {
+        var tran = parse(program);
+        var cache = new CodeCache();
+        new Interpreter(tran, cache);
+        var constructor = cache.get(tran.Classes.get(0).constructors.get(0));
+        Assertions.assertEquals("""
+                0: PCONST 0 0
+                3: GET_MEMBER 1 0
+                6: PSTORE 1 0 0
+                """, constructor.toString());
+        Assertions.assertSame(constructor, cache.get(tran.Classes.get(0).constructors.get(0)));
+    }
+
+    @Test
+    public void runCompiled() throws Exception {
+        var tran = parse(program);
+        new Interpreter(tran, new CodeCache()).start();
+    }
+
+    @Test
+    public void runUnboxed() throws Exception {
+        var tran = parse("""
+                class Box
+                    number total
+                    string label
+                    
+                    construct(number x, character c)
+                        if c < 'b'
+                            x = x * 3
+                        total = x + 1
+                        label = "n" + x
+                """);
+        var cache = new CodeCache();
+        var interpreter = new Interpreter(tran, cache);
+        var nn = new NewNode();
+        nn.className = "Box";
+        nn.parameters.add(new NumericLiteralNode());
+        nn.parameters.add(new CharLiteralNode());
+        var box = interpreter.construct(nn, List.of(new NumberIDT(7), new CharIDT('a')));
+        Assertions.assertEquals(22, ((NumberIDT) box.fields[0]).Value);
+        Assertions.assertEquals("n21", box.fields[1].toString());
+
+        var compiled = cache.get(tran.Classes.get(0).constructors.get(0));
+        Assertions.assertArrayEquals(new int[]{Opcodes.NUMBER, Opcodes.CHARACTER}, compiled.frameKinds);
+        Assertions.assertTrue(compiled.toString().contains("LT_P"));
+    }
+
+    private static TranNode parse(String program) throws Exception {
+        var tran = new TranNode();
+        new Parser(tran, new Lexer(program).Lex()).Tran();
+        return tran;
+    }
+}
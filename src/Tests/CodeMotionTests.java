@@ -0,0 +1,162 @@
+package Tests;
+
+import AST.*;
+import Interpreter.CodeMotion;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static Tests.TestPrograms.call;
+import static Tests.TestPrograms.run;
+
+public class CodeMotionTests {
+    private static final String grades = """
+            class Grades
+                shared start()
+                    number gradea
+                    number gradeb
+                    number gradec
+                    number i
+                    number total
+                    gradea = 90
+                    gradeb = 85
+                    gradec = 71
+                    loop i
+                        total = total + (gradea + gradeb + gradec) / 3
+                        i = i + 1
+            """;
+
+    private static TranNode parse(String program) throws Exception {
+        var tran = TestPrograms.parse(program);
+        // Tran can't compare in a loop condition, so make the first loop in start() "loop i < 4" by hand
+        for (var s : tran.Classes.get(0).methods.get(0).statements) {
+            if (s instanceof LoopNode l) {
+                var i = new VariableReferenceNode();
+                i.name = "i";
+                var four = new NumericLiteralNode();
+                four.isInteger = true;
+                four.integerValue = 4;
+                four.value = 4;
+                var compare = new CompareNode();
+                compare.op = CompareNode.CompareOperations.lt;
+                compare.left = i;
+                compare.right = four;
+                l.expression = compare;
+                break;
+            }
+        }
+        return tran;
+    }
+
+    private static TranNode grades() throws Exception {
+        var tran = parse(grades);
+        tran.Classes.get(0).methods.get(0).statements.add(call("console", "write", List.of(), "total"));
+        return tran;
+    }
+
+    private static List<StatementNode> optimized(TranNode tran) {
+        new CodeMotion().optimize(tran);
+        return tran.Classes.get(0).methods.get(0).statements;
+    }
+
+    @Test
+    public void hoistsInvariantMath() throws Exception {
+        var tran = grades();
+        var statements = optimized(tran);
+
+        var hoisted = (AssignmentNode) statements.get(3);
+        Assertions.assertEquals("hoisted$1", hoisted.target.name);
+        Assertions.assertEquals(MathOpNode.MathOperations.divide, ((MathOpNode) hoisted.expression).op);
+        var loop = (LoopNode) statements.get(4);
+        var sum = (MathOpNode) ((AssignmentNode) loop.statements.get(0)).expression;
+        Assertions.assertEquals("hoisted$1", ((VariableReferenceNode) sum.right).name);
+        Assertions.assertInstanceOf(MathOpNode.class, ((AssignmentNode) loop.statements.get(1)).expression); // i changes
+        var local = tran.Classes.get(0).methods.get(0).locals.getLast();
+        Assertions.assertEquals("hoisted$1", local.name);
+        Assertions.assertEquals("number", local.type);
+
+        Assertions.assertEquals(run(grades()), run(tran));
+    }
+
+    @Test
+    public void leavesWhatCouldChange() throws Exception {
+        var tran = parse("""
+                class Grades
+                    number best
+                    shared start()
+                        number i
+                        number x
+                        string s
+                        boolean b
+                        loop i
+                            x = i * 2
+                            x = s * 2
+                            x = x + 1
+                            i = i + 1
+                    check()
+                        number i
+                        number x
+                        loop i
+                            x = best + 1
+                            i = i + 1
+                """);
+        ((LoopNode) tran.Classes.get(0).methods.get(1).statements.get(0)).statements.add(call(null, "check", List.of()));
+        new CodeMotion().optimize(tran);
+        for (var m : tran.Classes.get(0).methods) {
+            Assertions.assertInstanceOf(LoopNode.class, m.statements.get(0), m.name);
+            Assertions.assertEquals(1, m.statements.size(), m.name);
+        }
+    }
+
+    @Test
+    public void sharesCommonSubexpressions() throws Exception {
+        String program = """
+                class Shared
+                    shared start()
+                        number a
+                        number b
+                        number c
+                        number x
+                        number y
+                        number z
+                        a = 3
+                        b = 4
+                        c = 5
+                        x = (a + b) * (a + b)
+                        y = (a + b) - c
+                        a = 1
+                        z = a + b
+                """;
+        var tran = TestPrograms.parse(program);
+        tran.Classes.get(0).methods.get(0).statements.add(call("console", "write", List.of(), "x", "y", "z"));
+        var statements = optimized(tran);
+
+        var shared = (AssignmentNode) statements.get(3);
+        Assertions.assertEquals("hoisted$1", shared.target.name);
+        var square = (MathOpNode) ((AssignmentNode) statements.get(4)).expression;
+        Assertions.assertEquals("hoisted$1", ((VariableReferenceNode) square.left).name);
+        Assertions.assertEquals("hoisted$1", ((VariableReferenceNode) square.right).name);
+        var difference = (MathOpNode) ((AssignmentNode) statements.get(5)).expression;
+        Assertions.assertEquals("hoisted$1", ((VariableReferenceNode) difference.left).name);
+        Assertions.assertInstanceOf(MathOpNode.class, ((AssignmentNode) statements.get(7)).expression); // a changed
+
+        Assertions.assertEquals("4925", run(tran).strip()); // 49, 2 and 5
+    }
+
+    @Test
+    public void callsEndSharingOfMembers() throws Exception {
+        var tran = TestPrograms.parse("""
+                class Shared
+                    number total
+                    bump()
+                        number x
+                        number y
+                        x = total + 1
+                        y = total + 1
+                """);
+        tran.Classes.get(0).methods.get(0).statements.add(1, call(null, "bump", List.of()));
+        var statements = optimized(tran);
+        Assertions.assertEquals(3, statements.size());
+    }
+}
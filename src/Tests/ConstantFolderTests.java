@@ -0,0 +1,117 @@
+package Tests;
+
+import AST.*;
+import Interpreter.ConstantFolder;
+import Interpreter.Interpreter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static Tests.TestPrograms.parse;
+
+public class ConstantFolderTests {
+
+    private static List<StatementNode> folded(String body) throws Exception {
+        var tran = parse("""
+                class Folding
+                    string label
+                    shared start()
+                        number x
+                        number y
+                        string s
+                        boolean b
+                """ + body.indent(8));
+        new ConstantFolder().fold(tran);
+        new Interpreter(tran); // the folded tree still resolves
+        return tran.Classes.get(0).methods.get(0).statements;
+    }
+
+    private static ExpressionNode assigned(List<StatementNode> statements, int index) {
+        return ((AssignmentNode) statements.get(index)).expression;
+    }
+
+    @Test
+    public void literals() throws Exception {
+        var statements = folded("""
+                x = 2 * 3 + 4
+                x = 7 / 2
+                x = (1 + 2) * y
+                s = "a" + 1 + 'c'
+                if 1 < 2
+                    x = 9223372036854775807 + 1
+                """);
+        var exact = (NumericLiteralNode) assigned(statements, 0);
+        Assertions.assertTrue(exact.isInteger);
+        Assertions.assertEquals(10, exact.integerValue);
+        var fraction = (NumericLiteralNode) assigned(statements, 1);
+        Assertions.assertFalse(fraction.isInteger);
+        Assertions.assertEquals(3.5, fraction.value);
+        var partly = (MathOpNode) assigned(statements, 2);
+        Assertions.assertEquals(3, ((NumericLiteralNode) partly.left).integerValue);
+        Assertions.assertEquals("a1c", ((StringLiteralNode) assigned(statements, 3)).value);
+
+        var ifNode = (IfNode) statements.get(4);
+        Assertions.assertTrue(((BooleanLiteralNode) ifNode.condition).value);
+        var overflowed = (NumericLiteralNode) assigned(ifNode.statements, 0);
+        Assertions.assertFalse(overflowed.isInteger);
+    }
+
+    @Test
+    public void identities() throws Exception {
+        var statements = folded("""
+                x = y * 1
+                x = 1 * y
+                x = y / 1
+                x = y - 0
+                x = y + 0
+                x = y * 1.0
+                s = label * 1
+                s = label + "a" + "b"
+                """);
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertInstanceOf(VariableReferenceNode.class, assigned(statements, i), "statement " + i);
+        }
+        Assertions.assertInstanceOf(MathOpNode.class, assigned(statements, 4));
+        Assertions.assertInstanceOf(MathOpNode.class, assigned(statements, 5));
+        Assertions.assertInstanceOf(MathOpNode.class, assigned(statements, 6)); // a string * 1 still fails when it runs
+        var concatenated = (MathOpNode) assigned(statements, 7);
+        Assertions.assertInstanceOf(VariableReferenceNode.class, concatenated.left);
+        Assertions.assertEquals("ab", ((StringLiteralNode) concatenated.right).value);
+    }
+
+    @Test
+    public void errorsStayForRunTime() throws Exception {
+        var statements = folded("""
+                x = "a" * 2
+                if 'c' < "d"
+                    x = 1
+                """);
+        Assertions.assertInstanceOf(MathOpNode.class, assigned(statements, 0));
+        Assertions.assertInstanceOf(CompareNode.class, ((IfNode) statements.get(1)).condition);
+    }
+
+    @Test
+    public void notNot() throws Exception {
+        var tran = parse("""
+                class Folding
+                    shared start()
+                        boolean b
+                        number x
+                        b = b
+                        b = x
+                """);
+        var statements = tran.Classes.get(0).methods.get(0).statements;
+        for (var s : statements) {
+            var a = (AssignmentNode) s;
+            var inner = new NotOpNode();
+            inner.left = a.expression;
+            var outer = new NotOpNode();
+            outer.left = inner;
+            a.expression = outer;
+        }
+        new ConstantFolder().fold(tran);
+        Assertions.assertInstanceOf(VariableReferenceNode.class, assigned(statements, 0));
+        Assertions.assertInstanceOf(NotOpNode.class, assigned(statements, 1)); // not of a number still fails when it runs
+    }
+}
@@ -0,0 +1,93 @@
+package Tests;
+
+import AST.*;
+import Tran.Lexer;
+import Tran.Parser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.Reader;
+import java.util.List;
+
+public class DeepNestingTests {
+
+    /**
+     * depth blocks, alternating if and loop, one inside the other, with one statement in the innermost and one after
+     * each block as we back out of them. The text is made a line at a time as the lexer reads it - written out, the
+     * indentation alone would be depth * depth characters.
+     */
+    private static Reader nestedBlocks(int depth) {
+        return new Reader() {
+            private int line = -1;
+            private String current = "class Deep\n\tshared start()\n\t\tnumber x\n";
+            private int position;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                while (position == current.length()) {
+                    if (++line > 2 * depth) {
+                        return -1;
+                    }
+                    if (line < depth) {
+                        current = "\t".repeat(line + 2) + (line % 2 == 0 ? "if x\n" : "loop x\n");
+                    } else if (line == depth) {
+                        current = "\t".repeat(depth + 2) + "x = 1\n";
+                    } else {
+                        int i = 2 * depth - line;
+                        current = "\t".repeat(i + 2) + "x = " + i + "\n";
+                    }
+                    position = 0;
+                }
+                int count = Math.min(length, current.length() - position);
+                current.getChars(position, position + count, buffer, offset);
+                position += count;
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Test
+    public void deeplyNestedBlocks() throws Exception {
+        int depth = 20000;
+        var tran = new TranNode();
+        new Parser(tran, new Lexer(nestedBlocks(depth))).Tran();
+        List<StatementNode> statements = tran.Classes.get(0).methods.get(0).statements;
+        for (int i = 0; i < depth; i++) {
+            Assertions.assertEquals(2, statements.size(), "statements at depth " + i);
+            var after = (AssignmentNode) statements.get(1);
+            Assertions.assertEquals(i, ((NumericLiteralNode) after.expression).integerValue);
+            if (i % 2 == 0) {
+                statements = ((IfNode) statements.get(0)).statements;
+            } else {
+                statements = ((LoopNode) statements.get(0)).statements;
+            }
+        }
+        Assertions.assertEquals(1, statements.size());
+        Assertions.assertInstanceOf(AssignmentNode.class, statements.get(0));
+    }
+
+    @Test
+    public void errorsInNestedBlocks() throws Exception {
+        var tran = new TranNode();
+        var errors = new Parser(tran, new Lexer("""
+                class Nested
+                    shared start()
+                        number x
+                        if x
+                            loop x
+                                x = +
+                            x = 2
+                        x = 3
+                """).Lex()).TranWithRecovery();
+        Assertions.assertEquals(1, errors.size());
+        var statements = tran.Classes.get(0).methods.get(0).statements;
+        Assertions.assertEquals(2, statements.size());
+        var ifNode = (IfNode) statements.get(0);
+        Assertions.assertEquals(2, ifNode.statements.size());
+        Assertions.assertInstanceOf(ErrorNode.class, ((LoopNode) ifNode.statements.get(0)).statements.get(0));
+    }
+}
@@ -0,0 +1,148 @@
+package Tests;
+
+import AST.*;
+import Interpreter.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static Tests.TestPrograms.call;
+import static Tests.TestPrograms.parse;
+import static Tests.TestPrograms.run;
+
+public class DispatchTests {
+
+    private static MethodDeclarationNode method(String name, String... parameterTypes) {
+        var m = new MethodDeclarationNode();
+        m.name = name;
+        for (var type : parameterTypes) {
+            var p = new VariableDeclarationNode();
+            p.type = type;
+            p.name = "p" + m.parameters.size();
+            m.parameters.add(p);
+        }
+        return m;
+    }
+
+    @Test
+    public void methodTableGroupsByNameAndArity() {
+        var c = new ClassNode();
+        var byNumber = method("pick", "number");
+        var byString = method("pick", "string");
+        var pair = method("pick", "number", "number");
+        c.methods.addAll(List.of(byNumber, byString, pair, method("other")));
+        var write = new ConsoleWrite();
+        write.name = "write";
+        write.isVariadic = true;
+        c.methods.add(write);
+
+        var table = new MethodTable(c);
+        Assertions.assertEquals(List.of(byNumber, byString), table.candidates("pick", 1));
+        Assertions.assertEquals(List.of(pair), table.candidates("pick", 2));
+        Assertions.assertTrue(table.candidates("pick", 3).isEmpty());
+        Assertions.assertTrue(table.candidates("missing", 0).isEmpty());
+        Assertions.assertEquals(List.of(write), table.candidates("write", 0));
+        Assertions.assertEquals(List.of(write), table.candidates("write", 5));
+    }
+
+    @Test
+    public void inlineCacheGoesMegamorphic() {
+        var cache = new InlineCache();
+        var classes = new ClassNode[5];
+        var methods = new MethodDeclarationNode[5];
+        for (int i = 0; i < 5; i++) {
+            classes[i] = new ClassNode();
+            methods[i] = method("m");
+        }
+        List<InterpreterDataType> none = List.of();
+        Assertions.assertNull(cache.lookup(classes[0], none));
+
+        for (int i = 0; i < 4; i++)
+            cache.remember(classes[i], none, methods[i]);
+        for (int i = 0; i < 4; i++)
+            Assertions.assertSame(methods[i], cache.lookup(classes[i], none));
+        Assertions.assertFalse(cache.isMegamorphic());
+
+        cache.remember(classes[4], none, methods[4]);
+        Assertions.assertTrue(cache.isMegamorphic());
+        Assertions.assertNull(cache.lookup(classes[4], none));
+        Assertions.assertNull(cache.lookup(classes[0], none)); // straight to the MethodTable from now on
+    }
+
+    @Test
+    public void inlineCacheKeysOnTheKindsOfValues() {
+        var cache = new InlineCache();
+        var c = new ClassNode();
+        var byNumber = method("pick", "number");
+        var byReference = method("pick", "Named");
+        cache.remember(c, List.of(new NumberIDT(1)), byNumber);
+        cache.remember(c, List.of(new ReferenceIDT()), byReference);
+
+        Assertions.assertSame(byNumber, cache.lookup(c, List.of(new NumberIDT(2.5))));
+        Assertions.assertSame(byReference, cache.lookup(c, List.of(new ReferenceIDT())));
+        Assertions.assertNull(cache.lookup(c, List.of(new StringIDT("1"))));
+        Assertions.assertNull(cache.lookup(c, List.of()));
+        Assertions.assertNull(cache.lookup(new ClassNode(), List.of(new NumberIDT(1))));
+    }
+
+    @Test
+    public void callSitesRememberTheirMethod() throws Exception {
+        var tran = parse("""
+                class Student
+                    string grade
+                    construct()
+                        grade = "A"
+                    getGrade() : string g
+                        g = grade
+                    shared start()
+                        Student s
+                        string a
+                        s = new Student()
+                """);
+        var getGrade = call("s", "getGrade", List.of("a"));
+        var start = TestPrograms.method(tran, "start");
+        start.statements.add(getGrade);
+        start.statements.add(call("console", "write", List.of(), "a"));
+
+        Assertions.assertEquals("A", run(tran).strip());
+        Assertions.assertSame(TestPrograms.method(tran, "getGrade"), getGrade.inlineCache.lookup(tran.Classes.get(0), List.of()));
+    }
+
+    @Test
+    public void overloadsDontDependOnCallHistory() throws Exception {
+        var tran = parse("""
+                interface Named
+                    id() : number n
+                class A implements Named
+                    id() : number n
+                        n = 1
+                class B implements Named
+                    id() : number n
+                        n = 2
+                class Picker
+                    shared pick(A a) : number n
+                        n = 1
+                    shared pick(Named x) : number n
+                        n = 2
+                    shared choose(Named x) : number n
+                        n = 0
+                    shared start()
+                        A a
+                        B b
+                        number first
+                        number second
+                        a = new A()
+                        b = new B()
+                """);
+        var picker = tran.Classes.get(2);
+        // One call site in choose() sees a B, then an A
+        picker.methods.get(2).statements.set(0, call("Picker", "pick", List.of("n"), "x"));
+        var start = picker.methods.get(3).statements;
+        start.add(call("Picker", "choose", List.of("first"), "b"));
+        start.add(call("Picker", "choose", List.of("second"), "a"));
+        start.add(call("console", "write", List.of(), "first", "second"));
+
+        Assertions.assertEquals("21", run(tran).strip());
+    }
+}
@@ -0,0 +1,80 @@
+package Tests;
+
+import AST.*;
+import Tran.Lexer;
+import Tran.Parser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ExpressionParserTests {
+
+    private static ExpressionNode assigned(String expression) throws Exception {
+        var tran = new TranNode();
+        new Parser(tran, new Lexer("class E\n    shared start()\n        number x\n        x = " + expression + "\n").Lex()).Tran();
+        return ((AssignmentNode) tran.Classes.get(0).methods.get(0).statements.get(0)).expression;
+    }
+
+    private static ExpressionNode condition(String expression) throws Exception {
+        var tran = new TranNode();
+        new Parser(tran, new Lexer("class E\n    shared start()\n        if " + expression + "\n            x = 1\n").Lex()).Tran();
+        return ((IfNode) tran.Classes.get(0).methods.get(0).statements.get(0)).condition;
+    }
+
+    @Test
+    public void precedenceAndAssociativity() throws Exception {
+        Assertions.assertEquals("a + b * c - d", assigned("a + b * c - d").toString());
+        var sum = (MathOpNode) assigned("a + b * c - d");
+        Assertions.assertEquals(MathOpNode.MathOperations.subtract, sum.op);
+        var left = (MathOpNode) sum.left;
+        Assertions.assertEquals(MathOpNode.MathOperations.add, left.op);
+        Assertions.assertEquals(MathOpNode.MathOperations.multiply, ((MathOpNode) left.right).op);
+
+        var quotient = (MathOpNode) assigned("a / b % c");
+        Assertions.assertEquals(MathOpNode.MathOperations.modulo, quotient.op);
+        Assertions.assertEquals(MathOpNode.MathOperations.divide, ((MathOpNode) quotient.left).op);
+
+        var grouped = (MathOpNode) assigned("(a + b) * c");
+        Assertions.assertEquals(MathOpNode.MathOperations.multiply, grouped.op);
+        Assertions.assertInstanceOf(MathOpNode.class, grouped.left);
+    }
+
+    @Test
+    public void conditions() throws Exception {
+        var compare = (CompareNode) condition("a + 1 < b * 2");
+        Assertions.assertEquals(CompareNode.CompareOperations.lt, compare.op);
+        Assertions.assertInstanceOf(MathOpNode.class, compare.left);
+        Assertions.assertInstanceOf(MathOpNode.class, compare.right);
+
+        // after one comparison, == and != join comparisons together
+        var joined = (BooleanOpNode) condition("a == b != c < d");
+        Assertions.assertEquals(BooleanOpNode.BooleanOperations.or, joined.op);
+        Assertions.assertEquals(CompareNode.CompareOperations.eq, ((CompareNode) joined.left).op);
+        Assertions.assertEquals(CompareNode.CompareOperations.lt, ((CompareNode) joined.right).op);
+    }
+
+    @Test
+    public void deepNesting() throws Exception {
+        int depth = 100000;
+        var text = new StringBuilder();
+        text.append("(".repeat(depth)).append("1");
+        for (int i = 0; i < depth; i++) {
+            text.append(i % 2 == 0 ? " + 1)" : " * 2)");
+        }
+        ExpressionNode node = assigned(text.toString());
+        int seen = 0;
+        while (node instanceof MathOpNode math) {
+            node = math.left;
+            seen++;
+        }
+        Assertions.assertEquals(depth, seen);
+
+        var chain = assigned("1" + " + 1".repeat(50000));
+        Assertions.assertInstanceOf(MathOpNode.class, chain);
+    }
+
+    @Test
+    public void missingOperand() {
+        Assertions.assertThrows(Tran.SyntaxErrorException.class, () -> assigned("a +"));
+        Assertions.assertThrows(Tran.SyntaxErrorException.class, () -> assigned("(a + b"));
+    }
+}
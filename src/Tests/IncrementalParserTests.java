@@ -0,0 +1,102 @@
+package Tests;
+
+import AST.TranNode;
+import Tran.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class IncrementalParserTests {
+    private static final String program = """
+            interface Shape
+                area() : number a
+            class Square implements Shape
+                number side
+                construct(number s)
+                    side = s
+                area() : number a
+                    a = side * side
+                grow(number by)
+                    side = side + by
+            class Counter
+                number count
+                shared start()
+                    number i
+                    i = 1
+            """;
+
+    private static String fresh(String source) throws SyntaxErrorException {
+        var tran = new TranNode();
+        new Parser(tran, new Lexer(source).Lex()).Tran();
+        return tran.toString();
+    }
+
+    private static void replace(IncrementalParser parser, String from, String to) throws SyntaxErrorException {
+        int at = parser.getSource().indexOf(from);
+        parser.edit(at, from.length(), to);
+    }
+
+    @Test
+    public void editInsideAMethod() throws Exception {
+        var tran = new TranNode();
+        var parser = new IncrementalParser(tran, program);
+        Assertions.assertEquals(fresh(program), tran.toString());
+        var square = tran.Classes.get(0);
+        var area = square.methods.get(0);
+        var grow = square.methods.get(1);
+        var counter = tran.Classes.get(1);
+
+        replace(parser, "a = side * side", "a = side * side * 1");
+        Assertions.assertSame(square, tran.Classes.get(0));
+        Assertions.assertNotSame(area, square.methods.get(0));
+        Assertions.assertSame(grow, square.methods.get(1));
+        Assertions.assertSame(counter, tran.Classes.get(1));
+        Assertions.assertEquals(fresh(parser.getSource()), tran.toString());
+
+        // The pieces and spans after the edit have moved - they still have to line up
+        replace(parser, "side = side + by", "side = by");
+        Assertions.assertSame(square, tran.Classes.get(0));
+        replace(parser, "i = 1", "i = 2");
+        Assertions.assertSame(square, tran.Classes.get(0));
+        Assertions.assertSame(counter, tran.Classes.get(1));
+        Assertions.assertEquals(fresh(parser.getSource()), tran.toString());
+    }
+
+    @Test
+    public void editsThatNeedMore() throws Exception {
+        var tran = new TranNode();
+        var parser = new IncrementalParser(tran, program);
+        var shape = tran.Interfaces.get(0);
+        var counter = tran.Classes.get(1);
+
+        // A new member: the class is parsed again, nothing else is
+        replace(parser, "    number side\n", "    number side\n    string name\n");
+        Assertions.assertEquals(2, tran.Classes.get(0).members.size());
+        Assertions.assertSame(shape, tran.Interfaces.get(0));
+        Assertions.assertSame(counter, tran.Classes.get(1));
+
+        // A new method in the middle of another method's span
+        replace(parser, "        a = side * side\n", "        a = side * side\n    double()\n        side = side * 2\n");
+        Assertions.assertEquals(3, tran.Classes.get(0).methods.size());
+        Assertions.assertSame(counter, tran.Classes.get(1));
+        Assertions.assertEquals(fresh(parser.getSource()), tran.toString());
+
+        // A new class: everything is parsed again
+        replace(parser, "class Counter", "class Extra\n    number e\nclass Counter");
+        Assertions.assertEquals(3, tran.Classes.size());
+        Assertions.assertEquals(fresh(parser.getSource()), tran.toString());
+    }
+
+    @Test
+    public void errorsLeaveTheTreeAlone() throws Exception {
+        var tran = new TranNode();
+        var parser = new IncrementalParser(tran, program);
+        var before = tran.toString();
+        var error = Assertions.assertThrows(SyntaxErrorException.class, () -> replace(parser, "a = side * side", "a = side * (side"));
+        var expected = Assertions.assertThrows(SyntaxErrorException.class, () -> fresh(parser.getSource()));
+        Assertions.assertEquals(expected.toString(), error.toString());
+        Assertions.assertEquals(before, tran.toString());
+
+        replace(parser, "a = side * (side", "a = side");
+        Assertions.assertEquals(fresh(parser.getSource()), tran.toString());
+    }
+}
@@ -0,0 +1,112 @@
+package Tests;
+
+import AST.*;
+import Interpreter.Inliner;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static Tests.TestPrograms.*;
+
+public class InlinerTests {
+    private static final String student = """
+            class Student
+                number gradea
+                number gradeb
+                number gradec
+                construct()
+                    gradea = 90
+                    gradeb = 85
+                    gradec = 71
+                getAverage() : number average
+                    average = (gradea + gradeb + gradec) / 3
+                report() : number a, number b
+                    a = 0
+                count() : number c
+                    c = c + 1
+                shared twice(number x) : number y
+                    y = x * 2
+                shared start()
+                    Student s
+                    number a
+                    number b
+                    number n
+                    s = new Student()
+            """;
+
+    /**
+     * The student program, with report() calling getAverage() and count() twice, and start() calling twice() and
+     * writing what report() gave back.
+     */
+    private static TranNode student() throws Exception {
+        var tran = parse(student);
+        var report = method(tran, "report");
+        report.statements.add(call(null, "getAverage", List.of("a")));
+        report.statements.add(call(null, "count", List.of("b")));
+        report.statements.add(call(null, "count", List.of("b")));
+        var start = method(tran, "start");
+        start.statements.add(call("s", "report", List.of("a", "b")));
+        start.statements.add(call("Student", "twice", List.of("n"), "a"));
+        start.statements.add(call("console", "write", List.of(), "a", "b", "n"));
+        return tran;
+    }
+
+    @Test
+    public void inlinesSmallMethods() throws Exception {
+        var tran = student();
+        new Inliner().inline(tran);
+
+        var report = method(tran, "report");
+        for (var s : report.statements)
+            Assertions.assertInstanceOf(AssignmentNode.class, s);
+        var average = (AssignmentNode) report.statements.get(1);
+        Assertions.assertEquals("average$1", average.target.name);
+        Assertions.assertEquals("a", ((AssignmentNode) report.statements.get(2)).target.name);
+        var reset = (AssignmentNode) report.statements.get(3); // count() reads c before it sets it
+        Assertions.assertEquals("c$2", reset.target.name);
+        Assertions.assertEquals(0, ((NumericLiteralNode) reset.expression).integerValue);
+        Assertions.assertEquals(List.of("average$1", "c$2", "c$3"), report.locals.stream().map(d -> d.name).toList());
+
+        var start = method(tran, "start");
+        Assertions.assertInstanceOf(MethodCallStatementNode.class, start.statements.get(1)); // s.report() is on an object
+        Assertions.assertEquals("x$1", ((AssignmentNode) start.statements.get(2)).target.name);
+        Assertions.assertInstanceOf(MethodCallStatementNode.class, start.statements.getLast()); // console is built in
+
+        Assertions.assertEquals("821164", run(tran).strip()); // 82, 1 and 164
+        Assertions.assertEquals(run(student()), run(tran));
+    }
+
+    @Test
+    public void leavesCallsThatMightMeanSomethingElse() throws Exception {
+        var tran = parse("""
+                class Caller
+                    number total
+                    get() : number n
+                        n = total
+                    set(number n)
+                        total = n
+                    set(string s)
+                        total = 0
+                    grow()
+                        total = total + 1
+                    shared start()
+                        number x
+                    run()
+                        number total
+                        string s
+                        number x
+                """);
+        var start = method(tran, "start");
+        start.statements.add(call(null, "get", List.of("x"))); // no object in a shared method
+        var run = method(tran, "run");
+        run.statements.add(call(null, "get", List.of("x"))); // the local total hides the member
+        run.statements.add(call(null, "set", List.of(), "x")); // two set()s with one parameter
+        run.statements.add(call(null, "grow", List.of("x"))); // more return values than grow() has
+        run.statements.add(call(null, "run", List.of())); // calls itself
+        new Inliner().inline(tran);
+        Assertions.assertEquals(1, start.statements.size());
+        Assertions.assertEquals(4, run.statements.size());
+        Assertions.assertEquals(3, run.locals.size());
+    }
+}
@@ -1,10 +1,14 @@
 package Tests;
 
 import Tran.*;
-import AST.TranNode;
+import AST.*;
 import Interpreter.Interpreter;
+import Interpreter.NumberIDT;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 public class InterpreterTests {
     @Test
     public void SimpleAdd() {
@@ -124,6 +128,83 @@ public class InterpreterTests {
         run(program);
     }
 
+    @Test
+    public void ResolvedSlots() throws Exception {
+        String program = """
+                class Slots
+                    number total
+                    
+                    add(number n) : number r
+                        number t
+                        t = n
+                        r = total + t
+                        
+                    shared start()
+                        number x
+                        number y
+                        x = 6
+                        y = x
+                """;
+        var tran = new TranNode();
+        new Parser(tran, new Lexer(program).Lex()).Tran();
+        new Interpreter(tran);
+
+        var add = tran.Classes.get(0).methods.get(0);
+        var t = (AssignmentNode) add.statements.get(0);
+        Assertions.assertEquals(VariableReferenceNode.VariableScope.local, t.target.scope);
+        Assertions.assertEquals(2, t.target.slot);
+        Assertions.assertEquals(0, ((VariableReferenceNode) t.expression).slot);
+        var r = (AssignmentNode) add.statements.get(1);
+        Assertions.assertEquals(1, r.target.slot);
+        var total = (VariableReferenceNode) ((MathOpNode) r.expression).left;
+        Assertions.assertEquals(VariableReferenceNode.VariableScope.member, total.scope);
+        Assertions.assertEquals(0, total.slot);
+
+        var start = tran.Classes.get(0).methods.get(1);
+        Assertions.assertEquals(0, ((AssignmentNode) start.statements.get(0)).target.slot);
+        Assertions.assertEquals(1, ((AssignmentNode) start.statements.get(1)).target.slot);
+    }
+
+    @Test
+    public void ObjectShape() throws Exception {
+        String program = """
+                class Point
+                    number x
+                    string label
+                    construct()
+                        x = 3
+                        label = "p"
+                """;
+        var tran = new TranNode();
+        new Parser(tran, new Lexer(program).Lex()).Tran();
+        var interpreter = new Interpreter(tran);
+        var nn = new NewNode();
+        nn.className = "Point";
+
+        var point = interpreter.construct(nn, List.of());
+        Assertions.assertEquals(2, point.fields.length);
+        Assertions.assertEquals(1, point.shape.slotOf("label"));
+        Assertions.assertEquals(-1, point.shape.slotOf("y"));
+        Assertions.assertEquals(3, ((NumberIDT) point.fields[0]).Value);
+        Assertions.assertEquals("p", point.fields[1].toString());
+        Assertions.assertEquals(List.of("x", "label"), List.copyOf(point.members().keySet()));
+    }
+
+    @Test
+    public void builtInsStayOutOfTheAST() throws Exception {
+        var tran = new TranNode();
+        new Parser(tran, new Lexer("""
+                class Twice
+                    shared start()
+                        number x
+                        x = 1
+                """).Lex()).Tran();
+        new Interpreter(tran).start();
+        new Interpreter(tran).start();
+        Assertions.assertEquals(1, tran.Classes.size());
+        Assertions.assertEquals(1, AstSnapshot.read(java.nio.ByteBuffer.wrap(AstSnapshot.write(tran))).Classes.size());
+    }
+
     private static void run(String program) {
         var l  = new Lexer(program);
         try {
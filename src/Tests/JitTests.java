@@ -0,0 +1,84 @@
+package Tests;
+
+import AST.*;
+import Interpreter.Interpreter;
+import Interpreter.InterpreterDataType;
+import Interpreter.NumberIDT;
+import Interpreter.jit.Jit;
+import Interpreter.jit.JitMethod;
+import Tran.Lexer;
+import Tran.Parser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class JitTests {
+    private static final String program = """
+            class Shapes
+                number scale
+                
+                shared area(number w, number h) : number a
+                    a = w * h - 1 % 3
+                    if a > 100
+                        a = 100
+                        
+                scaled(number w) : number s
+                    s = w * scale
+            """;
+
+    @Test
+    public void jitNumericMethod() throws Exception {
+        var area = Jit.compile(method(0));
+
+        InterpreterDataType[] frame = {new NumberIDT(4), new NumberIDT(5), new NumberIDT(0)};
+        area.run(frame);
+        Assertions.assertEquals(19.0, ((NumberIDT) frame[2]).Value);
+        Assertions.assertEquals(4.0, ((NumberIDT) frame[0]).Value);
+
+        frame = new InterpreterDataType[]{new NumberIDT(20), new NumberIDT(10), new NumberIDT(0)};
+        area.run(frame);
+        Assertions.assertEquals(100.0, ((NumberIDT) frame[2]).Value);
+    }
+
+    @Test
+    public void jitRefusesMembers() throws Exception {
+        var scaled = method(1);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> Jit.compile(scaled));
+    }
+
+    @Test
+    public void jitOnlyHotMethods() throws Exception {
+        var jit = new Jit(3);
+        var area = method(0);
+        Assertions.assertNull(jit.called(area));
+        Assertions.assertNull(jit.called(area));
+        Assertions.assertNotNull(jit.called(area));
+
+        var scaled = method(1);
+        for (int i = 0; i < 5; i++)
+            Assertions.assertNull(jit.called(scaled));
+    }
+
+    @Test
+    public void jitFailuresFallBackToTheInterpreter() throws Exception {
+        var jit = new Jit(1);
+        var area = method(0);
+        JitMethod broken = locals -> {
+            throw new IllegalStateException("broken jit code");
+        };
+        area.jitted = broken;
+        Assertions.assertSame(broken, jit.called(area));
+
+        InterpreterDataType[] frame = {new NumberIDT(4), new NumberIDT(5), new NumberIDT(0)};
+        Assertions.assertFalse(jit.run(area, broken, frame)); // the interpreter runs area on the same frame instead
+        Assertions.assertEquals(0.0, ((NumberIDT) frame[2]).Value);
+        Assertions.assertTrue(area.jitFailed);
+        Assertions.assertNull(jit.called(area)); // and keeps running it from now on
+    }
+
+    private static MethodDeclarationNode method(int index) throws Exception {
+        var tran = new TranNode();
+        new Parser(tran, new Lexer(program).Lex()).Tran();
+        new Interpreter(tran);
+        return tran.Classes.get(0).methods.get(index);
+    }
+}
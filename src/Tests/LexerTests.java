@@ -94,5 +94,51 @@ public class LexerTests {
         }
     }
 
+    @Test
+    public void ListenerTest() throws Exception {
+        var l = new Lexer("class A\n    number x\n");
+        var seen = new java.util.ArrayList<Token>();
+        l.setListener(seen::add);
+        var res = l.Lex();
+        Assertions.assertEquals(res, seen);
+
+        var file = java.nio.file.Files.createTempFile("trace", ".txt");
+        try {
+            l = new Lexer("a == b");
+            try (var trace = new LexerTraceFile(file)) {
+                l.setListener(trace);
+                l.Lex();
+            }
+            Assertions.assertEquals(java.util.List.of("WORD a@1,1", "EQUAL @1,3", "WORD b@1,6"), java.nio.file.Files.readAllLines(file));
+        } finally {
+            java.nio.file.Files.delete(file);
+        }
+    }
+
+    @Test
+    public void KeywordLookalikeTest() throws Exception {
+        var res = new Lexer("if iff new loop lool else elsa class Class shared private interface construct constructs implements élan x2").Lex();
+        var expected = java.util.List.of(Token.TokenTypes.IF, Token.TokenTypes.WORD, Token.TokenTypes.NEW, Token.TokenTypes.LOOP,
+                Token.TokenTypes.WORD, Token.TokenTypes.ELSE, Token.TokenTypes.WORD, Token.TokenTypes.CLASS, Token.TokenTypes.WORD,
+                Token.TokenTypes.SHARED, Token.TokenTypes.PRIVATE, Token.TokenTypes.INTERFACE, Token.TokenTypes.CONSTRUCT,
+                Token.TokenTypes.WORD, Token.TokenTypes.IMPLEMENTS, Token.TokenTypes.WORD, Token.TokenTypes.WORD);
+        Assertions.assertEquals(expected, res.stream().map(Token::getType).toList());
+        Assertions.assertEquals("constructs", res.get(13).getValue());
+        Assertions.assertEquals("élan", res.get(15).getValue());
+        Assertions.assertEquals("x2", res.get(16).getValue());
+    }
 
+    @Test
+    public void SharedNamesTest() throws Exception {
+        var text = "count = count + 12.5\nname = \"count\" 'c'\n";
+        for (var l : java.util.List.of(new Lexer(text), new Lexer(new java.io.StringReader(text)))) {
+            var res = l.Lex();
+            Assertions.assertEquals("count", res.get(0).getValue());
+            Assertions.assertSame(res.get(0).getValue(), res.get(2).getValue());
+            Assertions.assertEquals("12.5", res.get(4).getValue());
+            Assertions.assertEquals(Token.TokenTypes.QUOTEDSTRING, res.get(8).getType());
+            Assertions.assertEquals("count", res.get(8).getValue());
+            Assertions.assertEquals("c", res.get(9).getValue());
+        }
+    }
 }
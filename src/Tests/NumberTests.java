@@ -0,0 +1,92 @@
+package Tests;
+
+import AST.*;
+import Interpreter.*;
+import Interpreter.jit.Jit;
+import Tran.Lexer;
+import Tran.Parser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class NumberTests {
+
+    @Test
+    public void integersStayExact() {
+        var big = new NumberIDT(16777217);
+        var sum = Operations.numberMath(MathOpNode.MathOperations.add, big, new NumberIDT(1));
+        Assertions.assertTrue(sum.isInteger);
+        Assertions.assertEquals(16777218, sum.IntValue);
+        Assertions.assertEquals("16777218", sum.toString());
+
+        var even = Operations.numberMath(MathOpNode.MathOperations.divide, new NumberIDT(12), new NumberIDT(4));
+        Assertions.assertTrue(even.isInteger);
+        Assertions.assertEquals(3, even.IntValue);
+        var uneven = Operations.numberMath(MathOpNode.MathOperations.divide, new NumberIDT(7), new NumberIDT(2));
+        Assertions.assertFalse(uneven.isInteger);
+        Assertions.assertEquals(3.5, uneven.Value);
+        Assertions.assertEquals("3.5", uneven.toString());
+    }
+
+    @Test
+    public void overflowBecomesDouble() {
+        var max = new NumberIDT(Long.MAX_VALUE);
+        var more = Operations.numberMath(MathOpNode.MathOperations.add, max, new NumberIDT(1));
+        Assertions.assertFalse(more.isInteger);
+        Assertions.assertEquals(9.223372036854775807E18, more.Value);
+        var times = Operations.numberMath(MathOpNode.MathOperations.multiply, max, new NumberIDT(2));
+        Assertions.assertFalse(times.isInteger);
+        var zero = Operations.numberMath(MathOpNode.MathOperations.modulo, new NumberIDT(5), new NumberIDT(0));
+        Assertions.assertTrue(Double.isNaN(zero.Value));
+
+        Assertions.assertTrue(Operations.compareNumbers(new NumberIDT(Long.MAX_VALUE), new NumberIDT(Long.MAX_VALUE - 1)) > 0);
+        Assertions.assertEquals(0, Operations.compareNumbers(new NumberIDT(2), new NumberIDT(2.0)));
+    }
+
+    @Test
+    public void literalKinds() throws Exception {
+        var tran = new TranNode();
+        new Parser(tran, new Lexer("""
+                class Literals
+                    shared start()
+                        number a
+                        number b
+                        number c
+                        a = 9007199254740993
+                        b = 2.5
+                        c = 99999999999999999999
+                """).Lex()).Tran();
+        var start = tran.Classes.get(0).methods.get(0);
+        var a = (NumericLiteralNode) ((AssignmentNode) start.statements.get(0)).expression;
+        var b = (NumericLiteralNode) ((AssignmentNode) start.statements.get(1)).expression;
+        var c = (NumericLiteralNode) ((AssignmentNode) start.statements.get(2)).expression;
+        Assertions.assertTrue(a.isInteger);
+        Assertions.assertEquals(9007199254740993L, a.integerValue);
+        Assertions.assertFalse(b.isInteger);
+        Assertions.assertEquals(2.5, b.value);
+        Assertions.assertFalse(c.isInteger);
+    }
+
+    @Test
+    public void jitGivesUpOnNonIntegers() throws Exception {
+        var tran = new TranNode();
+        new Parser(tran, new Lexer("""
+                class Twice
+                    shared twice(number x) : number y
+                        y = x * 2
+                """).Lex()).Tran();
+        new Interpreter(tran);
+        var twice = tran.Classes.get(0).methods.get(0);
+        var jit = new Jit(1);
+        var compiled = jit.called(twice);
+        Assertions.assertNotNull(compiled);
+
+        InterpreterDataType[] frame = {new NumberIDT(21), new NumberIDT(0)};
+        Assertions.assertTrue(jit.run(twice, compiled, frame));
+        Assertions.assertEquals("42", frame[1].toString());
+
+        frame = new InterpreterDataType[]{new NumberIDT(Long.MAX_VALUE), new NumberIDT(0)};
+        Assertions.assertFalse(jit.run(twice, compiled, frame));
+        Assertions.assertEquals("0", frame[1].toString());
+        Assertions.assertNull(jit.called(twice));
+    }
+}
@@ -0,0 +1,43 @@
+package Tests;
+
+import AST.TranNode;
+import Tran.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ParallelParserTests {
+
+    private static String program(int classes) {
+        var source = new StringBuilder();
+        for (int i = 0; i < classes; i++) {
+            if (i % 100 == 0)
+                source.append("interface Shape").append(i).append("\n    area() : number a\n");
+            source.append("{ not a split:\nclass Fake }\nclass C").append(i).append("\n    number n").append(i)
+                    .append("\n    string s\n    shared make() : number r\n        r = ").append(i)
+                    .append("\n        s = \"\nclass Quoted\"\n");
+        }
+        return source.toString();
+    }
+
+    @Test
+    public void sameAsSequential() throws Exception {
+        var source = program(3000);
+        var sequential = new TranNode();
+        new Parser(sequential, new Lexer(source).Lex()).Tran();
+        var parallel = new TranNode();
+        new ParallelParser().parse(parallel, source);
+
+        Assertions.assertEquals(3000, parallel.Classes.size());
+        Assertions.assertEquals(30, parallel.Interfaces.size());
+        Assertions.assertEquals("C2999", parallel.Classes.get(2999).name);
+        Assertions.assertEquals(sequential.toString(), parallel.toString());
+    }
+
+    @Test
+    public void firstErrorWithFileLineNumbers() {
+        var source = program(3000).replace("class C2500\n", "class C2500\n    number = 5\n").replace("class C2900\n", "class C2900 (\n");
+        var sequential = Assertions.assertThrows(SyntaxErrorException.class, () -> new Parser(new TranNode(), new Lexer(source).Lex()).Tran());
+        var parallel = Assertions.assertThrows(SyntaxErrorException.class, () -> new ParallelParser().parse(new TranNode(), source));
+        Assertions.assertEquals(sequential.toString(), parallel.toString());
+    }
+}
@@ -130,6 +130,21 @@ public class Parser1Tests {
         Assertions.assertTrue(tokenManager.done(), "Token manager should be empty");
     }
 
+    @Test
+    public void testMatchAndSkipAndValue() {
+        Token token1 = createToken(Token.TokenTypes.LPAREN, 1, 1);
+        Token token2 = createToken(Token.TokenTypes.WORD, 1, 2, "hello");
+        Token token3 = createToken(Token.TokenTypes.QUOTEDSTRING, 1, 7);
+        TokenManager tokenManager = new TokenManager(new LinkedList<>(Arrays.asList(token1, token2, token3)));
+
+        assertFalse(tokenManager.matchAndSkip(Token.TokenTypes.WORD), "LPAREN isn't a WORD");
+        assertTrue(tokenManager.matchAndSkip(Token.TokenTypes.LPAREN), "LPAREN should match and be removed");
+        assertEquals(Optional.empty(), tokenManager.matchAndRemoveValue(Token.TokenTypes.NUMBER), "WORD isn't a NUMBER");
+        assertEquals(Optional.of("hello"), tokenManager.matchAndRemoveValue(Token.TokenTypes.WORD));
+        assertEquals(Optional.of(""), tokenManager.matchAndRemoveValue(Token.TokenTypes.QUOTEDSTRING), "No value reads as empty, like Token.getValue()");
+        Assertions.assertTrue(tokenManager.done(), "Token manager should be empty");
+    }
+
     @Test
     public void testPeek() {
         Token token1 = createToken(Token.TokenTypes.WORD, 1, 1, "hello");
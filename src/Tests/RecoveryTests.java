@@ -0,0 +1,70 @@
+package Tests;
+
+import AST.*;
+import Tran.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class RecoveryTests {
+
+    @Test
+    public void allErrorsInOnePass() throws Exception {
+        var tran = new TranNode();
+        var errors = new Parser(tran, new Lexer("""
+                class Broken
+                    number x
+                    string
+                    start()
+                        number i
+                        i = 1
+                        i = (2
+                        loop i
+                            i = i + )
+                            i = 3
+                        if
+                            i = 4
+                            i = 5
+                        i = 6
+                    stop(number n
+                        n = 1
+                class Fine
+                    number y
+                    go()
+                        y = 2
+                """).Lex()).TranWithRecovery();
+
+        // An error found at the end of a line is reported where its NEWLINE token is - the start of the next line
+        Assertions.assertEquals(5, errors.size(), errors.toString());
+        Assertions.assertEquals(4, errors.get(0).getLineNumber());
+        Assertions.assertEquals(8, errors.get(1).getLineNumber());
+        Assertions.assertEquals(9, errors.get(2).getLineNumber());
+        Assertions.assertEquals(12, errors.get(3).getLineNumber());
+        Assertions.assertEquals(16, errors.get(4).getLineNumber());
+
+        Assertions.assertEquals(2, tran.Classes.size());
+        var broken = tran.Classes.get(0);
+        Assertions.assertEquals(1, broken.members.size());
+        Assertions.assertEquals(1, broken.methods.size());
+        var start = broken.methods.get(0);
+        Assertions.assertEquals(5, start.statements.size());
+        Assertions.assertInstanceOf(AssignmentNode.class, start.statements.get(0));
+        Assertions.assertInstanceOf(ErrorNode.class, start.statements.get(1));
+        var loop = (LoopNode) start.statements.get(2);
+        Assertions.assertInstanceOf(ErrorNode.class, loop.statements.get(0));
+        Assertions.assertInstanceOf(AssignmentNode.class, loop.statements.get(1));
+        Assertions.assertInstanceOf(ErrorNode.class, start.statements.get(3));
+        Assertions.assertEquals("i = 6", start.statements.get(4).toString().trim());
+        Assertions.assertEquals("Fine", tran.Classes.get(1).name);
+        Assertions.assertEquals(1, tran.Classes.get(1).methods.get(0).statements.size());
+    }
+
+    @Test
+    public void noErrors() throws Exception {
+        var source = "class A\n    number x\n    go()\n        x = 1\n";
+        var tran = new TranNode();
+        Assertions.assertTrue(new Parser(tran, new Lexer(source).Lex()).TranWithRecovery().isEmpty());
+        var expected = new TranNode();
+        new Parser(expected, new Lexer(source).Lex()).Tran();
+        Assertions.assertEquals(expected.toString(), tran.toString());
+    }
+}
@@ -0,0 +1,58 @@
+package Tests;
+
+import AST.*;
+import Interpreter.*;
+import Interpreter.nodes.CompareNodes;
+import Interpreter.nodes.MathNodes;
+import Tran.Lexer;
+import Tran.Parser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SpecializationTests {
+
+    @Test
+    public void specializeOnFirstRun() throws Exception {
+        var tran = new TranNode();
+        new Parser(tran, new Lexer("""
+                class Special
+                    shared start()
+                        number x
+                        string s
+                        x = 6 * 2
+                        s = "a" + x
+                        if x > 3
+                            x = 1
+                """).Lex()).Tran();
+        var interpreter = new Interpreter(tran);
+        var start = tran.Classes.get(0).methods.get(0);
+        var times = (MathOpNode) ((AssignmentNode) start.statements.get(0)).expression;
+        var plus = (MathOpNode) ((AssignmentNode) start.statements.get(1)).expression;
+        var greater = (CompareNode) ((IfNode) start.statements.get(2)).condition;
+        Assertions.assertInstanceOf(MathNodes.Uninitialized.class, times.executable);
+
+        interpreter.start();
+        Assertions.assertInstanceOf(MathNodes.Numbers.class, times.executable);
+        Assertions.assertInstanceOf(MathNodes.Concatenate.class, plus.executable);
+        Assertions.assertInstanceOf(CompareNodes.Numbers.class, greater.executable);
+    }
+
+    @Test
+    public void deoptimizeWhenTypesChange() {
+        var node = new CompareNode();
+        node.op = CompareNode.CompareOperations.lt;
+        node.executable = CompareNodes.create(node);
+
+        var result = node.executable.execute(new NumberIDT(1), new NumberIDT(2));
+        Assertions.assertTrue(((BooleanIDT) result).Value);
+        Assertions.assertInstanceOf(CompareNodes.Numbers.class, node.executable);
+
+        result = node.executable.execute(new StringIDT("b"), new StringIDT("a"));
+        Assertions.assertFalse(((BooleanIDT) result).Value);
+        Assertions.assertInstanceOf(CompareNodes.Generic.class, node.executable);
+
+        result = node.executable.execute(new NumberIDT(1), new NumberIDT(2));
+        Assertions.assertTrue(((BooleanIDT) result).Value);
+        Assertions.assertInstanceOf(CompareNodes.Generic.class, node.executable);
+    }
+}
@@ -0,0 +1,133 @@
+package Tests;
+
+import AST.TranNode;
+import Tran.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+public class StreamingLexerTests {
+    private static final String program = """
+            class Tran
+                shared start()
+                    string s
+                    character c
+                    s = "héllo → wörld"
+                    c = 'ß'
+                    loop i
+                        c = 'x'
+            {a comment} class Other
+                number x
+            """;
+
+    /** A Reader that hands back one character per read, so that every token crosses a buffer refill */
+    private static Reader trickle(String text) {
+        return new Reader() {
+            private final StringReader inner = new StringReader(text);
+
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return inner.read(buffer, offset, Math.min(length, 1));
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static String describe(List<Token> tokens) {
+        var out = new StringBuilder();
+        for (var t : tokens)
+            out.append(t).append('@').append(t.getLineNumber()).append(':').append(t.getColumnNumber()).append(' ');
+        return out.toString();
+    }
+
+    @Test
+    public void readerMatchesString() throws Exception {
+        var expected = describe(new Lexer(program).Lex());
+        Assertions.assertEquals(expected, describe(new Lexer(trickle(program)).Lex()));
+        Assertions.assertEquals(expected, describe(new Lexer(new StringReader(program)).Lex()));
+    }
+
+    @Test
+    public void mappedFile() throws Exception {
+        var file = Files.createTempFile("tran", ".tran");
+        try {
+            Files.writeString(file, program, StandardCharsets.UTF_8);
+            Assertions.assertEquals(describe(new Lexer(program).Lex()), describe(new Lexer(file).Lex()));
+
+            var tran = new TranNode();
+            new Parser(tran, new Lexer(file)).Tran();
+            Assertions.assertEquals(2, tran.Classes.size());
+            Assertions.assertEquals("Other", tran.Classes.get(1).name);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void lexErrorsReachTheParser() {
+        var error = Assertions.assertThrows(SyntaxErrorException.class,
+                () -> new Parser(new TranNode(), new Lexer(new StringReader("class A\n    number x\n    string s = \"open\n"))).Tran());
+        Assertions.assertTrue(error.getMessage().contains("Unterminated string"), error.getMessage());
+    }
+
+    @Test
+    public void packedTokens() throws Exception {
+        var source = new StringBuilder();
+        for (int i = 0; i < 2000; i++)
+            source.append("class C").append(i).append("\n    string s").append(i).append("\n    number n\n");
+        var packed = new Lexer(source.toString()).LexPacked();
+        var listed = new Lexer(source.toString()).Lex();
+        Assertions.assertEquals(listed.size(), packed.size());
+        for (int i = 0; i < listed.size(); i++)
+            Assertions.assertEquals(listed.get(i), packed.get(i));
+
+        var fromPacked = new TranNode();
+        new Parser(fromPacked, packed).Tran();
+        // Streaming throws away the tokens the parser has finished with as it goes
+        var streamed = new TranNode();
+        new Parser(streamed, new Lexer(new StringReader(source.toString()))).Tran();
+        for (var tran : List.of(fromPacked, streamed)) {
+            Assertions.assertEquals(2000, tran.Classes.size());
+            Assertions.assertEquals("C1999", tran.Classes.get(1999).name);
+            Assertions.assertEquals("s1999", tran.Classes.get(1999).members.get(0).declaration.name);
+            // The lexer interned the names, and the buffer hands back its Strings rather than copies
+            var first = tran.Classes.get(0).members.get(1).declaration;
+            var last = tran.Classes.get(1999).members.get(1).declaration;
+            Assertions.assertSame(first.name, last.name);
+            Assertions.assertSame(first.type, last.type);
+        }
+    }
+
+    @Test
+    public void readersAreClosedWhenLexingStops() throws Exception {
+        var rest = "class B\n    number x\n".repeat(2000); // more than the lexer reads ahead
+        var bad = "class A\n    string s = \"open\n" + rest;
+        var closed = new boolean[3];
+        var readers = new Reader[3];
+        for (int i = 0; i < readers.length; i++) {
+            int which = i;
+            readers[i] = new StringReader(bad) {
+                @Override
+                public void close() {
+                    closed[which] = true;
+                    super.close();
+                }
+            };
+        }
+        Assertions.assertThrows(SyntaxErrorException.class, () -> new Lexer(readers[0]).Lex());
+        Assertions.assertThrows(SyntaxErrorException.class, () -> new Parser(new TranNode(), new Lexer(readers[1])).Tran());
+        try (var lexer = new Lexer(readers[2])) {
+            Assertions.assertTrue(lexer.nextToken().isPresent());
+        }
+        Assertions.assertArrayEquals(new boolean[]{true, true, true}, closed);
+    }
+}
@@ -0,0 +1,74 @@
+package Tests;
+
+import AST.MethodCallStatementNode;
+import AST.MethodDeclarationNode;
+import AST.TranNode;
+import AST.VariableReferenceNode;
+import Interpreter.Interpreter;
+import Tran.Lexer;
+import Tran.Parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Helpers for the tests that parse a Tran program, change its AST and run it.
+ */
+public final class TestPrograms {
+    private TestPrograms() {
+    }
+
+    public static TranNode parse(String program) throws Exception {
+        var tran = new TranNode();
+        new Parser(tran, new Lexer(program).Lex()).Tran();
+        return tran;
+    }
+
+    /**
+     * The first class's method with this name.
+     */
+    public static MethodDeclarationNode method(TranNode tran, String name) {
+        return tran.Classes.get(0).methods.stream().filter(m -> m.name.equals(name)).findFirst().orElseThrow();
+    }
+
+    /**
+     * Run the program's start() with a new interpreter.
+     * @return everything it wrote to the console
+     */
+    public static String run(TranNode tran) {
+        var out = new ByteArrayOutputStream();
+        var old = System.out;
+        System.setOut(new PrintStream(out));
+        try {
+            new Interpreter(tran).start();
+        } finally {
+            System.setOut(old);
+        }
+        return out.toString();
+    }
+
+    public static VariableReferenceNode variable(String name) {
+        var v = new VariableReferenceNode();
+        v.name = name;
+        return v;
+    }
+
+    /**
+     * A method call statement - the parser can't read them yet.
+     * @param objectName - null for a call on this object
+     * @param returns - the variables the call's return values go in
+     * @param parameters - the variables passed in
+     */
+    public static MethodCallStatementNode call(String objectName, String methodName, List<String> returns, String... parameters) {
+        var call = new MethodCallStatementNode();
+        call.objectName = Optional.ofNullable(objectName);
+        call.methodName = methodName;
+        for (var name : parameters)
+            call.parameters.add(variable(name));
+        for (var name : returns)
+            call.returnValues.add(variable(name));
+        return call;
+    }
+}
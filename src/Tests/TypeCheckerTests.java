@@ -0,0 +1,151 @@
+package Tests;
+
+import AST.*;
+import Interpreter.TypeChecker;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static Tests.TestPrograms.*;
+
+public class TypeCheckerTests {
+    private static final String school = """
+            interface Graded
+                getAverage() : number average
+            class Student implements Graded
+                number gradea
+                number gradeb
+                construct(number a, number b)
+                    gradea = a
+                    gradeb = b
+                getAverage() : number average
+                    average = (gradea + gradeb) / 2
+                describe() : string s, number n
+                    s = "average "
+                shared start()
+                    Student s
+                    Graded g
+                    number a
+                    string d
+                    s = new Student(90, 80)
+                    g = s
+            """;
+
+    private static List<String> check(String program) throws Exception {
+        return new TypeChecker().check(parse(program));
+    }
+
+    @Test
+    public void annotatesCallsThatCanOnlyMeanOneMethod() throws Exception {
+        var tran = parse(school);
+        var describe = method(tran, "describe");
+        describe.statements.add(call(null, "getAverage", List.of("n")));
+        var start = method(tran, "start");
+        var onClass = call("s", "getAverage", List.of("a"));
+        var onInterface = call("g", "getAverage", List.of("a"));
+        var write = call("console", "write", List.of(), "a");
+        start.statements.addAll(List.of(onClass, onInterface, write));
+
+        Assertions.assertEquals(List.of(), new TypeChecker().check(tran));
+        var student = tran.Classes.get(0);
+        var getAverage = method(tran, "getAverage");
+        var self = (MethodCallStatementNode) describe.statements.get(1);
+        Assertions.assertSame(getAverage, self.checkedMethod);
+        Assertions.assertSame(student, self.checkedClass);
+        Assertions.assertSame(getAverage, onClass.checkedMethod);
+        Assertions.assertNull(onInterface.checkedMethod); // any class that implements Graded
+        Assertions.assertNull(write.checkedMethod);
+        var made = (NewNode) ((AssignmentNode) start.statements.get(0)).expression;
+        Assertions.assertSame(student.constructors.get(0), made.checkedConstructor);
+
+        Assertions.assertEquals("85", run(tran).strip());
+        // The annotated call never needed the inline cache; the call on the interface did
+        Assertions.assertNull(onClass.inlineCache.lookup(student, List.of()));
+        Assertions.assertSame(getAverage, onInterface.inlineCache.lookup(student, List.of()));
+    }
+
+    @Test
+    public void findsMismatches() throws Exception {
+        var errors = check("""
+                interface Graded
+                    getAverage() : number average
+                class Student implements Graded
+                    number grade
+                    Teacher t
+                    getAverage() : string average
+                        average = grade
+                    check()
+                        number x
+                        string s
+                        boolean b
+                        x = s
+                        x = s * 2
+                        x = 'c' + 1
+                        s = s + x
+                        if x < s
+                            b = b
+                        if x
+                            missing = 1
+                        loop s
+                            x = 1
+                    shared start()
+                        number n
+                        n = grade
+                        n = new Student(1)
+                """);
+        var expected = List.of(
+                "In Student: Unknown type Teacher for t",
+                "In Student: Class Student doesn't have Graded's method",
+                "In Student.getAverage: Can't assign a number to string average",
+                "In Student.check: Can't assign a string to number x",
+                "In Student.check: Can't multiply a string and a number",
+                "In Student.check: Can't add a character and a number",
+                "In Student.check: Can't compare (lt) a number and a string",
+                "In Student.check: Expected a boolean condition but found a number",
+                "In Student.check: Unknown variable missing",
+                "In Student.check: Expected a boolean or an iterator to loop over but found a string",
+                "In Student.start: A shared method can't use the member grade",
+                "In Student.start: Class Student has no constructors, so can't be made with parameters",
+                "In Student.start: Can't assign a Student to number n");
+        Assertions.assertEquals(expected.size(), errors.size(), errors.toString());
+        for (int i = 0; i < expected.size(); i++)
+            Assertions.assertTrue(errors.get(i).startsWith(expected.get(i)), errors.get(i));
+    }
+
+    @Test
+    public void checksCalls() throws Exception {
+        var tran = parse("""
+                class Helper
+                    number total
+                    add(number n) : number sum
+                        sum = total + n
+                    shared twice(number n) : number doubled
+                        doubled = n * 2
+                    shared start()
+                        number x
+                        string s
+                        Helper h
+                """);
+        var start = method(tran, "start");
+        start.statements.add(call(null, "add", List.of("x"), "x")); // no object
+        start.statements.add(call("Helper", "add", List.of("x"), "x")); // not shared
+        start.statements.add(call("h", "add", List.of("s"), "x")); // number into a string
+        start.statements.add(call("h", "add", List.of("x"), "s")); // a string for a number
+        start.statements.add(call("Helper", "twice", List.of("x", "x"), "x")); // only one return
+        start.statements.add(call("nobody", "twice", List.of(), "x"));
+        start.statements.add(call("x", "twice", List.of(), "x"));
+        var errors = new TypeChecker().check(tran);
+        var expected = List.of(
+                "In Helper.start: A shared method has no object to call add(x)",
+                "In Helper.start: No method of Helper fits Helper.add(x)",
+                "In Helper.start: Can't assign a number to string s",
+                "In Helper.start: No method of Helper fits h.add(s)",
+                "In Helper.start: Helper.twice(x) uses 2 values but twice returns 1",
+                "In Helper.start: Unknown object or class nobody",
+                "In Helper.start: Can't call a method on a number");
+        Assertions.assertEquals(expected.size(), errors.size(), errors.toString());
+        for (int i = 0; i < expected.size(); i++)
+            Assertions.assertTrue(errors.get(i).startsWith(expected.get(i)), errors.get(i));
+    }
+}
@@ -0,0 +1,68 @@
+package Tests;
+
+import AST.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static Tests.TestPrograms.parse;
+
+public class VisitorTests {
+
+    /** Prints expressions fully parenthesized, in prefix form */
+    private static class Prefix implements ExpressionVisitor<String> {
+        public String visit(VariableReferenceNode node) { return node.name; }
+        public String visit(NumericLiteralNode node) { return String.valueOf(node.integerValue); }
+        public String visit(StringLiteralNode node) { return '"' + node.value + '"'; }
+        public String visit(CharLiteralNode node) { return "'" + node.value + "'"; }
+        public String visit(BooleanLiteralNode node) { return String.valueOf(node.value); }
+        public String visit(MathOpNode node) { return "(" + node.op + " " + node.left.accept(this) + " " + node.right.accept(this) + ")"; }
+        public String visit(CompareNode node) { return "(" + node.op + " " + node.left.accept(this) + " " + node.right.accept(this) + ")"; }
+        public String visit(BooleanOpNode node) { return "(" + node.op + " " + node.left.accept(this) + " " + node.right.accept(this) + ")"; }
+        public String visit(NotOpNode node) { return "(not " + node.left.accept(this) + ")"; }
+        public String visit(MethodCallExpressionNode node) { return "(call " + node.methodName + ")"; }
+        public String visit(NewNode node) { return "(new " + node.className + ")"; }
+    }
+
+    /** Counts the statements of each kind, nested blocks included */
+    private static class Counter implements StatementVisitor<Integer> {
+        int assignments, calls, ifs, loops, errors;
+        public Integer visit(AssignmentNode node) { return ++assignments; }
+        public Integer visit(MethodCallStatementNode node) { return ++calls; }
+        public Integer visit(IfNode node) { node.statements.forEach(s -> s.accept(this)); return ++ifs; }
+        public Integer visit(LoopNode node) { node.statements.forEach(s -> s.accept(this)); return ++loops; }
+        public Integer visit(ErrorNode node) { return ++errors; }
+    }
+
+    @Test
+    public void dispatchesOnTheNodesClass() throws Exception {
+        var tran = parse("""
+                class V
+                    shared start()
+                        number x
+                        Thing t
+                        x = 1 + 2 * x
+                        t = new Thing(x)
+                        loop x
+                            if x == 3
+                                x = "s"
+                            doIt
+                """);
+        var start = tran.Classes.get(0).methods.get(0);
+
+        var prefix = new Prefix();
+        Assertions.assertEquals("(add 1 (multiply 2 x))", ((AssignmentNode) start.statements.get(0)).expression.accept(prefix));
+        Assertions.assertEquals("(new Thing)", ((AssignmentNode) start.statements.get(1)).expression.accept(prefix));
+        var ifNode = (IfNode) ((LoopNode) start.statements.get(2)).statements.get(0);
+        Assertions.assertEquals("(eq x 3)", ifNode.condition.accept(prefix));
+
+        var counter = new Counter();
+        for (var s : start.statements) {
+            s.accept(counter);
+        }
+        Assertions.assertEquals(3, counter.assignments);
+        Assertions.assertEquals(1, counter.calls);
+        Assertions.assertEquals(1, counter.ifs);
+        Assertions.assertEquals(1, counter.loops);
+        Assertions.assertEquals(0, counter.errors);
+    }
+}
@@ -0,0 +1,163 @@
+package Tran;
+
+import AST.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Shrinks a parsed TranNode for keeping around: every list in the tree becomes an immutable list that is exactly as
+ * big as it needs to be (the empty ones all share one), and every name - of a class, method, variable or type - is
+ * interned, so a name used all over the program (or all over many programs) is one String.
+ *
+ * The lists in the tree, TranNode's own Classes and Interfaces included, can't be changed afterwards; the fields the
+ * Interpreter fills in on nodes (slots, inline caches and so on) are untouched.
+ *
+ * Use one AstCompactor for every program that will be kept, to share names between them.
+ */
+public class AstCompactor {
+    private final NameTable names = new NameTable();
+
+    /**
+     * Compact top in place.
+     * @return top
+     */
+    public TranNode compact(TranNode top) {
+        for (InterfaceNode interfaceNode : top.Interfaces) {
+            interfaceNode.name = names.intern(interfaceNode.name);
+            for (MethodHeaderNode header : interfaceNode.methods) {
+                header.name = names.intern(header.name);
+                header.parameters = declarations(header.parameters);
+                header.returns = declarations(header.returns);
+            }
+            interfaceNode.methods = List.copyOf(interfaceNode.methods);
+        }
+        for (ClassNode classNode : top.Classes) {
+            classNode.name = names.intern(classNode.name);
+            classNode.interfaces = names(classNode.interfaces);
+            for (MemberNode member : classNode.members) {
+                declaration(member.declaration);
+            }
+            classNode.members = List.copyOf(classNode.members);
+            for (ConstructorNode constructor : classNode.constructors) {
+                constructor.parameters = declarations(constructor.parameters);
+                constructor.locals = declarations(constructor.locals);
+                constructor.statements = statements(constructor.statements);
+            }
+            classNode.constructors = List.copyOf(classNode.constructors);
+            for (MethodDeclarationNode method : classNode.methods) {
+                method.name = names.intern(method.name);
+                method.parameters = declarations(method.parameters);
+                method.returns = declarations(method.returns);
+                method.locals = declarations(method.locals);
+                method.statements = statements(method.statements);
+            }
+            classNode.methods = List.copyOf(classNode.methods);
+        }
+        top.Interfaces = List.copyOf(top.Interfaces);
+        top.Classes = List.copyOf(top.Classes);
+        return top;
+    }
+
+    private List<String> names(List<String> list) {
+        String[] interned = new String[list.size()];
+        for (int i = 0; i < interned.length; i++) {
+            interned[i] = names.intern(list.get(i));
+        }
+        return List.of(interned);
+    }
+
+    private List<VariableDeclarationNode> declarations(List<VariableDeclarationNode> list) {
+        for (VariableDeclarationNode declaration : list) {
+            declaration(declaration);
+        }
+        return List.copyOf(list);
+    }
+
+    private void declaration(VariableDeclarationNode declaration) {
+        declaration.type = names.intern(declaration.type);
+        declaration.name = names.intern(declaration.name);
+        declaration.initializer.ifPresent(this::expression);
+    }
+
+    /**
+     * Compact a list of statements and everything under them. Blocks and expressions can be nested arbitrarily
+     * deep, so this works through a list of the nodes still to do rather than recursing.
+     */
+    private List<StatementNode> statements(List<StatementNode> list) {
+        ArrayList<Object> pending = new ArrayList<>(list);
+        while (!pending.isEmpty()) {
+            Object node = pending.remove(pending.size() - 1);
+            if (node instanceof AssignmentNode a) {
+                pending.add(a.target);
+                pending.add(a.expression);
+            } else if (node instanceof MethodCallStatementNode mc) {
+                mc.objectName = name(mc.objectName);
+                mc.methodName = names.intern(mc.methodName);
+                mc.returnValues = List.copyOf(mc.returnValues);
+                mc.parameters = List.copyOf(mc.parameters);
+                pending.addAll(mc.returnValues);
+                pending.addAll(mc.parameters);
+            } else if (node instanceof IfNode i) {
+                pending.add(i.condition);
+                i.statements = List.copyOf(i.statements);
+                pending.addAll(i.statements);
+                if (i.elseStatement.isPresent() && i.elseStatement.get().statements != null) {
+                    ElseNode elseNode = i.elseStatement.get();
+                    elseNode.statements = List.copyOf(elseNode.statements);
+                    pending.addAll(elseNode.statements);
+                }
+            } else if (node instanceof LoopNode l) {
+                l.assignment.ifPresent(pending::add);
+                pending.add(l.expression);
+                l.statements = List.copyOf(l.statements);
+                pending.addAll(l.statements);
+            } else if (node instanceof ExpressionNode e) {
+                expression(e, pending);
+            }
+        }
+        return List.copyOf(list);
+    }
+
+    private void expression(ExpressionNode expression) {
+        ArrayList<Object> pending = new ArrayList<>();
+        expression(expression, pending);
+        while (!pending.isEmpty()) {
+            expression((ExpressionNode) pending.remove(pending.size() - 1), pending);
+        }
+    }
+
+    /**
+     * Compact one expression node, adding the expressions under it to pending.
+     */
+    private void expression(ExpressionNode expression, List<Object> pending) {
+        if (expression instanceof VariableReferenceNode v) {
+            v.name = names.intern(v.name);
+        } else if (expression instanceof MathOpNode m) {
+            pending.add(m.left);
+            pending.add(m.right);
+        } else if (expression instanceof CompareNode c) {
+            pending.add(c.left);
+            pending.add(c.right);
+        } else if (expression instanceof BooleanOpNode b) {
+            pending.add(b.left);
+            pending.add(b.right);
+        } else if (expression instanceof NotOpNode n) {
+            pending.add(n.left);
+        } else if (expression instanceof MethodCallExpressionNode mc) {
+            mc.objectName = name(mc.objectName);
+            mc.methodName = names.intern(mc.methodName);
+            mc.parameters = List.copyOf(mc.parameters);
+            pending.addAll(mc.parameters);
+        } else if (expression instanceof NewNode n) {
+            n.className = names.intern(n.className);
+            n.parameters = List.copyOf(n.parameters);
+            pending.addAll(n.parameters);
+        }
+    }
+
+    private Optional<String> name(Optional<String> name) {
+        return name.isPresent() ? Optional.of(names.intern(name.get())) : name;
+    }
+}
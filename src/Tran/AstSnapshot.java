@@ -0,0 +1,604 @@
+package Tran;
+
+import AST.*;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * A compact binary form of the AST that the Parser makes, so that a program can be loaded without lexing and parsing
+ * it again (see ParseCache).
+ *
+ * Layout: "TRAN", a version byte, the string table (a count, then each string as a length and its UTF-8 bytes), then
+ * the tree. Every node starts with a one byte tag; names and other strings are indexes into the string table; counts,
+ * indexes and integers are varints (integers zigzag encoded). Only what the parser fills in is saved - the fields
+ * that the interpreter's resolution pass fills in are left for it to fill in again.
+ */
+public class AstSnapshot {
+    private static final byte[] magic = {'T', 'R', 'A', 'N'};
+    private static final byte version = 1;
+
+    // Node tags
+    private static final byte none = 0; // an empty Optional (or a missing node)
+    private static final byte assignment = 1;
+    private static final byte methodCall = 2;
+    private static final byte loop = 3;
+    private static final byte ifStatement = 4;
+    private static final byte variableReference = 5;
+    private static final byte numericLiteral = 6;
+    private static final byte stringLiteral = 7;
+    private static final byte charLiteral = 8;
+    private static final byte booleanLiteral = 9;
+    private static final byte mathOp = 10;
+    private static final byte compare = 11;
+    private static final byte booleanOp = 12;
+    private static final byte notOp = 13;
+    private static final byte newObject = 14;
+    private static final byte methodCallExpression = 15;
+
+    /**
+     * Turn a parsed program into bytes. Built-in methods can't be saved (the interpreter keeps its own out of the AST).
+     * @throws IllegalArgumentException if the tree has a node the parser doesn't make
+     */
+    public static byte[] write(TranNode top) {
+        var body = new Writer();
+        body.varint(top.Interfaces.size());
+        for (var i : top.Interfaces) {
+            body.string(i.name);
+            body.varint(i.methods.size());
+            for (var m : i.methods) {
+                body.string(m.name);
+                body.declarations(m.parameters);
+                body.declarations(m.returns);
+            }
+        }
+        body.varint(top.Classes.size());
+        for (var c : top.Classes) {
+            body.string(c.name);
+            body.varint(c.interfaces.size());
+            for (var i : c.interfaces)
+                body.string(i);
+            body.varint(c.members.size());
+            for (var m : c.members)
+                body.declaration(m.declaration);
+            body.varint(c.constructors.size());
+            for (var k : c.constructors) {
+                body.declarations(k.parameters);
+                body.declarations(k.locals);
+                body.statements(k.statements);
+            }
+            body.varint(c.methods.size());
+            for (var m : c.methods) {
+                if (m instanceof BuiltInMethodDeclarationNode)
+                    throw new IllegalArgumentException("Can't save built-in method " + m.name);
+                body.string(m.name);
+                body.bytes.add((byte) ((m.isShared ? 1 : 0) | (m.isPrivate ? 2 : 0)));
+                body.declarations(m.parameters);
+                body.declarations(m.returns);
+                body.declarations(m.locals);
+                body.statements(m.statements);
+            }
+        }
+
+        var out = new Writer();
+        for (byte b : magic)
+            out.bytes.add(b);
+        out.bytes.add(version);
+        out.varint(body.strings.size());
+        for (var s : body.stringList) {
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            out.varint(utf8.length);
+            out.bytes.add(utf8);
+        }
+        out.bytes.add(body.bytes);
+        return out.bytes.toArray();
+    }
+
+    /**
+     * Read a program back from the bytes write() made.
+     * @throws IllegalArgumentException if the bytes aren't a snapshot (or are from a different version, or damaged)
+     */
+    public static TranNode read(ByteBuffer in) {
+        try {
+            for (byte b : magic)
+                if (in.get() != b)
+                    throw new IllegalArgumentException("Not a Tran AST snapshot");
+            if (in.get() != version)
+                throw new IllegalArgumentException("Tran AST snapshot is from a different version");
+            return new Reader(in).tran();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Tran AST snapshot is cut short or damaged", e);
+        }
+    }
+
+    /** A growable byte array */
+    private static class Bytes {
+        byte[] data = new byte[4096];
+        int size;
+
+        void add(byte b) {
+            if (size == data.length)
+                data = Arrays.copyOf(data, size * 2);
+            data[size++] = b;
+        }
+
+        void add(byte[] b) {
+            add(b, b.length);
+        }
+
+        void add(Bytes b) {
+            add(b.data, b.size);
+        }
+
+        private void add(byte[] b, int length) {
+            if (size + length > data.length)
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + length));
+            System.arraycopy(b, 0, data, size, length);
+            size += length;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    private static class Writer {
+        final Bytes bytes = new Bytes();
+        final HashMap<String, Integer> strings = new HashMap<>();
+        final List<String> stringList = new ArrayList<>();
+
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                bytes.add((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            bytes.add((byte) value);
+        }
+
+        void string(String s) {
+            Integer index = strings.get(s);
+            if (index == null) {
+                index = stringList.size();
+                strings.put(s, index);
+                stringList.add(s);
+            }
+            varint(index);
+        }
+
+        void optionalString(Optional<String> s) {
+            bytes.add(s.isPresent() ? (byte) 1 : none);
+            s.ifPresent(this::string);
+        }
+
+        void declaration(VariableDeclarationNode d) {
+            string(d.type);
+            string(d.name);
+            write(d.initializer.orElse(null));
+        }
+
+        void declarations(List<VariableDeclarationNode> list) {
+            varint(list.size());
+            for (var d : list)
+                declaration(d);
+        }
+
+        void statements(List<StatementNode> list) {
+            write(list);
+        }
+
+        /**
+         * Write a statement, an expression (null for none), a list of either (its size, then each one) or a Byte, and
+         * everything under it. Blocks and expressions can be nested arbitrarily deep, so this works through a list of
+         * what is still to be written, last first, rather than recursing.
+         */
+        void write(Object item) {
+            var pending = new ArrayList<Object>();
+            pending.add(item);
+            while (!pending.isEmpty()) {
+                Object next = pending.remove(pending.size() - 1);
+                if (next instanceof List<?> list) {
+                    varint(list.size());
+                    for (int i = list.size() - 1; i >= 0; i--)
+                        pending.add(list.get(i));
+                } else if (next instanceof Byte b) {
+                    bytes.add(b);
+                } else if (next instanceof StatementNode s) {
+                    statement(s, pending);
+                } else {
+                    expression((ExpressionNode) next, pending);
+                }
+            }
+        }
+
+        /**
+         * Write a statement's tag and names, adding what comes after them to pending (in reverse order).
+         */
+        void statement(StatementNode s, List<Object> pending) {
+            if (s instanceof AssignmentNode a) {
+                bytes.add(assignment);
+                pending.add(a.expression);
+                pending.add(a.target);
+            } else if (s instanceof MethodCallStatementNode mc) {
+                bytes.add(methodCall);
+                optionalString(mc.objectName);
+                string(mc.methodName);
+                pending.add(mc.parameters);
+                pending.add(mc.returnValues);
+            } else if (s instanceof LoopNode l) {
+                bytes.add(loop);
+                pending.add(l.statements);
+                pending.add(l.expression);
+                pending.add(l.assignment.orElse(null));
+            } else if (s instanceof IfNode i) {
+                bytes.add(ifStatement);
+                i.elseStatement.ifPresent(e -> pending.add(e.statements));
+                pending.add(i.elseStatement.isPresent() ? (byte) 1 : none);
+                pending.add(i.statements);
+                pending.add(i.condition);
+            } else {
+                throw new IllegalArgumentException("Can't save statement " + s);
+            }
+        }
+
+        /**
+         * Write an expression's tag and values, adding the expressions under it to pending (in reverse order).
+         */
+        void expression(ExpressionNode e, List<Object> pending) {
+            if (e == null) {
+                bytes.add(none);
+            } else if (e instanceof VariableReferenceNode v) {
+                bytes.add(variableReference);
+                string(v.name);
+            } else if (e instanceof NumericLiteralNode n) {
+                bytes.add(numericLiteral);
+                if (n.isInteger) {
+                    bytes.add((byte) 1);
+                    varint((n.integerValue << 1) ^ (n.integerValue >> 63));
+                } else {
+                    bytes.add(none);
+                    long bits = Double.doubleToRawLongBits(n.value);
+                    for (int i = 0; i < 8; i++)
+                        bytes.add((byte) (bits >>> (8 * i)));
+                }
+            } else if (e instanceof StringLiteralNode s) {
+                bytes.add(stringLiteral);
+                string(s.value);
+            } else if (e instanceof CharLiteralNode c) {
+                bytes.add(charLiteral);
+                varint(c.value);
+            } else if (e instanceof BooleanLiteralNode b) {
+                bytes.add(booleanLiteral);
+                bytes.add(b.value ? (byte) 1 : none);
+            } else if (e instanceof MathOpNode m) {
+                bytes.add(mathOp);
+                bytes.add((byte) m.op.ordinal());
+                pending.add(m.right);
+                pending.add(m.left);
+            } else if (e instanceof CompareNode c) {
+                bytes.add(compare);
+                bytes.add((byte) c.op.ordinal());
+                pending.add(c.right);
+                pending.add(c.left);
+            } else if (e instanceof BooleanOpNode b) {
+                bytes.add(booleanOp);
+                bytes.add((byte) b.op.ordinal());
+                pending.add(b.right);
+                pending.add(b.left);
+            } else if (e instanceof NotOpNode n) {
+                bytes.add(notOp);
+                pending.add(n.left);
+            } else if (e instanceof NewNode n) {
+                bytes.add(newObject);
+                string(n.className);
+                pending.add(n.parameters);
+            } else if (e instanceof MethodCallExpressionNode mc) {
+                bytes.add(methodCallExpression);
+                optionalString(mc.objectName);
+                string(mc.methodName);
+                pending.add(mc.parameters);
+            } else {
+                throw new IllegalArgumentException("Can't save expression " + e);
+            }
+        }
+    }
+
+    private static class Reader {
+        final ByteBuffer in;
+        final String[] strings;
+
+        Reader(ByteBuffer in) {
+            this.in = in;
+            strings = new String[count()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] utf8 = new byte[count()];
+                in.get(utf8);
+                strings[i] = new String(utf8, StandardCharsets.UTF_8);
+            }
+        }
+
+        TranNode tran() {
+            var top = new TranNode();
+            for (int i = count(); i > 0; i--) {
+                var node = new InterfaceNode();
+                node.name = string();
+                for (int m = count(); m > 0; m--) {
+                    var header = new MethodHeaderNode();
+                    header.name = string();
+                    header.parameters = declarations();
+                    header.returns = declarations();
+                    node.methods.add(header);
+                }
+                top.Interfaces.add(node);
+            }
+            for (int i = count(); i > 0; i--) {
+                var node = new ClassNode();
+                node.name = string();
+                for (int n = count(); n > 0; n--)
+                    node.interfaces.add(string());
+                for (int n = count(); n > 0; n--) {
+                    var member = new MemberNode();
+                    member.declaration = declaration();
+                    node.members.add(member);
+                }
+                for (int n = count(); n > 0; n--) {
+                    var constructor = new ConstructorNode();
+                    constructor.parameters = declarations();
+                    constructor.locals = declarations();
+                    constructor.statements = statements();
+                    node.constructors.add(constructor);
+                }
+                for (int n = count(); n > 0; n--) {
+                    var method = new MethodDeclarationNode();
+                    method.name = string();
+                    byte flags = in.get();
+                    method.isShared = (flags & 1) != 0;
+                    method.isPrivate = (flags & 2) != 0;
+                    method.parameters = declarations();
+                    method.returns = declarations();
+                    method.locals = declarations();
+                    method.statements = statements();
+                    node.methods.add(method);
+                }
+                top.Classes.add(node);
+            }
+            return top;
+        }
+
+        long varint() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (shift > 63)
+                    throw new IllegalArgumentException("Tran AST snapshot has a number that is too long");
+                byte b = in.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0)
+                    return value;
+            }
+        }
+
+        /**
+         * A count (or a length). Each thing counted takes at least a byte, so a count bigger than what is left can only
+         * come from a damaged snapshot - and mustn't get as far as sizing an array.
+         */
+        int count() {
+            long count = varint();
+            if (count < 0 || count > in.remaining())
+                throw new IllegalArgumentException("Tran AST snapshot has a count of " + count + " with " + in.remaining() + " bytes left");
+            return (int) count;
+        }
+
+        String string() {
+            long index = varint();
+            if (index < 0 || index >= strings.length)
+                throw new IllegalArgumentException("Tran AST snapshot has no string " + index);
+            return strings[(int) index];
+        }
+
+        Optional<String> optionalString() {
+            return in.get() == none ? Optional.empty() : Optional.of(string());
+        }
+
+        VariableDeclarationNode declaration() {
+            var d = new VariableDeclarationNode();
+            d.type = string();
+            d.name = string();
+            Object[] initializer = new Object[1];
+            read(new Pending(Item.expression, e -> initializer[0] = e));
+            d.initializer = Optional.ofNullable((ExpressionNode) initializer[0]);
+            return d;
+        }
+
+        List<VariableDeclarationNode> declarations() {
+            int count = count();
+            var list = new ArrayList<VariableDeclarationNode>(count);
+            for (int i = 0; i < count; i++)
+                list.add(declaration());
+            return list;
+        }
+
+        List<StatementNode> statements() {
+            var list = new ArrayList<StatementNode>();
+            read(new Pending(Item.statements, s -> list.add((StatementNode) s)));
+            return list;
+        }
+
+        /** What comes next in the bytes - a list item is the count, then that many of the single kind */
+        private enum Item { statement, expression, variable, elseBlock, statements, expressions, variables }
+
+        /** Something still to be read, and where to put it once it has been */
+        private record Pending(Item item, Consumer<Object> into) {}
+
+        /**
+         * Read what first says, and everything under it. The mirror of Writer.write(): rather than recursing, every
+         * node is made (and put where it goes) as soon as its tag is read, and what is still to be read under it
+         * is added to a list - last first, so it comes off the list in the order it was written.
+         */
+        void read(Pending first) {
+            var pending = new ArrayList<Pending>();
+            pending.add(first);
+            while (!pending.isEmpty()) {
+                var next = pending.remove(pending.size() - 1);
+                switch (next.item) {
+                    case statement -> next.into.accept(statement(pending));
+                    case expression -> next.into.accept(expression(pending));
+                    case variable -> next.into.accept(variable(pending));
+                    case elseBlock -> next.into.accept(elseBlock(pending));
+                    case statements -> many(Item.statement, next.into, pending);
+                    case expressions -> many(Item.expression, next.into, pending);
+                    case variables -> many(Item.variable, next.into, pending);
+                }
+            }
+        }
+
+        private void many(Item item, Consumer<Object> into, List<Pending> pending) {
+            for (int i = count(); i > 0; i--)
+                pending.add(new Pending(item, into));
+        }
+
+        StatementNode statement(List<Pending> pending) {
+            byte tag = in.get();
+            switch (tag) {
+                case assignment: {
+                    var a = new AssignmentNode();
+                    pending.add(new Pending(Item.expression, e -> a.expression = (ExpressionNode) e));
+                    pending.add(new Pending(Item.variable, v -> a.target = (VariableReferenceNode) v));
+                    return a;
+                }
+                case methodCall: {
+                    var mc = new MethodCallStatementNode();
+                    mc.objectName = optionalString();
+                    mc.methodName = string();
+                    pending.add(new Pending(Item.expressions, e -> mc.parameters.add((ExpressionNode) e)));
+                    pending.add(new Pending(Item.variables, v -> mc.returnValues.add((VariableReferenceNode) v)));
+                    return mc;
+                }
+                case loop: {
+                    var l = new LoopNode();
+                    pending.add(new Pending(Item.statements, s -> l.statements.add((StatementNode) s)));
+                    pending.add(new Pending(Item.expression, e -> l.expression = (ExpressionNode) e));
+                    pending.add(new Pending(Item.variable, v -> l.assignment = Optional.ofNullable((VariableReferenceNode) v)));
+                    return l;
+                }
+                case ifStatement: {
+                    var i = new IfNode();
+                    pending.add(new Pending(Item.elseBlock, e -> i.elseStatement = Optional.ofNullable((ElseNode) e)));
+                    pending.add(new Pending(Item.statements, s -> i.statements.add((StatementNode) s)));
+                    pending.add(new Pending(Item.expression, e -> i.condition = (ExpressionNode) e));
+                    return i;
+                }
+                default:
+                    throw new IllegalArgumentException("Tran AST snapshot has an unknown statement tag " + tag);
+            }
+        }
+
+        ElseNode elseBlock(List<Pending> pending) {
+            if (in.get() == none)
+                return null;
+            var e = new ElseNode();
+            e.statements = new ArrayList<>();
+            pending.add(new Pending(Item.statements, s -> e.statements.add((StatementNode) s)));
+            return e;
+        }
+
+        /**
+         * An expression that has to be a variable reference (or none) - the target of an assignment, say.
+         */
+        VariableReferenceNode variable(List<Pending> pending) {
+            var e = expression(pending);
+            if (e != null && !(e instanceof VariableReferenceNode))
+                throw new IllegalArgumentException("Tran AST snapshot has a " + e.getClass().getSimpleName() + " where a variable should be");
+            return (VariableReferenceNode) e;
+        }
+
+        ExpressionNode expression(List<Pending> pending) {
+            byte tag = in.get();
+            switch (tag) {
+                case none:
+                    return null;
+                case variableReference: {
+                    var v = new VariableReferenceNode();
+                    v.name = string();
+                    return v;
+                }
+                case numericLiteral: {
+                    var n = new NumericLiteralNode();
+                    if (in.get() != none) {
+                        long zigzag = varint();
+                        n.isInteger = true;
+                        n.integerValue = (zigzag >>> 1) ^ -(zigzag & 1);
+                        n.value = n.integerValue;
+                    } else {
+                        long bits = 0;
+                        for (int i = 0; i < 8; i++)
+                            bits |= (long) (in.get() & 0xFF) << (8 * i);
+                        n.value = Double.longBitsToDouble(bits);
+                    }
+                    return n;
+                }
+                case stringLiteral: {
+                    var s = new StringLiteralNode();
+                    s.value = string();
+                    return s;
+                }
+                case charLiteral: {
+                    var c = new CharLiteralNode();
+                    c.value = (char) varint();
+                    return c;
+                }
+                case booleanLiteral: {
+                    var b = new BooleanLiteralNode();
+                    b.value = in.get() != none;
+                    return b;
+                }
+                case mathOp: {
+                    var m = new MathOpNode();
+                    m.op = MathOpNode.MathOperations.values()[in.get()];
+                    pending.add(new Pending(Item.expression, e -> m.right = (ExpressionNode) e));
+                    pending.add(new Pending(Item.expression, e -> m.left = (ExpressionNode) e));
+                    return m;
+                }
+                case compare: {
+                    var c = new CompareNode();
+                    c.op = CompareNode.CompareOperations.values()[in.get()];
+                    pending.add(new Pending(Item.expression, e -> c.right = (ExpressionNode) e));
+                    pending.add(new Pending(Item.expression, e -> c.left = (ExpressionNode) e));
+                    return c;
+                }
+                case booleanOp: {
+                    var b = new BooleanOpNode();
+                    b.op = BooleanOpNode.BooleanOperations.values()[in.get()];
+                    pending.add(new Pending(Item.expression, e -> b.right = (ExpressionNode) e));
+                    pending.add(new Pending(Item.expression, e -> b.left = (ExpressionNode) e));
+                    return b;
+                }
+                case notOp: {
+                    var n = new NotOpNode();
+                    pending.add(new Pending(Item.expression, e -> n.left = (ExpressionNode) e));
+                    return n;
+                }
+                case newObject: {
+                    var n = new NewNode();
+                    n.className = string();
+                    pending.add(new Pending(Item.expressions, e -> n.parameters.add((ExpressionNode) e)));
+                    return n;
+                }
+                case methodCallExpression: {
+                    var mc = new MethodCallExpressionNode();
+                    mc.objectName = optionalString();
+                    mc.methodName = string();
+                    pending.add(new Pending(Item.expressions, e -> mc.parameters.add((ExpressionNode) e)));
+                    return mc;
+                }
+                default:
+                    throw new IllegalArgumentException("Tran AST snapshot has an unknown expression tag " + tag);
+            }
+        }
+    }
+}
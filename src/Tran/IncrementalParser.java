@@ -0,0 +1,311 @@
+package Tran;
+
+import AST.MethodDeclarationNode;
+import AST.TranNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps a TranNode up to date with a source file that is being edited, without parsing the whole file again for
+ * every edit.
+ *
+ * The file is cut into pieces the same way as ParallelParser does (one piece per class or interface), and each class
+ * into spans (one per member, constructor or method - the lines that start at an indentation of 4 spaces). An edit
+ * that stays inside one method re-lexes and re-parses just that method; one that stays inside one class re-parses
+ * just that class. Everything else in the TranNode is left alone - the same ClassNode and MethodDeclarationNode
+ * objects as before. Anything bigger (or anything that doesn't parse) falls back to parsing the whole file.
+ */
+public class IncrementalParser {
+    private static class Piece {
+        int start; // where the piece is in source
+        int end;
+        TranNode parsed; // the class or interface in the piece
+        List<Span> spans; // null unless the piece is one class
+    }
+
+    private static class Span {
+        int start; // where the span is in its piece
+        int end;
+        boolean isMethod;
+    }
+
+    private final TranNode top;
+    private String source;
+    private List<Piece> pieces; // null if the last parse failed
+
+    /**
+     * Parse source into top. Later edits will change top's lists of classes and interfaces.
+     */
+    public IncrementalParser(TranNode top, String source) throws SyntaxErrorException {
+        this.top = top;
+        this.source = source;
+        parseAll();
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Replace removedLength characters of the source, starting at offset, with inserted, and bring the TranNode up to
+     * date.
+     * @throws SyntaxErrorException if the edited source doesn't parse - the TranNode is left as it was
+     */
+    public void edit(int offset, int removedLength, String inserted) throws SyntaxErrorException {
+        String old = source;
+        source = old.substring(0, offset) + inserted + old.substring(offset + removedLength);
+        if (pieces == null || !reparsePiece(old, offset, removedLength, inserted.length() - removedLength)) {
+            parseAll();
+        }
+    }
+
+    private void parseAll() throws SyntaxErrorException {
+        pieces = null;
+        var result = new TranNode();
+        var built = new ArrayList<Piece>();
+        List<Integer> starts = ParallelParser.pieceStarts(source, 0);
+        int firstLine = 1;
+        for (int i = 0; i < starts.size(); i++) {
+            var piece = new Piece();
+            piece.start = starts.get(i);
+            piece.end = i + 1 < starts.size() ? starts.get(i + 1) : source.length();
+            String text = source.substring(piece.start, piece.end);
+            piece.parsed = new TranNode();
+            new Parser(piece.parsed, new Lexer(text, firstLine).LexPacked()).Tran();
+            if (piece.parsed.Classes.size() == 1 && piece.parsed.Interfaces.isEmpty()) {
+                piece.spans = spans(text);
+            }
+            result.Interfaces.addAll(piece.parsed.Interfaces);
+            result.Classes.addAll(piece.parsed.Classes);
+            built.add(piece);
+            firstLine += ParallelParser.countLines(source, piece.start, piece.end);
+        }
+        top.Interfaces.clear();
+        top.Interfaces.addAll(result.Interfaces);
+        top.Classes.clear();
+        top.Classes.addAll(result.Classes);
+        pieces = built;
+    }
+
+    /**
+     * Try to handle an edit by re-parsing just the piece it is in (or just the method it is in).
+     * @param old - the source before the edit
+     * @return false if the edit needs the whole file parsed again
+     */
+    private boolean reparsePiece(String old, int offset, int removedLength, int delta) {
+        int p = pieceAt(offset);
+        Piece piece = pieces.get(p);
+        // An edit at the very start of a piece could add a declaration in front of it
+        if (offset <= piece.start || offset + removedLength > piece.end) {
+            return false;
+        }
+        if (piece.parsed.Classes.size() + piece.parsed.Interfaces.size() != 1) {
+            return false;
+        }
+        // Losing the newline at the end would join the next piece on to this one
+        boolean endsLine = old.charAt(piece.end - 1) == '\n';
+
+        boolean reparsed = false;
+        if (piece.spans != null) {
+            for (int s = 0; s < piece.spans.size(); s++) {
+                Span span = piece.spans.get(s);
+                if (span.isMethod && offset > piece.start + span.start && offset + removedLength < piece.start + span.end) {
+                    reparsed = reparseMethod(piece, s, delta);
+                    break;
+                }
+            }
+        }
+        if (!reparsed && !reparseClass(piece, p, delta, endsLine)) {
+            return false;
+        }
+        piece.end += delta;
+        for (int q = p + 1; q < pieces.size(); q++) {
+            pieces.get(q).start += delta;
+            pieces.get(q).end += delta;
+        }
+        return true;
+    }
+
+    private boolean reparseMethod(Piece piece, int s, int delta) {
+        Span span = piece.spans.get(s);
+        String text = source.substring(piece.start + span.start, piece.start + span.end + delta);
+        if (!isOneMethod(text)) {
+            return false;
+        }
+        Optional<MethodDeclarationNode> method;
+        try {
+            method = new Parser(new TranNode(), new Lexer(text, 1, 1).LexPacked()).SingleMethod();
+        } catch (SyntaxErrorException e) {
+            return false; // parseAll() will find the error, with the right line number
+        }
+        if (method.isEmpty()) {
+            return false;
+        }
+
+        int index = 0;
+        for (int i = 0; i < s; i++) {
+            if (piece.spans.get(i).isMethod) {
+                index++;
+            }
+        }
+        piece.parsed.Classes.get(0).methods.set(index, method.get());
+        span.end += delta;
+        for (int i = s + 1; i < piece.spans.size(); i++) {
+            piece.spans.get(i).start += delta;
+            piece.spans.get(i).end += delta;
+        }
+        return true;
+    }
+
+    private boolean reparseClass(Piece piece, int p, int delta, boolean endsLine) {
+        String text = source.substring(piece.start, piece.end + delta);
+        // The edited piece has to still be just one piece, cut in the same places
+        if (ParallelParser.pieceStarts(text, 0).size() != 1 || (p > 0 && !ParallelParser.startsDeclaration(text, 0))
+                || (endsLine && !text.endsWith("\n"))) {
+            return false;
+        }
+        var parsed = new TranNode();
+        try {
+            new Parser(parsed, new Lexer(text, 1).LexPacked()).Tran();
+        } catch (SyntaxErrorException e) {
+            return false;
+        }
+        if (parsed.Classes.size() != piece.parsed.Classes.size() || parsed.Interfaces.size() != piece.parsed.Interfaces.size()) {
+            return false;
+        }
+
+        int classes = 0;
+        int interfaces = 0;
+        for (int q = 0; q < p; q++) {
+            classes += pieces.get(q).parsed.Classes.size();
+            interfaces += pieces.get(q).parsed.Interfaces.size();
+        }
+        if (parsed.Classes.isEmpty()) {
+            top.Interfaces.set(interfaces, parsed.Interfaces.get(0));
+            piece.spans = null;
+        } else {
+            top.Classes.set(classes, parsed.Classes.get(0));
+            piece.spans = spans(text);
+        }
+        piece.parsed = parsed;
+        return true;
+    }
+
+    /**
+     * The piece that an edit at offset is in - the last one that starts before it.
+     */
+    private int pieceAt(int offset) {
+        int low = 0;
+        int high = pieces.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) / 2;
+            if (pieces.get(middle).start < offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Cut the text of a class into spans: a new span starts at every line that starts with exactly 4 spaces and a
+     * letter (outside of comments and quotes). The class's own line(s) before the first one aren't in any span.
+     */
+    private static List<Span> spans(String text) {
+        List<Span> spans = new ArrayList<>();
+        boolean inComment = false;
+        boolean inString = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (inComment) {
+                inComment = c != '}';
+            } else if (inString) {
+                inString = c != '"';
+            } else if (c == '{') {
+                inComment = true;
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '\'' && i + 2 < text.length() && text.charAt(i + 2) == '\'') {
+                i += 2;
+            } else if (c == '\n' && startsMember(text, i + 1)) {
+                if (!spans.isEmpty()) {
+                    spans.get(spans.size() - 1).end = i + 1;
+                }
+                var span = new Span();
+                span.start = i + 1;
+                span.end = text.length();
+                span.isMethod = isMethod(text, span.start + 4);
+                spans.add(span);
+            }
+        }
+        return spans;
+    }
+
+    /**
+     * Is the text of a span (still) one method and nothing else? Its first line has to look like a method's, and all
+     * of the rest has to be indented further (or be blank).
+     */
+    private static boolean isOneMethod(String text) {
+        if (!startsMember(text, 0) || !isMethod(text, 4)) {
+            return false;
+        }
+        for (int i = text.indexOf('\n'); i >= 0 && i + 1 < text.length(); i = text.indexOf('\n', i + 1)) {
+            int spaces = indentation(text, i + 1);
+            int next = i + 1 + spaces;
+            boolean blank = next >= text.length() || text.charAt(next) == '\n';
+            if (!blank && spaces < 8) {
+                return false;
+            }
+        }
+        return text.endsWith("\n");
+    }
+
+    /**
+     * Does the line starting at text[at] start a member, constructor or method - 4 spaces, then a letter?
+     */
+    private static boolean startsMember(String text, int at) {
+        return text.startsWith("    ", at) && at + 4 < text.length() && Character.isLetter(text.charAt(at + 4));
+    }
+
+    /**
+     * Does the declaration starting at text[at] declare a method (rather than a member or a constructor)? The same
+     * choice that Parser.Class() makes: "shared" or "private", or a name followed by '('.
+     */
+    private static boolean isMethod(String text, int at) {
+        int end = at;
+        while (end < text.length() && Character.isLetterOrDigit(text.charAt(end))) {
+            end++;
+        }
+        String word = text.substring(at, end);
+        if (word.equals("shared") || word.equals("private")) {
+            return true;
+        }
+        if (word.equals("construct")) {
+            return false;
+        }
+        while (end < text.length() && (text.charAt(end) == ' ' || text.charAt(end) == '\t')) {
+            end++;
+        }
+        return end < text.length() && text.charAt(end) == '(';
+    }
+
+    /**
+     * How many characters of indentation the line starting at text[at] has (as the Lexer counts them: a tab is 4).
+     */
+    private static int indentation(String text, int at) {
+        int spaces = 0;
+        for (int i = at; i < text.length(); i++) {
+            if (text.charAt(i) == ' ') {
+                spaces++;
+            } else if (text.charAt(i) == '\t') {
+                spaces += 4;
+            } else {
+                break;
+            }
+        }
+        return spaces;
+    }
+}
@@ -1,138 +1,328 @@
 package Tran;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
 import java.util.Stack;
 
 
-public class Lexer {
+/**
+ * Turns text into tokens. A Lexer reading from a Reader (or a file) holds it open until the end of the text; close()
+ * it if you stop before then. Lex() and LexPacked() always close it.
+ */
+public class Lexer implements AutoCloseable {
+    // Character classes for ASCII, so that the common case is one array lookup; anything else goes to Character
+    private static final byte letter = 1;
+    private static final byte digit = 2;
+    private static final byte whitespace = 4;
+    private static final byte[] asciiClasses = new byte[128];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            if (Character.isLetter(c)) asciiClasses[c] |= letter;
+            if (Character.isDigit(c)) asciiClasses[c] |= digit;
+            if (Character.isWhitespace(c)) asciiClasses[c] |= whitespace;
+        }
+    }
+
     private final TextManager textManager;
-    private final Map<String, Token.TokenTypes> keywords;
     private final Stack<Integer> indentationLevels;
     private int currentIndentation;
+    private char[] word = new char[64]; // the characters of the token being read, so keywords never become Strings
+    private final NameTable names = new NameTable();
+
+
+    /** The tokens read from the text for nextToken(); the ones before nextPending have been handed out */
+    private final TokenBuffer pending = new TokenBuffer();
+    private int nextPending;
+    private boolean finished;
+    private LexerListener listener = LexerListener.none;
 
 
     public Lexer(String input) {
-        this.textManager = new TextManager(input);
-        this.keywords = new HashMap<>();
+        this(new TextManager(input));
+    }
+
+    /**
+     * Lex a piece of a bigger file - firstLine is the line number (in the file) that input starts on.
+     */
+    public Lexer(String input, int firstLine) {
+        this(new TextManager(input, firstLine));
+    }
+
+    /**
+     * Lex from a Reader - only a small window of the text is in memory at once. Use nextToken() (or a
+     * TokenManager built on this Lexer) to read the tokens as they are needed.
+     */
+    public Lexer(Reader input) {
+        this(new TextManager(input));
+    }
+
+    /**
+     * Lex a piece of a bigger file that starts indentation levels in (the text of a method is indented by 1, for
+     * instance) - as if the INDENTs to get there had already been read.
+     */
+    Lexer(String input, int firstLine, int indentation) {
+        this(new TextManager(input, firstLine));
+        while (currentIndentation < indentation) {
+            indentationLevels.push(currentIndentation);
+            currentIndentation++;
+        }
+    }
+
+    /**
+     * Lex a UTF-8 source file, memory mapped rather than read into a String.
+     */
+    public Lexer(Path file) throws IOException {
+        this(new TextManager(new MappedFileReader(file)));
+    }
+
+    private Lexer(TextManager textManager) {
+        this.textManager = textManager;
         this.indentationLevels = new Stack<>();
         this.currentIndentation = 0;
+        indentationLevels.push(0);
+    }
 
-
-        // initialize keywords
-        keywords.put("implements", Token.TokenTypes.IMPLEMENTS);
-        keywords.put("class", Token.TokenTypes.CLASS);
-        keywords.put("interface", Token.TokenTypes.INTERFACE);
-        keywords.put("loop", Token.TokenTypes.LOOP);
-        keywords.put("if", Token.TokenTypes.IF);
-        keywords.put("else", Token.TokenTypes.ELSE);
-        keywords.put("new", Token.TokenTypes.NEW);
-        keywords.put("private", Token.TokenTypes.PRIVATE);
-        keywords.put("shared", Token.TokenTypes.SHARED);
-        keywords.put("construct", Token.TokenTypes.CONSTRUCT);
+    /**
+     * Have every token reported to listener as it is made (LexerListener.none to stop).
+     */
+    public void setListener(LexerListener listener) {
+        this.listener = listener;
     }
 
     public List<Token> Lex() throws SyntaxErrorException {
-        List<Token> tokens = new LinkedList<>();
-        indentationLevels.push(0);
+        List<Token> tokens = new ArrayList<>();
+        try {
+            Optional<Token> token = nextToken();
+            while (token.isPresent()) {
+                tokens.add(token.get());
+                token = nextToken();
+            }
+        } finally {
+            close();
+        }
+        return tokens;
+    }
 
-        while (!textManager.isAtEnd()) {
-            char currentChar = textManager.peekCharacter();
-
-            if (Character.isLetter(currentChar)) {
-                Token wordToken = readWord();
-                System.out.println("Word Token: " + wordToken);
-                tokens.add(wordToken);
-            } else if (Character.isDigit(currentChar) || (currentChar == '.' && Character.isDigit(textManager.peekCharacter(1)))) {
-                Token numberToken = readNumber();
-                System.out.println("Number Token: " + numberToken);
-                tokens.add(numberToken);
-            } else if (currentChar == '\n') {
-                textManager.getCharacter(); // consume newline character first
-                Token newlineToken = new Token(Token.TokenTypes.NEWLINE, textManager.getLineNumber(), textManager.getColumnNumber());
-                System.out.println("Newline Token: " + newlineToken);
-                tokens.add(newlineToken);
-                handleIndentation(tokens);
-            } else if (Character.isWhitespace(currentChar)) {
-                textManager.getCharacter();
-            } else if (currentChar == '{') {
-                readComment();
-            } else if (currentChar == '"') {
-                Token stringToken = readQuotedString();
-                System.out.println("String Token: " + stringToken);
-                tokens.add(stringToken);
-            } else if (currentChar == '\'') {
-                Token charToken = readQuotedCharacter();
-                System.out.println("Character Token: " + charToken);
-                tokens.add(charToken);
-            } else {
-                Token punctuationToken = readPunctuation();
-                System.out.println("Punctuation Token: " + punctuationToken);
-                tokens.add(punctuationToken);
+    /**
+     * Lex all of the text into a TokenBuffer rather than a list of Tokens.
+     */
+    public TokenBuffer LexPacked() throws SyntaxErrorException {
+        TokenBuffer tokens = new TokenBuffer();
+        try {
+            while (lexMore(tokens)) {
             }
+        } finally {
+            close();
+        }
+        return tokens;
+    }
+
+    /**
+     * Stop reading the text - closes the Reader (or mapped file) if the lexer hasn't got to the end of it.
+     */
+    @Override
+    public void close() {
+        textManager.close();
+    }
+
+    /**
+     * Read just enough of the text to make the next token.
+     * @return the next token, or empty at the end of the text
+     */
+    public Optional<Token> nextToken() throws SyntaxErrorException {
+        if (nextPending == pending.size()) {
+            pending.removeFirst(nextPending);
+            nextPending = 0;
+            if (!lexMore(pending)) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(pending.get(nextPending++));
+    }
+
+    /**
+     * Read just enough of the text to append at least one more token to tokens (a newline can make several at once).
+     * No Token objects are made unless there is a listener to hand them to.
+     * @return false if the text had already run out
+     */
+    boolean lexMore(TokenBuffer tokens) throws SyntaxErrorException {
+        int before = tokens.size();
+        while (tokens.size() == before && !textManager.isAtEnd()) {
+            lexCharacter(tokens);
         }
 
         // DEDENT
-        while (currentIndentation > 0) {
-            Token dedentToken = new Token(Token.TokenTypes.DEDENT, textManager.getLineNumber(), textManager.getColumnNumber());
-            System.out.println("DEDENT Token: " + dedentToken);
-            tokens.add(dedentToken);
-            currentIndentation--;
+        if (tokens.size() == before && !finished) {
+            finished = true;
+            while (currentIndentation > 0) {
+                tokens.add(Token.TokenTypes.DEDENT, textManager.getLineNumber(), textManager.getColumnNumber(), null);
+                currentIndentation--;
+            }
+        }
+        if (listener != LexerListener.none) {
+            for (int i = before; i < tokens.size(); i++) {
+                listener.token(tokens.get(i));
+            }
         }
+        return tokens.size() > before;
+    }
 
-        return tokens;
+    private void lexCharacter(TokenBuffer tokens) throws SyntaxErrorException {
+        char currentChar = textManager.peekCharacter();
+
+        if (isLetter(currentChar)) {
+            readWord(tokens);
+        } else if (isDigit(currentChar) || (currentChar == '.' && isDigit(textManager.peekCharacter(1)))) {
+            readNumber(tokens);
+        } else if (currentChar == '\n') {
+            textManager.getCharacter(); // consume newline character first
+            tokens.add(Token.TokenTypes.NEWLINE, textManager.getLineNumber(), textManager.getColumnNumber(), null);
+            handleIndentation(tokens);
+        } else if (isWhitespace(currentChar)) {
+            textManager.getCharacter();
+        } else if (currentChar == '{') {
+            readComment();
+        } else if (currentChar == '"') {
+            readQuotedString(tokens);
+        } else if (currentChar == '\'') {
+            readQuotedCharacter(tokens);
+        } else {
+            readPunctuation(tokens);
+        }
     }
 
-    private Token readWord() {
-        StringBuilder buffer = new StringBuilder();
+    private void readWord(TokenBuffer tokens) {
+        int length = 0;
         int line = textManager.getLineNumber();
         int column = textManager.getColumnNumber();
 
         // read first char (must be a letter)
-        if (Character.isLetter(textManager.peekCharacter())) {
-            buffer.append(textManager.getCharacter());
+        if (isLetter(textManager.peekCharacter())) {
+            length = keep(length, textManager.getCharacter());
         }
 
         // read subsequent chars (letters or digits)
-        while (!textManager.isAtEnd() && Character.isLetterOrDigit(textManager.peekCharacter())) {
-            buffer.append(textManager.getCharacter());
+        while (!textManager.isAtEnd() && isLetterOrDigit(textManager.peekCharacter())) {
+            length = keep(length, textManager.getCharacter());
         }
 
-        String word = buffer.toString();
-
         // check if word is keyword
-        if (keywords.containsKey(word)) {
-            return new Token(keywords.get(word), line, column);
+        Token.TokenTypes keyword = keyword(length);
+        if (keyword != null) {
+            tokens.add(keyword, line, column, null);
+        } else {
+            tokens.add(Token.TokenTypes.WORD, line, column, names.intern(word, length));
+        }
+    }
+
+    /**
+     * Which keyword is the word in word[0..length), if any? Picks the only possible keyword(s) by length and first
+     * letter, then compares the rest.
+     */
+    private Token.TokenTypes keyword(int length) {
+        switch (length) {
+            case 2:
+                return wordIs("if", length) ? Token.TokenTypes.IF : null;
+            case 3:
+                return wordIs("new", length) ? Token.TokenTypes.NEW : null;
+            case 4:
+                if (word[0] == 'l') return wordIs("loop", length) ? Token.TokenTypes.LOOP : null;
+                return wordIs("else", length) ? Token.TokenTypes.ELSE : null;
+            case 5:
+                return wordIs("class", length) ? Token.TokenTypes.CLASS : null;
+            case 6:
+                return wordIs("shared", length) ? Token.TokenTypes.SHARED : null;
+            case 7:
+                return wordIs("private", length) ? Token.TokenTypes.PRIVATE : null;
+            case 9:
+                if (word[0] == 'i') return wordIs("interface", length) ? Token.TokenTypes.INTERFACE : null;
+                return wordIs("construct", length) ? Token.TokenTypes.CONSTRUCT : null;
+            case 10:
+                return wordIs("implements", length) ? Token.TokenTypes.IMPLEMENTS : null;
+            default:
+                return null;
+        }
+    }
+
+    private boolean wordIs(String keyword, int length) {
+        for (int i = 0; i < length; i++) {
+            if (word[i] != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Put c in word[length], making room if we have to.
+     * @return the new length
+     */
+    private int keep(int length, char c) {
+        if (length == word.length) {
+            word = Arrays.copyOf(word, length * 2);
+        }
+        word[length] = c;
+        return length + 1;
+    }
+
+    /**
+     * Add a token whose value is the length characters just read, starting at start: a slice of the text if we have
+     * all of it, otherwise a String of the characters kept in word.
+     */
+    private void addValueToken(TokenBuffer tokens, Token.TokenTypes type, int line, int column, int start, int length) {
+        if (textManager.getSource() != null) {
+            tokens.add(type, line, column, textManager.getSource(), start, length);
         } else {
-            return new Token(Token.TokenTypes.WORD, line, column, word);
+            tokens.add(type, line, column, new String(word, 0, length));
         }
     }
 
-    private Token readNumber() {
-        StringBuilder buffer = new StringBuilder();
+    private static boolean isLetter(char c) {
+        return c < 128 ? (asciiClasses[c] & letter) != 0 : Character.isLetter(c);
+    }
+
+    private static boolean isDigit(char c) {
+        return c < 128 ? (asciiClasses[c] & digit) != 0 : Character.isDigit(c);
+    }
+
+    private static boolean isLetterOrDigit(char c) {
+        return c < 128 ? (asciiClasses[c] & (letter | digit)) != 0 : Character.isLetterOrDigit(c);
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c < 128 ? (asciiClasses[c] & whitespace) != 0 : Character.isWhitespace(c);
+    }
+
+    private void readNumber(TokenBuffer tokens) {
+        int length = 0;
+        int start = textManager.getPosition();
         int line = textManager.getLineNumber();
         int column = textManager.getColumnNumber();
 
 
         // read digits before decimal
-        while (!textManager.isAtEnd() && (Character.isDigit(textManager.peekCharacter()) || textManager.peekCharacter() == '.')) {
-            buffer.append(textManager.getCharacter());
+        while (!textManager.isAtEnd() && (isDigit(textManager.peekCharacter()) || textManager.peekCharacter() == '.')) {
+            length = keep(length, textManager.getCharacter());
         }
 
         // check for negative sign after first
-        if (buffer.length() == 1 && buffer.charAt(0) == '-') {
+        if (length == 1 && word[0] == '-') {
             // read digits after negative
-            while (!textManager.isAtEnd() && Character.isDigit(textManager.peekCharacter())) {
-                buffer.append(textManager.getCharacter());
+            while (!textManager.isAtEnd() && isDigit(textManager.peekCharacter())) {
+                length = keep(length, textManager.getCharacter());
             }
         }
-        return new Token(Token.TokenTypes.NUMBER, line, column, buffer.toString());
+        addValueToken(tokens, Token.TokenTypes.NUMBER, line, column, start, length);
     }
 
 
-    private void handleIndentation(List<Token> tokens) throws SyntaxErrorException {
+    private void handleIndentation(TokenBuffer tokens) throws SyntaxErrorException {
         int spaces = 0;
 
         // Count spaces and tabs at the beginning of the line
@@ -160,7 +350,7 @@ public class Lexer {
         // Generate INDENT tokens if the indentation level increases
         if (indentLevel > currentIndentation) {
             for (int i = currentIndentation; i < indentLevel; i++) {
-                tokens.add(new Token(Token.TokenTypes.INDENT, textManager.getLineNumber(), textManager.getColumnNumber()));
+                tokens.add(Token.TokenTypes.INDENT, textManager.getLineNumber(), textManager.getColumnNumber(), null);
             }
             indentationLevels.push(currentIndentation);
             currentIndentation = indentLevel;
@@ -168,7 +358,7 @@ public class Lexer {
         // Generate DEDENT tokens if the indentation level decreases
         else if (indentLevel < currentIndentation) {
             while (currentIndentation > indentLevel) {
-                tokens.add(new Token(Token.TokenTypes.DEDENT, textManager.getLineNumber(), textManager.getColumnNumber()));
+                tokens.add(Token.TokenTypes.DEDENT, textManager.getLineNumber(), textManager.getColumnNumber(), null);
                 currentIndentation = indentationLevels.pop();
             }
         }
@@ -191,14 +381,15 @@ public class Lexer {
         textManager.getCharacter(); // consume '}'
     }
 
-    private Token readQuotedString() throws SyntaxErrorException {
-        StringBuilder buffer = new StringBuilder();
+    private void readQuotedString(TokenBuffer tokens) throws SyntaxErrorException {
+        int length = 0;
         int line = textManager.getLineNumber();
         int column = textManager.getColumnNumber();
         textManager.getCharacter(); // consume '"'
+        int start = textManager.getPosition();
 
         while (!textManager.isAtEnd() && textManager.peekCharacter() != '"') {
-            buffer.append(textManager.getCharacter());
+            length = keep(length, textManager.getCharacter());
         }
 
         if (textManager.isAtEnd()) {
@@ -206,17 +397,18 @@ public class Lexer {
         }
 
         textManager.getCharacter();
-        return new Token(Token.TokenTypes.QUOTEDSTRING, line, column, buffer.toString());
+        addValueToken(tokens, Token.TokenTypes.QUOTEDSTRING, line, column, start, length);
     }
 
-    private Token readQuotedCharacter() throws SyntaxErrorException {
-        StringBuilder buffer = new StringBuilder();
+    private void readQuotedCharacter(TokenBuffer tokens) throws SyntaxErrorException {
+        int length = 0;
         int line = textManager.getLineNumber();
         int column = textManager.getColumnNumber();
         textManager.getCharacter();
+        int start = textManager.getPosition();
 
         if (!textManager.isAtEnd() && textManager.peekCharacter() != '\'') {
-            buffer.append(textManager.getCharacter());
+            length = keep(length, textManager.getCharacter());
         } else {
             throw new SyntaxErrorException("Empty character literal", line, column);
         }
@@ -227,67 +419,71 @@ public class Lexer {
 
         textManager.getCharacter();
 
-        if (buffer.length() != 1) {
+        if (length != 1) {
             throw new SyntaxErrorException("Character literal must contain exactly one character", line, column);
         }
 
-        return new Token(Token.TokenTypes.QUOTEDCHARACTER, line, column, buffer.toString());
+        addValueToken(tokens, Token.TokenTypes.QUOTEDCHARACTER, line, column, start, length);
     }
 
-    private Token readPunctuation() throws SyntaxErrorException {
+    private void readPunctuation(TokenBuffer tokens) throws SyntaxErrorException {
         int line = textManager.getLineNumber();
         int column = textManager.getColumnNumber();
+        tokens.add(punctuation(line, column), line, column, null);
+    }
+
+    private Token.TokenTypes punctuation(int line, int column) throws SyntaxErrorException {
         char currentChar = textManager.getCharacter();
 
         switch (currentChar) {
             case '=':
                 if (textManager.peekCharacter() == '=') {
                     textManager.getCharacter();
-                    return new Token(Token.TokenTypes.EQUAL, line, column);
+                    return Token.TokenTypes.EQUAL;
                 } else {
-                    return new Token(Token.TokenTypes.ASSIGN, line, column);
+                    return Token.TokenTypes.ASSIGN;
                 }
             case '>':
                 if (textManager.peekCharacter() == '=') {
                     textManager.getCharacter();
-                    return new Token(Token.TokenTypes.GREATERTHANEQUAL, line, column);
+                    return Token.TokenTypes.GREATERTHANEQUAL;
                 } else {
-                    return new Token(Token.TokenTypes.GREATERTHAN, line, column);
+                    return Token.TokenTypes.GREATERTHAN;
                 }
             case '<':
                 if (textManager.peekCharacter() == '=') {
                     textManager.getCharacter();
-                    return new Token(Token.TokenTypes.LESSTHANEQUAL, line, column);
+                    return Token.TokenTypes.LESSTHANEQUAL;
                 } else {
-                    return new Token(Token.TokenTypes.LESSTHAN, line, column);
+                    return Token.TokenTypes.LESSTHAN;
                 }
             case '!':
                 if (textManager.peekCharacter() == '=') {
                     textManager.getCharacter();
-                    return new Token(Token.TokenTypes.NOTEQUAL, line, column);
+                    return Token.TokenTypes.NOTEQUAL;
                 } else {
                     throw new SyntaxErrorException("Unexpected character: " + currentChar, line, column);
                 }
             case '(':
-                return new Token(Token.TokenTypes.LPAREN, line, column);
+                return Token.TokenTypes.LPAREN;
             case ')':
-                return new Token(Token.TokenTypes.RPAREN, line, column);
+                return Token.TokenTypes.RPAREN;
             case ':':
-                return new Token(Token.TokenTypes.COLON, line, column);
+                return Token.TokenTypes.COLON;
             case '.':
-                return new Token(Token.TokenTypes.DOT, line, column);
+                return Token.TokenTypes.DOT;
             case '+':
-                return new Token(Token.TokenTypes.PLUS, line, column);
+                return Token.TokenTypes.PLUS;
             case '-':
-                return new Token(Token.TokenTypes.MINUS, line, column);
+                return Token.TokenTypes.MINUS;
             case '*':
-                return new Token(Token.TokenTypes.TIMES, line, column);
+                return Token.TokenTypes.TIMES;
             case '/':
-                return new Token(Token.TokenTypes.DIVIDE, line, column);
+                return Token.TokenTypes.DIVIDE;
             case '%':
-                return new Token(Token.TokenTypes.MODULO, line, column);
+                return Token.TokenTypes.MODULO;
             case ',':
-                return new Token(Token.TokenTypes.COMMA, line, column);
+                return Token.TokenTypes.COMMA;
             default:
                 throw new SyntaxErrorException("Unexpected character: " + currentChar, line, column);
         }
@@ -0,0 +1,12 @@
+package Tran;
+
+/**
+ * Told about every token the Lexer makes, in order - for tracing the lexer while debugging.
+ * The lexer uses none unless it is given a listener, so ordinary lexing doesn't pay for any of this.
+ */
+public interface LexerListener {
+    LexerListener none = token -> {
+    };
+
+    void token(Token token);
+}
@@ -0,0 +1,35 @@
+package Tran;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A LexerListener that writes each token (as Token.toString(), one per line) to a file.
+ * The output is buffered - close() it when lexing is finished.
+ */
+public class LexerTraceFile implements LexerListener, AutoCloseable {
+    private final BufferedWriter out;
+
+    public LexerTraceFile(Path file) throws IOException {
+        this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void token(Token token) {
+        try {
+            out.write(token.toString());
+            out.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,71 @@
+package Tran;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a UTF-8 file by memory mapping it, a chunk at a time, and decoding it as it is read - the file is never
+ * copied into the Java heap as a whole (as bytes or as a String).
+ */
+public class MappedFileReader extends Reader {
+    private static final long chunkSize = 64L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+    private MappedByteBuffer chunk;
+    private long chunkStart;
+    private boolean flushed;
+
+    public MappedFileReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        size = channel.size();
+        map(0);
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+        if (flushed) {
+            return -1;
+        }
+        var out = CharBuffer.wrap(chars, offset, length);
+        while (out.position() == offset && length > 0) {
+            boolean lastChunk = chunkStart + chunk.limit() >= size;
+            CoderResult result = decoder.decode(chunk, out, lastChunk);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (result.isUnderflow()) {
+                if (!lastChunk) {
+                    // Move on, starting with any bytes of a character that was split between chunks
+                    map(chunkStart + chunk.position());
+                } else {
+                    decoder.flush(out);
+                    flushed = true;
+                    break;
+                }
+            }
+        }
+        int read = out.position() - offset;
+        return read == 0 && flushed ? -1 : read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void map(long start) throws IOException {
+        chunkStart = start;
+        chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(chunkSize, size - start));
+    }
+}
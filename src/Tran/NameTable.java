@@ -0,0 +1,83 @@
+package Tran;
+
+/**
+ * Interns the names the lexer reads, so that every use of a name shares one String and a name that has been seen
+ * before costs no allocation at all. An open addressing hash table keyed by the name's characters.
+ */
+class NameTable {
+    private String[] names = new String[256];
+    private int count;
+
+    /**
+     * @return the String for chars[0, length), made the first time that name is seen
+     */
+    String intern(char[] chars, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chars[i]; // same as String.hashCode(), which the String caches for us
+        }
+        int mask = names.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            String name = names[i];
+            if (name == null) {
+                name = new String(chars, 0, length);
+                names[i] = name;
+                if (++count * 2 > names.length) {
+                    grow();
+                }
+                return name;
+            }
+            if (name.hashCode() == hash && matches(name, chars, length)) {
+                return name;
+            }
+        }
+    }
+
+    /**
+     * @return the String already in the table that equals name, or name itself (added to the table) if there isn't one
+     */
+    String intern(String name) {
+        int hash = name.hashCode();
+        int mask = names.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            String found = names[i];
+            if (found == null) {
+                names[i] = name;
+                if (++count * 2 > names.length) {
+                    grow();
+                }
+                return name;
+            }
+            if (found.hashCode() == hash && found.equals(name)) {
+                return found;
+            }
+        }
+    }
+
+    private static boolean matches(String name, char[] chars, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void grow() {
+        String[] old = names;
+        names = new String[old.length * 2];
+        int mask = names.length - 1;
+        for (String name : old) {
+            if (name != null) {
+                int i = name.hashCode() & mask;
+                while (names[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                names[i] = name;
+            }
+        }
+    }
+}
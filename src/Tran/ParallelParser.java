@@ -0,0 +1,124 @@
+package Tran;
+
+import AST.TranNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Lexes and parses a big source file on several threads at once.
+ *
+ * Every class and interface starts with "class" or "interface" at the start of a line, and nothing carries over from
+ * one of them to the next, so the file can be cut at those lines and each piece lexed and parsed on its own (with its
+ * own Lexer and Parser). The pieces' classes and interfaces are then put together in source order.
+ */
+public class ParallelParser {
+    // Pieces smaller than this aren't worth a task of their own, so several top-level declarations share one
+    private static final int minimumPieceSize = 16 * 1024;
+
+    private final ForkJoinPool pool;
+
+    public ParallelParser(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public ParallelParser() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parse source into top, the same as new Parser(top, new Lexer(source).Lex()).Tran() would.
+     * @throws SyntaxErrorException the error from the first piece (in source order) that has one
+     */
+    public void parse(TranNode top, String source) throws SyntaxErrorException {
+        List<Integer> starts = pieceStarts(source, minimumPieceSize);
+        List<Future<TranNode>> pieces = new ArrayList<>();
+        int firstLine = 1;
+        for (int i = 0; i < starts.size(); i++) {
+            int start = starts.get(i);
+            int end = i + 1 < starts.size() ? starts.get(i + 1) : source.length();
+            String piece = source.substring(start, end);
+            int line = firstLine;
+            pieces.add(pool.submit(() -> {
+                var node = new TranNode();
+                new Parser(node, new Lexer(piece, line).LexPacked()).Tran();
+                return node;
+            }));
+            firstLine += countLines(source, start, end);
+        }
+
+        for (var piece : pieces) {
+            TranNode node;
+            try {
+                node = piece.get();
+            } catch (ExecutionException e) {
+                // The pool wraps checked exceptions (in a RuntimeException) before the Future wraps them again
+                for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                    if (cause instanceof SyntaxErrorException error) {
+                        throw error;
+                    }
+                }
+                throw new RuntimeException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            top.Interfaces.addAll(node.Interfaces);
+            top.Classes.addAll(node.Classes);
+        }
+    }
+
+    /**
+     * Find where each piece starts: the start of a line beginning with "class" or "interface" (outside of comments
+     * and quotes), skipping any that would make a piece smaller than minimumSize.
+     */
+    static List<Integer> pieceStarts(String source, int minimumSize) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        boolean inComment = false;
+        boolean inString = false;
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (inComment) {
+                inComment = c != '}';
+            } else if (inString) {
+                inString = c != '"';
+            } else if (c == '{') {
+                inComment = true;
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '\'' && i + 2 < source.length() && source.charAt(i + 2) == '\'') {
+                i += 2; // a quoted character - it might be '{' or '"'
+            } else if (c == '\n' && i + 1 - starts.get(starts.size() - 1) >= minimumSize
+                    && startsDeclaration(source, i + 1)) {
+                starts.add(i + 1);
+            }
+        }
+        return starts;
+    }
+
+    /**
+     * Does a class or interface declaration start at source[at]?
+     */
+    static boolean startsDeclaration(String source, int at) {
+        return startsWord(source, at, "class") || startsWord(source, at, "interface");
+    }
+
+    private static boolean startsWord(String source, int at, String word) {
+        int end = at + word.length();
+        return source.startsWith(word, at) && (end == source.length() || !Character.isLetterOrDigit(source.charAt(end)));
+    }
+
+    static int countLines(String source, int start, int end) {
+        int lines = 0;
+        for (int i = start; i < end; i++) {
+            if (source.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+}
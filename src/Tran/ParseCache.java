@@ -0,0 +1,83 @@
+package Tran;
+
+import AST.TranNode;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Remembers the AST of every program it has parsed, on disk, as an AstSnapshot named after the SHA-256 hash of the
+ * source. Parsing the same source again just maps that file and reads the tree back - no lexing or parsing.
+ *
+ * The cache is only ever an optimization: a snapshot that is missing, damaged or can't be written just means the
+ * source is parsed the normal way.
+ *
+ * Every tree it hands out has been through an AstCompactor, so the trees a program cache keeps in memory are compact
+ * and share their names.
+ */
+public class ParseCache {
+    private final Path directory;
+    private final AstCompactor compactor = new AstCompactor();
+
+    public ParseCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * The AST for source - from the cache if it has been parsed before, otherwise parsed (and then cached).
+     */
+    public TranNode parse(String source) throws SyntaxErrorException {
+        Path snapshot = directory.resolve(hash(source) + ".ast");
+        TranNode cached = load(snapshot);
+        if (cached != null) {
+            return compactor.compact(cached);
+        }
+
+        var top = new TranNode();
+        new Parser(top, new Lexer(source).LexPacked()).Tran();
+        save(snapshot, AstSnapshot.write(top));
+        return compactor.compact(top);
+    }
+
+    private static TranNode load(Path snapshot) {
+        try (var channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            return AstSnapshot.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            return null; // AstSnapshot checks what it reads, but a damaged snapshot is never worth more than a miss
+        }
+    }
+
+    private void save(Path snapshot, byte[] bytes) {
+        try {
+            Files.createDirectories(directory);
+            // Write it somewhere else first, so that nobody ever maps half a snapshot
+            Path temporary = Files.createTempFile(directory, "snapshot", ".tmp");
+            Files.write(temporary, bytes);
+            try {
+                Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // Not cached this time
+        }
+    }
+
+    private static String hash(String source) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+    }
+}
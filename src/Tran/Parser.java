@@ -6,100 +6,171 @@ import java.util.*;
 public class Parser {
     private final TokenManager tokenManager;
     private final TranNode tranNode;
+    private List<SyntaxErrorException> errors; // null unless we are recovering from errors
 
     public Parser(TranNode top, List<Token> tokens) {
         this.tranNode = top;
         this.tokenManager = new TokenManager(tokens);
     }
 
+    public Parser(TranNode top, TokenBuffer tokens) {
+        this.tranNode = top;
+        this.tokenManager = new TokenManager(tokens);
+    }
+
+    /**
+     * Parse while the lexer is still reading the text - tokens are lexed as the parser gets to them.
+     */
+    public Parser(TranNode top, Lexer lexer) {
+        this.tranNode = top;
+        this.tokenManager = new TokenManager(lexer);
+    }
+
     public void Tran() throws SyntaxErrorException {
+        try {
+            parseTran();
+        } catch (TokenManager.LexError e) {
+            throw e.error;
+        } finally {
+            tokenManager.close(); // a syntax error stops us before the lexer gets to the end of its text
+        }
+    }
+
+    /**
+     * Parse the whole program even if it has syntax errors. Each error is recorded, the rest of its line (and any
+     * block under it) is skipped, and parsing carries on - so the TranNode has everything that did parse, with an
+     * ErrorNode in place of each statement that didn't.
+     * @return every syntax error, in source order (empty if there were none)
+     */
+    public List<SyntaxErrorException> TranWithRecovery() {
+        errors = new ArrayList<>();
+        try {
+            parseTran();
+        } catch (TokenManager.LexError e) {
+            errors.add(e.error); // the lexer can't carry on, so neither can we
+        } catch (SyntaxErrorException e) {
+            errors.add(e);
+        } finally {
+            tokenManager.close();
+        }
+        return errors;
+    }
+
+    private void parseTran() throws SyntaxErrorException {
         tokenManager.skipIndent();
         tokenManager.skipNewLines();
 
         while (!tokenManager.done()) {
-            Optional<InterfaceNode> interfaceNode = Interface();
-            if (interfaceNode.isPresent()) {
-                tranNode.Interfaces.add(interfaceNode.get());
-            } else {
-                Optional<ClassNode> classNode = Class();
-                if (classNode.isPresent()) {
-                    tranNode.Classes.add(classNode.get());
-                } else if (!tokenManager.done()) {
-                    throw syntaxError("Expected interface or class declaration");
+            try {
+                Optional<InterfaceNode> interfaceNode = Interface();
+                if (interfaceNode.isPresent()) {
+                    tranNode.Interfaces.add(interfaceNode.get());
+                } else {
+                    Optional<ClassNode> classNode = Class();
+                    if (classNode.isPresent()) {
+                        tranNode.Classes.add(classNode.get());
+                    } else if (!tokenManager.done()) {
+                        throw syntaxError("Expected interface or class declaration");
+                    }
                 }
+            } catch (SyntaxErrorException e) {
+                recover(e);
+                tokenManager.skipDedent();
             }
             tokenManager.skipIndent();
             tokenManager.skipNewLines();
         }
     }
 
+    /**
+     * Parse the tokens of just one method, lexed on their own from the middle of a class (for IncrementalParser).
+     * @return the method, or empty if the tokens aren't exactly one method
+     */
+    Optional<MethodDeclarationNode> SingleMethod() throws SyntaxErrorException {
+        Optional<MethodDeclarationNode> method = MethodDeclaration();
+        tokenManager.skipNewLines();
+        tokenManager.skipDedent();
+        if (!tokenManager.done()) {
+            return Optional.empty();
+        }
+        return method;
+    }
+
     private Optional<ClassNode> Class() throws SyntaxErrorException {
-        if (tokenManager.matchAndRemove(Token.TokenTypes.CLASS).isEmpty()) return Optional.empty();
+        if (!tokenManager.matchAndSkip(Token.TokenTypes.CLASS)) return Optional.empty();
 
-        Optional<Token> classNameToken = tokenManager.matchAndRemove(Token.TokenTypes.WORD);
-        if (classNameToken.isEmpty()) throw syntaxError("Expected class name");
+        Optional<String> className = tokenManager.matchAndRemoveValue(Token.TokenTypes.WORD);
+        if (className.isEmpty()) throw syntaxError("Expected class name");
 
         ClassNode classNode = new ClassNode();
-        classNode.name = classNameToken.get().getValue();
+        classNode.name = className.get();
 
-        if (tokenManager.matchAndRemove(Token.TokenTypes.IMPLEMENTS).isPresent()) {
+        if (tokenManager.matchAndSkip(Token.TokenTypes.IMPLEMENTS)) {
             while (true) {
-                Optional<Token> interfaceToken = tokenManager.matchAndRemove(Token.TokenTypes.WORD);
-                if (interfaceToken.isEmpty()) throw syntaxError("Expected interface name after 'implements'");
-                classNode.interfaces.add(interfaceToken.get().getValue());
-                if (tokenManager.matchAndRemove(Token.TokenTypes.COMMA).isEmpty()) break;
+                Optional<String> interfaceName = tokenManager.matchAndRemoveValue(Token.TokenTypes.WORD);
+                if (interfaceName.isEmpty()) throw syntaxError("Expected interface name after 'implements'");
+                classNode.interfaces.add(interfaceName.get());
+                if (!tokenManager.matchAndSkip(Token.TokenTypes.COMMA)) break;
             }
         }
         tokenManager.skipNewLines();
-        if (tokenManager.matchAndRemove(Token.TokenTypes.INDENT).isEmpty()) throw syntaxError("Expected indentation after class declaration");
+        if (!tokenManager.matchAndSkip(Token.TokenTypes.INDENT)) throw syntaxError("Expected indentation after class declaration");
 
-        while (!tokenManager.done() && tokenManager.peekCurrent().isPresent() && tokenManager.peekCurrent().get().getType() != Token.TokenTypes.DEDENT) {
-            Optional<MemberNode> member = Member();
-            if (member.isPresent()) {
-                classNode.members.add(member.get());
-                tokenManager.skipNewLines();
-            } else {
-                Optional<ConstructorNode> constructor = Constructor();
-                if (constructor.isPresent()) {
-                    classNode.constructors.add(constructor.get());
+        while (!tokenManager.done() && !tokenManager.nextIs(Token.TokenTypes.DEDENT)) {
+            try {
+                Optional<MemberNode> member = Member();
+                if (member.isPresent()) {
+                    classNode.members.add(member.get());
                     tokenManager.skipNewLines();
                 } else {
-                    Optional<MethodDeclarationNode> method = MethodDeclaration();
-                    if (method.isPresent()) {
-                        classNode.methods.add(method.get());
+                    Optional<ConstructorNode> constructor = Constructor();
+                    if (constructor.isPresent()) {
+                        classNode.constructors.add(constructor.get());
                         tokenManager.skipNewLines();
                     } else {
-                        throw syntaxError("Expected member, constructor, or method declaration");
+                        Optional<MethodDeclarationNode> method = MethodDeclaration();
+                        if (method.isPresent()) {
+                            classNode.methods.add(method.get());
+                            tokenManager.skipNewLines();
+                        } else {
+                            throw syntaxError("Expected member, constructor, or method declaration");
+                        }
                     }
                 }
+            } catch (SyntaxErrorException e) {
+                recover(e);
             }
         }
-        tokenManager.matchAndRemove(Token.TokenTypes.DEDENT);
+        tokenManager.matchAndSkip(Token.TokenTypes.DEDENT);
         return Optional.of(classNode);
     }
 
     private Optional<ConstructorNode> Constructor() throws SyntaxErrorException {
-        if (tokenManager.matchAndRemove(Token.TokenTypes.CONSTRUCT).isEmpty()) return Optional.empty();
+        if (!tokenManager.matchAndSkip(Token.TokenTypes.CONSTRUCT)) return Optional.empty();
 
         ConstructorNode constructorNode = new ConstructorNode();
 
-        if (tokenManager.matchAndRemove(Token.TokenTypes.LPAREN).isPresent()) {
+        if (tokenManager.matchAndSkip(Token.TokenTypes.LPAREN)) {
             constructorNode.parameters = ParameterVariableDeclarations().orElse(new ArrayList<>());
-            if (tokenManager.matchAndRemove(Token.TokenTypes.RPAREN).isEmpty()) throw syntaxError("Expected ')' after constructor parameters");
+            if (!tokenManager.matchAndSkip(Token.TokenTypes.RPAREN)) throw syntaxError("Expected ')' after constructor parameters");
         }
 
         tokenManager.skipNewLines();
-        if (tokenManager.matchAndRemove(Token.TokenTypes.INDENT).isPresent()) {
-            while (!tokenManager.done() && tokenManager.peekCurrent().isPresent() && tokenManager.peekCurrent().get().getType() != Token.TokenTypes.DEDENT) {
-                Optional<StatementNode> statement = Statement();
-                if (statement.isPresent()) {
-                    constructorNode.statements.add(statement.get());
-                } else {
-                    throw syntaxError("Expected statement in constructor body");
+        if (tokenManager.matchAndSkip(Token.TokenTypes.INDENT)) {
+            while (!tokenManager.done() && !tokenManager.nextIs(Token.TokenTypes.DEDENT)) {
+                try {
+                    Optional<StatementNode> statement = Statement();
+                    if (statement.isPresent()) {
+                        constructorNode.statements.add(statement.get());
+                    } else {
+                        throw syntaxError("Expected statement in constructor body");
+                    }
+                } catch (SyntaxErrorException e) {
+                    constructorNode.statements.add(recover(e));
                 }
                 tokenManager.skipNewLines();
             }
-            tokenManager.matchAndRemove(Token.TokenTypes.DEDENT);
+            tokenManager.matchAndSkip(Token.TokenTypes.DEDENT);
         }
         return Optional.of(constructorNode);
     }
@@ -109,90 +180,159 @@ public class Parser {
             return Optional.empty(); // It's a method, not a member
         }
 
-        Optional<Token> typeToken = tokenManager.matchAndRemove(Token.TokenTypes.WORD);
-        if (typeToken.isEmpty()) return Optional.empty();
+        Optional<String> type = tokenManager.matchAndRemoveValue(Token.TokenTypes.WORD);
+        if (type.isEmpty()) return Optional.empty();
 
-        Optional<Token> nameToken = tokenManager.matchAndRemove(Token.TokenTypes.WORD);
-        if (nameToken.isEmpty()) throw syntaxError("Expected member name");
+        Optional<String> name = tokenManager.matchAndRemoveValue(Token.TokenTypes.WORD);
+        if (name.isEmpty()) throw syntaxError("Expected member name");
 
         MemberNode memberNode = new MemberNode();
         memberNode.declaration = new VariableDeclarationNode();
-        memberNode.declaration.type = typeToken.get().getValue();
-        memberNode.declaration.name = nameToken.get().getValue();
+        memberNode.declaration.type = type.get();
+        memberNode.declaration.name = name.get();
         return Optional.of(memberNode);
     }
 
     private Optional<MethodDeclarationNode> MethodDeclaration() throws SyntaxErrorException {
-        boolean isShared = tokenManager.matchAndRemove(Token.TokenTypes.SHARED).isPresent();
-        boolean isPrivate = tokenManager.matchAndRemove(Token.TokenTypes.PRIVATE).isPresent();
+        boolean isShared = tokenManager.matchAndSkip(Token.TokenTypes.SHARED);
+        boolean isPrivate = tokenManager.matchAndSkip(Token.TokenTypes.PRIVATE);
 
-        Optional<Token> methodNameToken = tokenManager.matchAndRemove(Token.TokenTypes.WORD);
-        if (methodNameToken.isEmpty()) return Optional.empty();
+        Optional<String> methodName = tokenManager.matchAndRemoveValue(Token.TokenTypes.WORD);
+        if (methodName.isEmpty()) return Optional.empty();
 
         MethodDeclarationNode methodNode = new MethodDeclarationNode();
         methodNode.isShared = isShared;
         methodNode.isPrivate = isPrivate;
-        methodNode.name = methodNameToken.get().getValue();
+        methodNode.name = methodName.get();
 
-        if (tokenManager.matchAndRemove(Token.TokenTypes.LPAREN).isPresent()) {
+        if (tokenManager.matchAndSkip(Token.TokenTypes.LPAREN)) {
             methodNode.parameters = ParameterVariableDeclarations().orElse(new ArrayList<>());
-            if (tokenManager.matchAndRemove(Token.TokenTypes.RPAREN).isEmpty()) throw syntaxError("Expected ')' after method parameters");
+            if (!tokenManager.matchAndSkip(Token.TokenTypes.RPAREN)) throw syntaxError("Expected ')' after method parameters");
         }
 
-        if (tokenManager.matchAndRemove(Token.TokenTypes.COLON).isPresent()) {
+        if (tokenManager.matchAndSkip(Token.TokenTypes.COLON)) {
             methodNode.returns = ReturnVariableDeclarations().orElse(new ArrayList<>());
         }
 
         tokenManager.skipNewLines();
-        if (tokenManager.matchAndRemove(Token.TokenTypes.INDENT).isPresent()) {
-            while (!tokenManager.done() && tokenManager.peekCurrent().isPresent() && tokenManager.peekCurrent().get().getType() != Token.TokenTypes.DEDENT) {
-                Optional<StatementNode> statement = Statement();
-                if (statement.isPresent()) {
-                    methodNode.statements.add(statement.get());
-                } else {
-                    Optional<VariableDeclarationNode> localVar = VariableDeclaration();
-                    if (localVar.isPresent()) {
-                        methodNode.locals.add(localVar.get());
+        if (tokenManager.matchAndSkip(Token.TokenTypes.INDENT)) {
+            while (!tokenManager.done() && !tokenManager.nextIs(Token.TokenTypes.DEDENT)) {
+                try {
+                    // "type name" is a local variable declaration - no statement starts with two words
+                    if (tokenManager.nextTwoTokensMatch(Token.TokenTypes.WORD, Token.TokenTypes.WORD)) {
+                        methodNode.locals.add(VariableDeclaration().get());
+                        tokenManager.skipNewLines();
+                        continue;
+                    }
+                    Optional<StatementNode> statement = Statement();
+                    if (statement.isPresent()) {
+                        methodNode.statements.add(statement.get());
                     } else {
-                        throw syntaxError("Expected statement or local variable declaration in method body");
+                        Optional<VariableDeclarationNode> localVar = VariableDeclaration();
+                        if (localVar.isPresent()) {
+                            methodNode.locals.add(localVar.get());
+                        } else {
+                            throw syntaxError("Expected statement or local variable declaration in method body");
+                        }
                     }
+                } catch (SyntaxErrorException e) {
+                    methodNode.statements.add(recover(e));
                 }
                 tokenManager.skipNewLines();
             }
-            tokenManager.matchAndRemove(Token.TokenTypes.DEDENT);
+            tokenManager.matchAndSkip(Token.TokenTypes.DEDENT);
         }
         return Optional.of(methodNode);
     }
 
     private Optional<VariableDeclarationNode> VariableDeclaration() throws SyntaxErrorException {
-        Optional<Token> typeToken = tokenManager.matchAndRemove(Token.TokenTypes.WORD);
-        if (typeToken.isEmpty()) return Optional.empty();
+        Optional<String> type = tokenManager.matchAndRemoveValue(Token.TokenTypes.WORD);
+        if (type.isEmpty()) return Optional.empty();
 
-        Optional<Token> nameToken = tokenManager.matchAndRemove(Token.TokenTypes.WORD);
-        if (nameToken.isEmpty()) throw syntaxError("Expected variable name");
+        Optional<String> name = tokenManager.matchAndRemoveValue(Token.TokenTypes.WORD);
+        if (name.isEmpty()) throw syntaxError("Expected variable name");
 
         VariableDeclarationNode variable = new VariableDeclarationNode();
-        variable.type = typeToken.get().getValue();
-        variable.name = nameToken.get().getValue();
+        variable.type = type.get();
+        variable.name = name.get();
         return Optional.of(variable);
     }
 
+    /**
+     * One statement. An if or a loop is parsed along with everything nested under it, however deep, using a list of
+     * open blocks instead of the Java stack.
+     */
     private Optional<StatementNode> Statement() throws SyntaxErrorException {
+        Optional<Block> block = BlockHeader();
+        if (block.isEmpty()) {
+            return disambiguate();
+        }
+        ArrayList<Block> open = new ArrayList<>();
+        open.add(block.get());
+        while (!open.isEmpty()) {
+            Block current = open.get(open.size() - 1);
+            if (tokenManager.done() || tokenManager.nextIs(Token.TokenTypes.DEDENT)) {
+                tokenManager.matchAndSkip(Token.TokenTypes.DEDENT);
+                open.remove(open.size() - 1);
+                if (!open.isEmpty()) {
+                    tokenManager.skipNewLines();
+                }
+                continue;
+            }
+            try {
+                Optional<Block> nested = BlockHeader();
+                if (nested.isPresent()) {
+                    current.statements.add(nested.get().statement);
+                    open.add(nested.get());
+                    continue; // its statements come next
+                }
+                Optional<StatementNode> statement = disambiguate();
+                if (statement.isPresent()) {
+                    current.statements.add(statement.get());
+                } else {
+                    throw syntaxError(current.missingStatement);
+                }
+            } catch (SyntaxErrorException e) {
+                current.statements.add(recover(e));
+            }
+            tokenManager.skipNewLines();
+        }
+        return Optional.of(block.get().statement);
+    }
+
+    /** An if or a loop whose statements are still being parsed */
+    private static class Block {
+        StatementNode statement;
+        List<StatementNode> statements;
+        String missingStatement; // the error when a line in the block isn't a statement
+
+        Block(StatementNode statement, List<StatementNode> statements, String missingStatement) {
+            this.statement = statement;
+            this.statements = statements;
+            this.missingStatement = missingStatement;
+        }
+    }
+
+    /**
+     * The first line of an if or a loop, up to and including the indent of its block.
+     */
+    private Optional<Block> BlockHeader() throws SyntaxErrorException {
         Optional<IfNode> ifNode = If();
         if (ifNode.isPresent()) {
-            return Optional.of(ifNode.get());
+            return Optional.of(new Block(ifNode.get(), ifNode.get().statements, "Expected statement in if body"));
         }
-
         Optional<LoopNode> loopNode = Loop();
         if (loopNode.isPresent()) {
-            return Optional.of(loopNode.get());
+            return Optional.of(new Block(loopNode.get(), loopNode.get().statements, "Expected statement in loop body"));
         }
-
-        return disambiguate();
+        return Optional.empty();
     }
 
+    /**
+     * "if condition" and the indent after it. Statement() parses the statements in the block.
+     */
     private Optional<IfNode> If() throws SyntaxErrorException {
-        if (tokenManager.matchAndRemove(Token.TokenTypes.IF).isEmpty()) return Optional.empty();
+        if (!tokenManager.matchAndSkip(Token.TokenTypes.IF)) return Optional.empty();
 
         IfNode ifNode = new IfNode();
         ifNode.condition = BoolExpTerm();
@@ -202,25 +342,17 @@ public class Parser {
         }
 
         tokenManager.skipNewLines();
-        if (tokenManager.matchAndRemove(Token.TokenTypes.INDENT).isPresent()) {
-            while (!tokenManager.done() && tokenManager.peekCurrent().isPresent() && tokenManager.peekCurrent().get().getType() != Token.TokenTypes.DEDENT) {
-                Optional<StatementNode> statement = Statement();
-                if (statement.isPresent()) {
-                    ifNode.statements.add(statement.get());
-                } else {
-                    throw syntaxError("Expected statement in if body");
-                }
-                tokenManager.skipNewLines();
-            }
-            tokenManager.matchAndRemove(Token.TokenTypes.DEDENT);
-        } else {
+        if (!tokenManager.matchAndSkip(Token.TokenTypes.INDENT)) {
             throw syntaxError("Expected indentation after if statement");
         }
         return Optional.of(ifNode);
     }
 
+    /**
+     * "loop expression" and the indent after it. Statement() parses the statements in the block.
+     */
     private Optional<LoopNode> Loop() throws SyntaxErrorException {
-        if (tokenManager.matchAndRemove(Token.TokenTypes.LOOP).isEmpty()) return Optional.empty();
+        if (!tokenManager.matchAndSkip(Token.TokenTypes.LOOP)) return Optional.empty();
 
         LoopNode loopNode = new LoopNode();
         loopNode.expression = Expression();
@@ -230,85 +362,240 @@ public class Parser {
         }
 
         tokenManager.skipNewLines();
-        if (tokenManager.matchAndRemove(Token.TokenTypes.INDENT).isEmpty()) {
+        if (!tokenManager.matchAndSkip(Token.TokenTypes.INDENT)) {
             throw syntaxError("Expected indentation after loop statement");
         }
-
-        while (!tokenManager.done() && tokenManager.peekCurrent().isPresent() && tokenManager.peekCurrent().get().getType() != Token.TokenTypes.DEDENT) {
-            Optional<StatementNode> statement = Statement();
-            if (statement.isPresent()) {
-                loopNode.statements.add(statement.get());
-            } else {
-                throw syntaxError("Expected statement in loop body");
-            }
-            tokenManager.skipNewLines();
-        }
-
-        tokenManager.matchAndRemove(Token.TokenTypes.DEDENT);
         return Optional.of(loopNode);
     }
 
+    // How tightly each operator holds on to its operands - the index into operatorLevels is the token type's ordinal.
+    // EQUAL and NOTEQUAL are comparisons; after a comparison they join two comparisons together (see Expression(int))
+    private static final int notAnOperator = 0;
+    private static final int booleanLevel = 1;
+    private static final int compareLevel = 2;
+    private static final int addLevel = 3;
+    private static final int multiplyLevel = 4;
+    private static final int[] operatorLevels = new int[Token.TokenTypes.values().length];
+
+    static {
+        for (Token.TokenTypes type : new Token.TokenTypes[]{Token.TokenTypes.EQUAL, Token.TokenTypes.NOTEQUAL,
+                Token.TokenTypes.LESSTHAN, Token.TokenTypes.LESSTHANEQUAL, Token.TokenTypes.GREATERTHAN,
+                Token.TokenTypes.GREATERTHANEQUAL}) {
+            operatorLevels[type.ordinal()] = compareLevel;
+        }
+        operatorLevels[Token.TokenTypes.PLUS.ordinal()] = addLevel;
+        operatorLevels[Token.TokenTypes.MINUS.ordinal()] = addLevel;
+        operatorLevels[Token.TokenTypes.TIMES.ordinal()] = multiplyLevel;
+        operatorLevels[Token.TokenTypes.DIVIDE.ordinal()] = multiplyLevel;
+        operatorLevels[Token.TokenTypes.MODULO.ordinal()] = multiplyLevel;
+    }
+
+    /**
+     * A condition: comparisons, joined by == (and) or != (or).
+     */
     private ExpressionNode BoolExpTerm() throws SyntaxErrorException {
-        ExpressionNode left = BoolExpFactor();
-        if (left == null) return null;
+        return Expression(booleanLevel);
+    }
+
+    /**
+     * Math only - a comparison operator ends the expression.
+     */
+    private ExpressionNode Expression() throws SyntaxErrorException {
+        return Expression(addLevel);
+    }
+
+    /**
+     * Precedence climbing, with the pending operators and operands kept in lists rather than on the Java stack, so
+     * parentheses can nest as deep as they like. Read an operand, then keep taking operators that are at least the
+     * group's minimumLevel; an operator first finishes off the pending ones at its level or tighter (so everything is
+     * left associative). Only one comparison is allowed in a row - after it, == and != join comparisons together
+     * instead. Inside parentheses it's math only, like Expression().
+     */
+    private ExpressionNode Expression(int minimumLevel) throws SyntaxErrorException {
+        ArrayList<ExpressionNode> operands = new ArrayList<>();
+        ArrayList<PendingOperator> operators = new ArrayList<>();
+        ArrayList<Group> groups = new ArrayList<>();
+        groups.add(new Group(minimumLevel, 0));
 
         while (true) {
-            Optional<Token> opToken = tokenManager.matchAndRemove(Token.TokenTypes.EQUAL);
-            if (opToken.isEmpty()) {
-                opToken = tokenManager.matchAndRemove(Token.TokenTypes.NOTEQUAL);
-                if (opToken.isEmpty()) break;
+            while (tokenManager.matchAndSkip(Token.TokenTypes.LPAREN)) {
+                groups.add(new Group(addLevel, operators.size()));
             }
+            operands.add(Operand());
 
-            ExpressionNode right = BoolExpFactor();
-            if (right == null) throw syntaxError("Expected boolean expression after operator");
-
-            BooleanOpNode booleanOpNode = new BooleanOpNode();
-            booleanOpNode.left = left;
-            booleanOpNode.right = right;
-            booleanOpNode.op = opToken.get().getType() == Token.TokenTypes.EQUAL ?
-                    BooleanOpNode.BooleanOperations.and :
-                    BooleanOpNode.BooleanOperations.or;
-            left = booleanOpNode;
-        }
-        return left;
-    }
-
-    private ExpressionNode BoolExpFactor() throws SyntaxErrorException {
-        ExpressionNode left = Expression();
-        if (left == null) return null;
-
-        Optional<Token> opToken = tokenManager.matchAndRemove(Token.TokenTypes.EQUAL);
-        if (opToken.isEmpty()) {
-            opToken = tokenManager.matchAndRemove(Token.TokenTypes.NOTEQUAL);
-            if (opToken.isEmpty()) {
-                opToken = tokenManager.matchAndRemove(Token.TokenTypes.LESSTHAN);
-                if (opToken.isEmpty()) {
-                    opToken = tokenManager.matchAndRemove(Token.TokenTypes.LESSTHANEQUAL);
-                    if (opToken.isEmpty()) {
-                        opToken = tokenManager.matchAndRemove(Token.TokenTypes.GREATERTHAN);
-                        if (opToken.isEmpty()) {
-                            opToken = tokenManager.matchAndRemove(Token.TokenTypes.GREATERTHANEQUAL);
-                            if (opToken.isEmpty()) return left; // no comparison operator return left expression
-                        }
+            // Take operators until one ends the group; then, if the group was in parentheses, carry on with the one
+            // around it
+            while (true) {
+                Group group = groups.get(groups.size() - 1);
+                Token.TokenTypes type = tokenManager.peekType();
+                int level = type == null ? notAnOperator : operatorLevels[type.ordinal()];
+                if (level == compareLevel && group.compared) {
+                    if (type != Token.TokenTypes.EQUAL && type != Token.TokenTypes.NOTEQUAL) {
+                        level = notAnOperator;
+                    } else {
+                        level = booleanLevel;
+                    }
+                }
+                if (level != notAnOperator && level >= group.minimumLevel) {
+                    tokenManager.consume();
+                    reduce(operands, operators, group.firstOperator, level);
+                    operators.add(new PendingOperator(type, level));
+                    if (level == compareLevel) {
+                        group.compared = true;
+                    } else if (level == booleanLevel) {
+                        group.compared = false; // its right hand side can have a comparison of its own
                     }
+                    break; // on to its right hand side
+                }
+
+                reduce(operands, operators, group.firstOperator, booleanLevel);
+                groups.remove(groups.size() - 1);
+                if (groups.isEmpty()) {
+                    return operands.get(0);
+                }
+                if (!tokenManager.matchAndSkip(Token.TokenTypes.RPAREN)) {
+                    throw syntaxError("Expected ')' after expression");
                 }
             }
         }
+    }
+
+    /** An operator whose right hand side hasn't been read yet */
+    private static class PendingOperator {
+        Token.TokenTypes type;
+        int level;
+
+        PendingOperator(Token.TokenTypes type, int level) {
+            this.type = type;
+            this.level = level;
+        }
+    }
 
-        ExpressionNode right = Expression();
-        if (right == null) throw syntaxError("Expected expression after comparison operator");
+    /** The whole expression, or one set of parentheses in it */
+    private static class Group {
+        int minimumLevel; // an operator lower than this ends the group
+        boolean compared; // has there been a comparison since the last boolean operator?
+        int firstOperator; // where the group's operators start in the list of pending operators
 
-        CompareNode compareNode = new CompareNode();
-        compareNode.left = left;
-        compareNode.right = right;
-        compareNode.op = getCompareOperation(opToken.get().getType());
-        return compareNode;
+        Group(int minimumLevel, int firstOperator) {
+            this.minimumLevel = minimumLevel;
+            this.firstOperator = firstOperator;
+        }
+    }
+
+    /**
+     * Build nodes for the pending operators (back to firstOperator) that are at least level, each from the last two
+     * operands.
+     */
+    private void reduce(List<ExpressionNode> operands, List<PendingOperator> operators, int firstOperator, int level) {
+        while (operators.size() > firstOperator && operators.get(operators.size() - 1).level >= level) {
+            PendingOperator operator = operators.remove(operators.size() - 1);
+            ExpressionNode right = operands.remove(operands.size() - 1);
+            ExpressionNode left = operands.remove(operands.size() - 1);
+            if (operator.level == booleanLevel) {
+                BooleanOpNode booleanOpNode = new BooleanOpNode();
+                booleanOpNode.left = left;
+                booleanOpNode.right = right;
+                booleanOpNode.op = operator.type == Token.TokenTypes.EQUAL ?
+                        BooleanOpNode.BooleanOperations.and :
+                        BooleanOpNode.BooleanOperations.or;
+                operands.add(booleanOpNode);
+            } else if (operator.level == compareLevel) {
+                CompareNode compareNode = new CompareNode();
+                compareNode.left = left;
+                compareNode.right = right;
+                compareNode.op = getCompareOperation(operator.type);
+                operands.add(compareNode);
+            } else {
+                MathOpNode mathOpNode = new MathOpNode();
+                mathOpNode.left = left;
+                mathOpNode.right = right;
+                mathOpNode.op = getMathOperation(operator.type);
+                operands.add(mathOpNode);
+            }
+        }
+    }
+
+    private MathOpNode.MathOperations getMathOperation(Token.TokenTypes type) {
+        switch (type) {
+            case PLUS: return MathOpNode.MathOperations.add;
+            case MINUS: return MathOpNode.MathOperations.subtract;
+            case TIMES: return MathOpNode.MathOperations.multiply;
+            case DIVIDE: return MathOpNode.MathOperations.divide;
+            case MODULO: return MathOpNode.MathOperations.modulo;
+            default: throw new IllegalArgumentException("Unexpected token type: " + type);
+        }
     }
+
+    /**
+     * One operand - a literal, a variable or method call, or a new. The next token's type says which. (Expression(int)
+     * takes care of parentheses.)
+     */
+    private ExpressionNode Operand() throws SyntaxErrorException {
+        Token.TokenTypes type = tokenManager.peekType();
+        if (type == null) {
+            throw syntaxError("Expected expression");
+        }
+        switch (type) {
+            case WORD: {
+                Optional<MethodCallExpressionNode> methodCall = MethodCallExpression();
+                if (methodCall.isPresent()) {
+                    return methodCall.get();
+                }
+                return VariableReference().get();
+            }
+            case NUMBER: {
+                NumericLiteralNode numericLiteralNode = new NumericLiteralNode();
+                String number = tokenManager.matchAndRemoveValue(Token.TokenTypes.NUMBER).get();
+                numericLiteralNode.value = Double.parseDouble(number);
+                if (number.indexOf('.') < 0) {
+                    try {
+                        numericLiteralNode.integerValue = Long.parseLong(number);
+                        numericLiteralNode.isInteger = true;
+                    } catch (NumberFormatException e) {
+                        // too big for a long - it stays a double
+                    }
+                }
+                return numericLiteralNode;
+            }
+            case QUOTEDSTRING: {
+                StringLiteralNode stringLiteralNode = new StringLiteralNode();
+                stringLiteralNode.value = tokenManager.matchAndRemoveValue(Token.TokenTypes.QUOTEDSTRING).get();
+                return stringLiteralNode;
+            }
+            case QUOTEDCHARACTER: {
+                CharLiteralNode charLiteralNode = new CharLiteralNode();
+                charLiteralNode.value = tokenManager.matchAndRemoveValue(Token.TokenTypes.QUOTEDCHARACTER).get().charAt(0);
+                return charLiteralNode;
+            }
+            case NEW: {
+                tokenManager.consume();
+                NewNode newNode = new NewNode();
+                Optional<String> className = tokenManager.matchAndRemoveValue(Token.TokenTypes.WORD);
+                if (className.isEmpty()) throw syntaxError("Expected class name after 'new'");
+                newNode.className = className.get();
+
+                if (tokenManager.matchAndSkip(Token.TokenTypes.LPAREN)) {
+                    while (!tokenManager.done() && !tokenManager.nextIs(Token.TokenTypes.RPAREN)) {
+                        newNode.parameters.add(Expression());
+                        if (!tokenManager.matchAndSkip(Token.TokenTypes.COMMA)) break;
+                    }
+                    if (!tokenManager.matchAndSkip(Token.TokenTypes.RPAREN)) {
+                        throw syntaxError("Expected ')' after constructor parameters");
+                    }
+                }
+                return newNode;
+            }
+            default:
+                throw syntaxError("Expected expression");
+        }
+    }
+
     private Optional<VariableReferenceNode> VariableReference() throws SyntaxErrorException {
-        Optional<Token> nameToken = tokenManager.matchAndRemove(Token.TokenTypes.WORD);
-        if (nameToken.isPresent()) {
+        Optional<String> name = tokenManager.matchAndRemoveValue(Token.TokenTypes.WORD);
+        if (name.isPresent()) {
             VariableReferenceNode variableReferenceNode = new VariableReferenceNode();
-            variableReferenceNode.name = nameToken.get().getValue();
+            variableReferenceNode.name = name.get();
             return Optional.of(variableReferenceNode);
         }
         return Optional.empty();
@@ -333,7 +620,7 @@ public class Parser {
         }
 
         // check if assignment
-        if (tokenManager.matchAndRemove(Token.TokenTypes.ASSIGN).isPresent()) {
+        if (tokenManager.matchAndSkip(Token.TokenTypes.ASSIGN)) {
             AssignmentNode assignmentNode = new AssignmentNode();
             assignmentNode.target = variableReference.get();
             assignmentNode.expression = Expression();
@@ -361,166 +648,57 @@ public class Parser {
         }
     }
 
-    private ExpressionNode Expression() throws SyntaxErrorException {
-        ExpressionNode left = Term();
-        // handle additional terms with + or -
-        while (true) {
-            Optional<Token> opToken = tokenManager.matchAndRemove(Token.TokenTypes.PLUS);
-            if (opToken.isEmpty()) {
-                opToken = tokenManager.matchAndRemove(Token.TokenTypes.MINUS);
-                if (opToken.isEmpty()) break;
-            }
-            ExpressionNode right = Term();
-            if (right == null) throw syntaxError("Expected expression after operator");
-
-            MathOpNode mathOpNode = new MathOpNode();
-            mathOpNode.left = left;
-            mathOpNode.right = right;
-            mathOpNode.op = opToken.get().getType() == Token.TokenTypes.PLUS ?
-                    MathOpNode.MathOperations.add : MathOpNode.MathOperations.subtract;
-            left = mathOpNode;
-        }
-        return left;
-    }
-
-    private ExpressionNode Term() throws SyntaxErrorException {
-        // start with first factor
-        ExpressionNode left = Factor();
-        // handle additional factors with *, /, or %
-        while (true) {
-            Optional<Token> opToken = tokenManager.matchAndRemove(Token.TokenTypes.TIMES);
-            if (opToken.isEmpty()) {
-                opToken = tokenManager.matchAndRemove(Token.TokenTypes.DIVIDE);
-                if (opToken.isEmpty()) {
-                    opToken = tokenManager.matchAndRemove(Token.TokenTypes.MODULO);
-                    if (opToken.isEmpty()) break;
-                }
-            }
-
-            ExpressionNode right = Factor();
-            if (right == null) throw syntaxError("Expected expression after operator");
-
-            MathOpNode mathOpNode = new MathOpNode();
-            mathOpNode.left = left;
-            mathOpNode.right = right;
-            mathOpNode.op = opToken.get().getType() == Token.TokenTypes.TIMES ?
-                    MathOpNode.MathOperations.multiply :
-                    (opToken.get().getType() == Token.TokenTypes.DIVIDE ?
-                            MathOpNode.MathOperations.divide : MathOpNode.MathOperations.modulo);
-            left = mathOpNode;
-        }
-        return left;
-    }
-
-    private ExpressionNode Factor() throws SyntaxErrorException {
-        // handle variable references or literals or method calls
-        Optional<VariableReferenceNode> variableReference = VariableReference();
-        if (variableReference.isPresent()) {
-            return variableReference.get();
-        }
-        // handle numeric literals
-        Optional<Token> numberToken = tokenManager.matchAndRemove(Token.TokenTypes.NUMBER);
-        if (numberToken.isPresent()) {
-            NumericLiteralNode numericLiteralNode = new NumericLiteralNode();
-            numericLiteralNode.value = Float.parseFloat(numberToken.get().getValue());
-            return numericLiteralNode;
-        }
-        // handle string literals
-        Optional<Token> stringToken = tokenManager.matchAndRemove(Token.TokenTypes.QUOTEDSTRING);
-        if (stringToken.isPresent()) {
-            StringLiteralNode stringLiteralNode = new StringLiteralNode();
-            stringLiteralNode.value = stringToken.get().getValue();
-            return stringLiteralNode;
-        }
-        // handle character literals
-        Optional<Token> charToken = tokenManager.matchAndRemove(Token.TokenTypes.QUOTEDCHARACTER);
-        if (charToken.isPresent()) {
-            CharLiteralNode charLiteralNode = new CharLiteralNode();
-            charLiteralNode.value = charToken.get().getValue().charAt(0);
-            return charLiteralNode;
-        }
-        // handle method calls (stubbed for now)
-        Optional<MethodCallExpressionNode> methodCall = MethodCallExpression();
-        if (methodCall.isPresent()) {
-            return methodCall.get();
-        }
-        // parentheses
-        if (tokenManager.matchAndRemove(Token.TokenTypes.LPAREN).isPresent()) {
-            ExpressionNode expression = Expression();
-            if (tokenManager.matchAndRemove(Token.TokenTypes.RPAREN).isEmpty()) {
-                throw syntaxError("Expected ')' after expression");
-            }
-            return expression;
-        }
-        // 'new' expressions
-        if (tokenManager.matchAndRemove(Token.TokenTypes.NEW).isPresent()) {
-            NewNode newNode = new NewNode();
-            Optional<Token> classNameToken = tokenManager.matchAndRemove(Token.TokenTypes.WORD);
-            if (classNameToken.isEmpty()) throw syntaxError("Expected class name after 'new'");
-            newNode.className = classNameToken.get().getValue();
-
-            if (tokenManager.matchAndRemove(Token.TokenTypes.LPAREN).isPresent()) {
-                while (!tokenManager.done() && tokenManager.peekCurrent().isPresent() && tokenManager.peekCurrent().get().getType() != Token.TokenTypes.RPAREN) {
-                    newNode.parameters.add(Expression());
-                    if (tokenManager.matchAndRemove(Token.TokenTypes.COMMA).isEmpty()) break;
-                }
-                if (tokenManager.matchAndRemove(Token.TokenTypes.RPAREN).isEmpty()) {
-                    throw syntaxError("Expected ')' after constructor parameters");
-                }
-            }
-            return newNode;
-        }
-
-        throw syntaxError("Expected expression");
-    }
-
     private Optional<VariableReferenceNode> VariableNameValue() throws SyntaxErrorException {
-        Optional<Token> nameToken = tokenManager.matchAndRemove(Token.TokenTypes.WORD);
-        if (nameToken.isPresent()) {
+        Optional<String> name = tokenManager.matchAndRemoveValue(Token.TokenTypes.WORD);
+        if (name.isPresent()) {
             VariableReferenceNode variableReferenceNode = new VariableReferenceNode();
-            variableReferenceNode.name = nameToken.get().getValue();
+            variableReferenceNode.name = name.get();
             return Optional.of(variableReferenceNode);
         }
         return Optional.empty();
     }
 
     private Optional<InterfaceNode> Interface() throws SyntaxErrorException {
-        if (tokenManager.matchAndRemove(Token.TokenTypes.INTERFACE).isEmpty()) return Optional.empty();
+        if (!tokenManager.matchAndSkip(Token.TokenTypes.INTERFACE)) return Optional.empty();
 
-        Optional<Token> interfaceNameToken = tokenManager.matchAndRemove(Token.TokenTypes.WORD);
-        if (interfaceNameToken.isEmpty()) throw syntaxError("Expected interface name");
+        Optional<String> interfaceName = tokenManager.matchAndRemoveValue(Token.TokenTypes.WORD);
+        if (interfaceName.isEmpty()) throw syntaxError("Expected interface name");
 
         InterfaceNode interfaceNode = new InterfaceNode();
-        interfaceNode.name = interfaceNameToken.get().getValue();
+        interfaceNode.name = interfaceName.get();
 
         tokenManager.skipNewLines();
-        if (tokenManager.matchAndRemove(Token.TokenTypes.INDENT).isEmpty()) throw syntaxError("Expected indentation after interface declaration");
+        if (!tokenManager.matchAndSkip(Token.TokenTypes.INDENT)) throw syntaxError("Expected indentation after interface declaration");
 
-        while (!tokenManager.done() && tokenManager.peekCurrent().isPresent() && tokenManager.peekCurrent().get().getType() != Token.TokenTypes.DEDENT) {
-            Optional<MethodHeaderNode> methodHeader = MethodHeader();
-            if (methodHeader.isPresent()) {
-                interfaceNode.methods.add(methodHeader.get());
-            } else {
-                throw syntaxError("Expected method declaration");
+        while (!tokenManager.done() && !tokenManager.nextIs(Token.TokenTypes.DEDENT)) {
+            try {
+                Optional<MethodHeaderNode> methodHeader = MethodHeader();
+                if (methodHeader.isPresent()) {
+                    interfaceNode.methods.add(methodHeader.get());
+                } else {
+                    throw syntaxError("Expected method declaration");
+                }
+            } catch (SyntaxErrorException e) {
+                recover(e);
             }
             tokenManager.skipNewLines();
         }
-        tokenManager.matchAndRemove(Token.TokenTypes.DEDENT);
+        tokenManager.matchAndSkip(Token.TokenTypes.DEDENT);
         return Optional.of(interfaceNode);
     }
 
     private Optional<MethodHeaderNode> MethodHeader() throws SyntaxErrorException {
-        Optional<Token> methodNameToken = tokenManager.matchAndRemove(Token.TokenTypes.WORD);
-        if (methodNameToken.isEmpty()) return Optional.empty();
+        Optional<String> methodName = tokenManager.matchAndRemoveValue(Token.TokenTypes.WORD);
+        if (methodName.isEmpty()) return Optional.empty();
 
         MethodHeaderNode methodHeaderNode = new MethodHeaderNode();
-        methodHeaderNode.name = methodNameToken.get().getValue();
+        methodHeaderNode.name = methodName.get();
 
-        if (tokenManager.matchAndRemove(Token.TokenTypes.LPAREN).isPresent()) {
+        if (tokenManager.matchAndSkip(Token.TokenTypes.LPAREN)) {
             methodHeaderNode.parameters = ParameterVariableDeclarations().orElse(new ArrayList<>());
-            if (tokenManager.matchAndRemove(Token.TokenTypes.RPAREN).isEmpty()) throw syntaxError("Expected ')' after method parameters");
+            if (!tokenManager.matchAndSkip(Token.TokenTypes.RPAREN)) throw syntaxError("Expected ')' after method parameters");
         }
-        if (tokenManager.matchAndRemove(Token.TokenTypes.COLON).isPresent()) {
+        if (tokenManager.matchAndSkip(Token.TokenTypes.COLON)) {
             methodHeaderNode.returns = ReturnVariableDeclarations().orElse(new ArrayList<>());
         }
         tokenManager.skipNewLines();
@@ -533,21 +711,21 @@ public class Parser {
             Optional<VariableDeclarationNode> parameter = ParameterVariableDeclaration();
             if (parameter.isEmpty()) break;
             parameters.add(parameter.get());
-            if (tokenManager.matchAndRemove(Token.TokenTypes.COMMA).isEmpty()) break;
+            if (!tokenManager.matchAndSkip(Token.TokenTypes.COMMA)) break;
         }
         return Optional.of(parameters);
     }
 
     private Optional<VariableDeclarationNode> ParameterVariableDeclaration() throws SyntaxErrorException {
-        Optional<Token> typeToken = tokenManager.matchAndRemove(Token.TokenTypes.WORD);
-        if (typeToken.isEmpty()) return Optional.empty();
+        Optional<String> type = tokenManager.matchAndRemoveValue(Token.TokenTypes.WORD);
+        if (type.isEmpty()) return Optional.empty();
 
-        Optional<Token> nameToken = tokenManager.matchAndRemove(Token.TokenTypes.WORD);
-        if (nameToken.isEmpty()) throw syntaxError("Expected parameter name");
+        Optional<String> name = tokenManager.matchAndRemoveValue(Token.TokenTypes.WORD);
+        if (name.isEmpty()) throw syntaxError("Expected parameter name");
 
         VariableDeclarationNode parameter = new VariableDeclarationNode();
-        parameter.type = typeToken.get().getValue();
-        parameter.name = nameToken.get().getValue();
+        parameter.type = type.get();
+        parameter.name = name.get();
         return Optional.of(parameter);
     }
 
@@ -557,25 +735,61 @@ public class Parser {
             Optional<VariableDeclarationNode> returnVar = ReturnVariableDeclaration();
             if (returnVar.isEmpty()) break;
             returns.add(returnVar.get());
-            if (tokenManager.matchAndRemove(Token.TokenTypes.COMMA).isEmpty()) break;
+            if (!tokenManager.matchAndSkip(Token.TokenTypes.COMMA)) break;
         }
         return Optional.of(returns);
     }
 
     private Optional<VariableDeclarationNode> ReturnVariableDeclaration() throws SyntaxErrorException {
-        Optional<Token> typeToken = tokenManager.matchAndRemove(Token.TokenTypes.WORD);
-        if (typeToken.isEmpty()) return Optional.empty();
+        Optional<String> type = tokenManager.matchAndRemoveValue(Token.TokenTypes.WORD);
+        if (type.isEmpty()) return Optional.empty();
 
-        Optional<Token> nameToken = tokenManager.matchAndRemove(Token.TokenTypes.WORD);
-        if (nameToken.isEmpty()) throw syntaxError("Expected return variable name");
+        Optional<String> name = tokenManager.matchAndRemoveValue(Token.TokenTypes.WORD);
+        if (name.isEmpty()) throw syntaxError("Expected return variable name");
 
         VariableDeclarationNode returnVar = new VariableDeclarationNode();
-        returnVar.type = typeToken.get().getValue();
-        returnVar.name = nameToken.get().getValue();
+        returnVar.type = type.get();
+        returnVar.name = name.get();
         return Optional.of(returnVar);
     }
 
     private SyntaxErrorException syntaxError(String message) {
-        return new SyntaxErrorException(message, tokenManager.getCurrentLine(), tokenManager.getCurrentColumnNumber());
+        return new SyntaxErrorException(message, tokenManager.getCurrentLine(), tokenManager.getCurrentColumnNumber(), errors == null);
+    }
+
+    /**
+     * A syntax error happened in the middle of a line. Unless we are recovering from errors, that's the end of parsing.
+     * Otherwise, record it and skip ahead to the next line that isn't part of the same statement or declaration: the
+     * rest of this line, then the block indented under it, if there is one.
+     * @return the ErrorNode to put in place of the statement
+     */
+    private ErrorNode recover(SyntaxErrorException e) throws SyntaxErrorException {
+        if (errors == null) {
+            throw e;
+        }
+        errors.add(e);
+
+        while (!tokenManager.done() && !tokenManager.nextIs(Token.TokenTypes.NEWLINE) && !tokenManager.nextIs(Token.TokenTypes.DEDENT)) {
+            tokenManager.consume();
+        }
+        tokenManager.skipNewLines();
+        if (tokenManager.nextIs(Token.TokenTypes.INDENT)) {
+            int depth = 0;
+            do {
+                if (tokenManager.nextIs(Token.TokenTypes.INDENT)) {
+                    depth++;
+                } else if (tokenManager.nextIs(Token.TokenTypes.DEDENT)) {
+                    depth--;
+                }
+                tokenManager.consume();
+            } while (!tokenManager.done() && depth > 0);
+            tokenManager.skipNewLines();
+        }
+
+        ErrorNode node = new ErrorNode();
+        node.message = e.getMessage();
+        node.lineNumber = e.getLineNumber();
+        node.characterPosition = e.getCharacterPosition();
+        return node;
     }
 }
\ No newline at end of file
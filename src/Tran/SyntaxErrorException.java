@@ -1,5 +1,7 @@
 package Tran;
 public class SyntaxErrorException extends Exception{
+    private static final long serialVersionUID = 1L;
+
     private final int lineNumber;
     private final int characterPosition;
 
@@ -9,6 +11,24 @@ public class SyntaxErrorException extends Exception{
         this.characterPosition = characterPosition;
     }
 
+    /**
+     * An error the parser is going to record and carry on from - no stack trace, which is most of what an exception
+     * costs to make.
+     */
+    SyntaxErrorException (String message, int lineNumber, int characterPosition, boolean withStackTrace) {
+        super(message, null, false, withStackTrace);
+        this.lineNumber = lineNumber;
+        this.characterPosition = characterPosition;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    public int getCharacterPosition() {
+        return characterPosition;
+    }
+
     @Override
     public String toString() {
         return "Error at line " + lineNumber + " at character " + characterPosition + " at " + super.toString();
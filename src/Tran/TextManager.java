@@ -1,23 +1,74 @@
 package Tran;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
 
 public class TextManager {
-    private final String input;
+    private static final int bufferSize = 8192;
+
+    // The text is read into buffer a piece at a time (or all at once, for a String); position and end are indexes into it
+    private char[] buffer;
+    private Reader reader; // null once we have all of the text
+    private final String source; // the whole text, when we were given it as a String
     private int position;
+    private int end;
     private int lineNumber;
     private int columnNumber;
 
 
     public TextManager(String input) {
-        this.input = input;
+        this(input, 1);
+    }
+
+    /**
+     * @param firstLine - the line number of the first line of input (when input is a piece of a bigger file)
+     */
+    public TextManager(String input, int firstLine) {
+        this.source = input;
+        this.buffer = input.toCharArray();
+        this.end = buffer.length;
+        this.position = 0;
+        this.lineNumber = firstLine;
+        this.columnNumber = 1;
+    }
+
+    /**
+     * Read the text from a Reader as the lexer asks for it, keeping only a small window of it in memory.
+     * The reader is closed once all of it has been read.
+     */
+    public TextManager(Reader reader) {
+        this.buffer = new char[bufferSize];
+        this.reader = reader;
+        this.source = null;
+        this.end = 0;
         this.position = 0;
         this.lineNumber = 1;
         this.columnNumber = 1;
     }
 
 
+    /**
+     * Stop reading - closes the Reader if we haven't read all of it yet.
+     */
+    public void close() {
+        if (reader == null) {
+            return;
+        }
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            reader = null;
+        }
+    }
+
+
     public boolean isAtEnd() {
-        return position >= input.length();
+        return !available(1);
     }
 
 
@@ -25,15 +76,15 @@ public class TextManager {
         if (isAtEnd()) {
             return '\0';
         }
-        return input.charAt(position);
+        return buffer[position];
     }
 
 
     public char peekCharacter(int dist) {
-        if (position + dist >= input.length()) {
+        if (!available(dist + 1)) {
             return '\0';
         }
-        return input.charAt(position + dist);
+        return buffer[position + dist];
     }
 
 
@@ -41,7 +92,7 @@ public class TextManager {
         if (isAtEnd()) {
             return '\0';
         }
-        char currentChar = input.charAt(position++);
+        char currentChar = buffer[position++];
         if (currentChar == '\n') {
             lineNumber++;
             columnNumber = 1;
@@ -60,4 +111,51 @@ public class TextManager {
     public int getColumnNumber() {
         return columnNumber;
     }
+
+    /**
+     * @return all of the text, or null if it is being read from a Reader (and so isn't all in memory)
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Where we are in getSource() - the index of the next character getCharacter() will return.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Are there at least count characters left, starting at position? Reads more of the text if we need to.
+     */
+    private boolean available(int count) {
+        if (position + count <= end) {
+            return true;
+        }
+        if (reader == null) {
+            return false;
+        }
+        // Slide what we haven't used yet to the front of the buffer, then fill the rest
+        System.arraycopy(buffer, position, buffer, 0, end - position);
+        end -= position;
+        position = 0;
+        if (count > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(count, buffer.length * 2));
+        }
+        try {
+            while (end < count) {
+                int read = reader.read(buffer, end, buffer.length - end);
+                if (read < 0) {
+                    reader.close();
+                    reader = null;
+                    break;
+                }
+                end += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count <= end;
+    }
 }
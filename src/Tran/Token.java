@@ -1,5 +1,5 @@
 package Tran;
-import java.util.Optional;
+import java.util.Objects;
 
 public class Token {
     public enum TokenTypes {
@@ -13,7 +13,11 @@ public class Token {
         NEW, PRIVATE, SHARED, CONSTRUCT
     }
 
-    private final Optional<String> value;
+    // The value is either a String, or a slice of the source text that only becomes a String when getValue() is called
+    private String value;
+    private final String source;
+    private final int valueStart;
+    private final int valueLength;
 
     private final TokenTypes type;
 
@@ -30,28 +34,72 @@ public class Token {
     }
 
     public Token(TokenTypes type, int lineNumber, int columnNumber ){
-        this(type, lineNumber,columnNumber, Optional.empty() );
+        this(type, lineNumber, columnNumber, null, null, 0, 0);
     }
 
     public Token(TokenTypes type, int lineNumber, int columnNumber, String value ){
-        this(type, lineNumber,columnNumber, Optional.of(value) );
+        this(type, lineNumber, columnNumber, value, null, 0, value.length());
     }
 
-    private Token(TokenTypes type, int lineNumber, int columnNumber, Optional<String> value ) {
+    /**
+     * A token whose value is source[start, start + length) - the String isn't made unless somebody asks for it.
+     */
+    public Token(TokenTypes type, int lineNumber, int columnNumber, String source, int start, int length) {
+        this(type, lineNumber, columnNumber, null, source, start, length);
+    }
+
+    private Token(TokenTypes type, int lineNumber, int columnNumber, String value, String source, int valueStart, int valueLength) {
         this.lineNumber = lineNumber;
         this.columnNumber = columnNumber;
         this.type = type;
         this.value = value;
+        this.source = source;
+        this.valueStart = valueStart;
+        this.valueLength = valueLength;
     }
 
     public TokenTypes getType() { return type; }
 
     public String getValue() {
-           return value.orElse("");
+        if (value == null && source != null) {
+            value = source.substring(valueStart, valueStart + valueLength);
+        }
+        return value == null ? "" : value;
     }
 
+    public boolean hasValue() { return value != null || source != null; }
+
+    /**
+     * The value, if it is already a String (a name the lexer interned, for instance), otherwise null.
+     */
+    String valueIfMade() { return value; }
+
+    /**
+     * The text the value is a slice of, if it hasn't been made into a String yet (otherwise null) - the value starts at
+     * getValueStart() and is getValueLength() long.
+     */
+    String sliceSource() { return value == null ? source : null; }
+
+    int getValueStart() { return valueStart; }
+
+    /**
+     * How long the value is (0 if there isn't one).
+     */
+    public int getValueLength() { return valueLength; }
+
     @Override
     public String toString() {
-       return type + " " + (value.orElse("")) + "@" + lineNumber + "," + columnNumber;
+       return type + " " + getValue() + "@" + lineNumber + "," + columnNumber;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Token t && type == t.type && lineNumber == t.lineNumber && columnNumber == t.columnNumber
+                && hasValue() == t.hasValue() && getValue().equals(t.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, lineNumber, columnNumber, getValue());
     }
 }
@@ -0,0 +1,134 @@
+package Tran;
+
+import java.util.Arrays;
+
+/**
+ * A list of tokens stored column by column: the type, line and column of token i are types[i], lines[i] and
+ * columns[i]. There is no Token object per token - get() makes one when somebody really wants it (an error message).
+ *
+ * A token's value is kept the way the lexer made it: the String itself for a name (the NameTable's String, so every
+ * use of a name in the parsed AST is the same instance), or a slice of the source text for a number or a quoted
+ * string, which only becomes a String the first time value() is asked for it.
+ */
+public class TokenBuffer {
+    private static final Token.TokenTypes[] typesByOrdinal = Token.TokenTypes.values();
+
+    private byte[] types = new byte[256];
+    private int[] lines = new int[256];
+    private int[] columns = new int[256];
+    private String[] values = new String[256]; // null for a slice that hasn't been made yet, or no value at all
+    private String[] sources = new String[256]; // the text values[i] is a slice of, until it is made
+    private int[] valueStarts = new int[256];
+    private int[] valueLengths = new int[256];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public void add(Token token) {
+        ensureSpace();
+        append(token.getType(), token.getLineNumber(), token.getColumnNumber());
+        values[size] = token.valueIfMade();
+        sources[size] = token.sliceSource();
+        valueStarts[size] = token.getValueStart();
+        valueLengths[size] = token.getValueLength();
+        size++;
+    }
+
+    /**
+     * @param value - the token's value, or null if it doesn't have one
+     */
+    public void add(Token.TokenTypes type, int line, int column, String value) {
+        ensureSpace();
+        append(type, line, column);
+        values[size] = value;
+        sources[size] = null;
+        size++;
+    }
+
+    /**
+     * Add a token whose value is source[start, start + length) - the String isn't made until value() is asked for it.
+     */
+    public void add(Token.TokenTypes type, int line, int column, String source, int start, int length) {
+        ensureSpace();
+        append(type, line, column);
+        values[size] = null;
+        sources[size] = source;
+        valueStarts[size] = start;
+        valueLengths[size] = length;
+        size++;
+    }
+
+    private void ensureSpace() {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+            values = Arrays.copyOf(values, capacity);
+            sources = Arrays.copyOf(sources, capacity);
+            valueStarts = Arrays.copyOf(valueStarts, capacity);
+            valueLengths = Arrays.copyOf(valueLengths, capacity);
+        }
+    }
+
+    private void append(Token.TokenTypes type, int line, int column) {
+        types[size] = (byte) type.ordinal();
+        lines[size] = line;
+        columns[size] = column;
+    }
+
+    public Token.TokenTypes type(int i) {
+        return typesByOrdinal[types[i]];
+    }
+
+    public int line(int i) {
+        return lines[i];
+    }
+
+    public int column(int i) {
+        return columns[i];
+    }
+
+    /**
+     * @return token i's value - the same String every time it is asked for - or null if it doesn't have one
+     */
+    public String value(int i) {
+        if (values[i] == null && sources[i] != null) {
+            values[i] = sources[i].substring(valueStarts[i], valueStarts[i] + valueLengths[i]);
+            sources[i] = null;
+        }
+        return values[i];
+    }
+
+    /**
+     * Make a Token for token i (a value that is still a slice of the text stays one).
+     */
+    public Token get(int i) {
+        if (values[i] == null && sources[i] != null) {
+            return new Token(type(i), lines[i], columns[i], sources[i], valueStarts[i], valueLengths[i]);
+        }
+        if (values[i] == null) {
+            return new Token(type(i), lines[i], columns[i]);
+        }
+        return new Token(type(i), lines[i], columns[i], values[i]);
+    }
+
+    /**
+     * Forget the first count tokens (and their values); token count becomes token 0.
+     */
+    public void removeFirst(int count) {
+        size -= count;
+        System.arraycopy(types, count, types, 0, size);
+        System.arraycopy(lines, count, lines, 0, size);
+        System.arraycopy(columns, count, columns, 0, size);
+        System.arraycopy(values, count, values, 0, size);
+        System.arraycopy(sources, count, sources, 0, size);
+        System.arraycopy(valueStarts, count, valueStarts, 0, size);
+        System.arraycopy(valueLengths, count, valueLengths, 0, size);
+        // Let go of the values (and the text) the dropped tokens were holding on to
+        Arrays.fill(values, size, size + count, null);
+        Arrays.fill(sources, size, size + count, null);
+    }
+}
@@ -3,27 +3,98 @@ import java.util.List;
 import java.util.Optional;
 
 public class TokenManager {
-    private final List<Token> tokens;
+    /** Lexing more tokens failed while the parser was looking ahead; Parser.Tran() turns this back into the SyntaxErrorException */
+    static class LexError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final SyntaxErrorException error;
+
+        LexError(SyntaxErrorException error) {
+            super(error);
+            this.error = error;
+        }
+    }
+
+    // Once the parser is this far past the start of the list, drop the tokens it has already read (streaming only)
+    private static final int compactAfter = 1024;
+
+    private final TokenBuffer tokens;
+    private final Lexer lexer; // null when we were given all of the tokens up front
     private int currentIndex;
 
     public TokenManager(List<Token> tokens) {
+        this.tokens = new TokenBuffer();
+        for (Token token : tokens) {
+            this.tokens.add(token);
+        }
+        this.lexer = null;
+        this.currentIndex = 0;
+    }
+
+    public TokenManager(TokenBuffer tokens) {
         this.tokens = tokens;
+        this.lexer = null;
         this.currentIndex = 0;
     }
 
+    /**
+     * Pull tokens from the lexer only as the parser looks at them, instead of lexing the whole file first.
+     */
+    public TokenManager(Lexer lexer) {
+        this.tokens = new TokenBuffer();
+        this.lexer = lexer;
+        this.currentIndex = 0;
+    }
+
+    /**
+     * Stop lexing - closes the lexer's Reader if it hasn't been read to the end (nothing to do if we were given all of
+     * the tokens up front).
+     */
+    public void close() {
+        if (lexer != null) {
+            lexer.close();
+        }
+    }
+
     public boolean done() {
-        return currentIndex >= tokens.size();
+        return !fill(currentIndex);
     }
 
     public Optional<Token> matchAndRemove(Token.TokenTypes t) {
-        if (!done() && tokens.get(currentIndex).getType() == t) {
+        if (!done() && tokens.type(currentIndex) == t) {
             return Optional.of(tokens.get(currentIndex++));
         }
         return Optional.empty();
     }
 
+    /**
+     * Like matchAndRemove, for tokens whose only news is that they are there (keywords, punctuation, INDENT...) -
+     * no Token is made.
+     * @return was the next token a t (and so removed)?
+     */
+    public boolean matchAndSkip(Token.TokenTypes t) {
+        if (!done() && tokens.type(currentIndex) == t) {
+            currentIndex++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Like matchAndRemove, when all the caller wants from the token is its value - no Token is made.
+     * @return the value of the next token if it is a t (and so removed), otherwise empty. A token without a value
+     * gives "", the same as Token.getValue()
+     */
+    public Optional<String> matchAndRemoveValue(Token.TokenTypes t) {
+        if (!done() && tokens.type(currentIndex) == t) {
+            String value = tokens.value(currentIndex++);
+            return Optional.of(value == null ? "" : value);
+        }
+        return Optional.empty();
+    }
+
     public Optional<Token> peek(int i) {
-        if (currentIndex + i < tokens.size()) {
+        if (fill(currentIndex + i)) {
             return Optional.of(tokens.get(currentIndex + i));
         }
         return Optional.empty();
@@ -40,9 +111,9 @@ public class TokenManager {
     }
 
     public void require(Token.TokenTypes t) throws SyntaxErrorException {
-        if (done() || tokens.get(currentIndex).getType() != t) {
+        if (done() || tokens.type(currentIndex) != t) {
             throw new SyntaxErrorException(
-                    "Expected token: " + t + ", but found: " + (done() ? "EOF" : tokens.get(currentIndex).getType()),
+                    "Expected token: " + t + ", but found: " + (done() ? "EOF" : tokens.type(currentIndex)),
                     getCurrentLine(),
                     getCurrentColumnNumber()
             );
@@ -51,23 +122,19 @@ public class TokenManager {
     }
 
     public void skipNewLines() {
-        while (!done() && tokens.get(currentIndex).getType() == Token.TokenTypes.NEWLINE) {
+        while (!done() && tokens.type(currentIndex) == Token.TokenTypes.NEWLINE) {
             currentIndex++;
         }
     }
 
     public boolean nextTwoTokensMatch(Token.TokenTypes first, Token.TokenTypes second) {
-        Optional<Token> firstToken = peek(0);
-        Optional<Token> secondToken = peek(1);
-        return firstToken.isPresent() && firstToken.get().getType() == first &&
-                secondToken.isPresent() && secondToken.get().getType() == second;
+        return fill(currentIndex + 1) && tokens.type(currentIndex) == first && tokens.type(currentIndex + 1) == second;
     }
 
     public boolean nextIsEither(Token.TokenTypes... types) {
-        Optional<Token> nextToken = peek(0);
-        if (nextToken.isPresent()) {
+        if (!done()) {
             for (Token.TokenTypes type : types) {
-                if (nextToken.get().getType() == type) {
+                if (tokens.type(currentIndex) == type) {
                     return true;
                 }
             }
@@ -75,28 +142,71 @@ public class TokenManager {
         return false;
     }
 
+    /**
+     * Is the next token a t? Like nextIsEither, without making a Token (or an array) to find out.
+     */
+    public boolean nextIs(Token.TokenTypes t) {
+        return !done() && tokens.type(currentIndex) == t;
+    }
+
+    /**
+     * The type of the next token, without making a Token to find out.
+     * @return null if there are no more tokens
+     */
+    public Token.TokenTypes peekType() {
+        return done() ? null : tokens.type(currentIndex);
+    }
+
     public int getCurrentLine() {
         if (!done()) {
-            return tokens.get(currentIndex).getLineNumber();
+            return tokens.line(currentIndex);
         }
         return -1;
     }
 
     public int getCurrentColumnNumber() {
         if (!done()) {
-            return tokens.get(currentIndex).getColumnNumber();
+            return tokens.column(currentIndex);
         }
         return -1;
     }
     public void skipIndent() {
-        while (!done() && tokens.get(currentIndex).getType() == Token.TokenTypes.INDENT) {
+        while (!done() && tokens.type(currentIndex) == Token.TokenTypes.INDENT) {
             currentIndex++;
         }
     }
 
     public void skipDedent() {
-        while (!done() && tokens.get(currentIndex).getType() == Token.TokenTypes.DEDENT) {
+        while (!done() && tokens.type(currentIndex) == Token.TokenTypes.DEDENT) {
             currentIndex++;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Make sure tokens has an entry at index, lexing more if we are streaming.
+     * @return false if the text runs out first
+     */
+    private boolean fill(int index) {
+        if (index < tokens.size()) {
+            return true;
+        }
+        if (lexer == null) {
+            return false;
+        }
+        if (currentIndex > compactAfter) {
+            tokens.removeFirst(currentIndex);
+            index -= currentIndex;
+            currentIndex = 0;
+        }
+        try {
+            while (index >= tokens.size()) {
+                if (!lexer.lexMore(tokens)) {
+                    return false;
+                }
+            }
+        } catch (SyntaxErrorException e) {
+            throw new LexError(e);
+        }
+        return true;
+    }
+}